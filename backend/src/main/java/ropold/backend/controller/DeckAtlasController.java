@@ -0,0 +1,64 @@
+package ropold.backend.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import ropold.backend.model.DeckAtlasModel;
+import ropold.backend.service.DeckAtlasService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// 404 heißt: Atlas wird gerade gebaut, der Client lädt solange die Einzelbilder.
+// /{matchId} zeigt auf den aktuellen Atlas und wird per ETag validiert, die versionierte Koordinaten-Map
+// und das Bild ändern sich unter ihrer URL nie und sind daher immutable.
+@RestController
+@RequestMapping("/api/deck-atlas")
+@RequiredArgsConstructor
+public class DeckAtlasController {
+
+    private final DeckAtlasService deckAtlasService;
+    private final HttpCacheHeaders httpCacheHeaders;
+
+    @GetMapping("/{matchId}")
+    public ResponseEntity<DeckAtlasModel> getAtlas(@PathVariable int matchId, ServletWebRequest request) {
+        DeckAtlasModel atlas = deckAtlasService.getAtlas(matchId).orElse(null);
+        if (atlas == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (httpCacheHeaders.notModified(request, "deck-atlas-" + matchId, atlas.version())) {
+            return null;
+        }
+        return ResponseEntity.ok(atlas);
+    }
+
+    @GetMapping("/{matchId}/{version}")
+    public ResponseEntity<DeckAtlasModel> getAtlasVersion(@PathVariable int matchId, @PathVariable String version) {
+        DeckAtlasModel atlas = deckAtlasService.getAtlas(matchId).orElse(null);
+        if (atlas == null || !atlas.version().equals(version)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, ImmutableImageResponse.CACHE_CONTROL)
+                .eTag(atlas.version())
+                .body(atlas);
+    }
+
+    @GetMapping("/images/{name}")
+    public void getImage(@PathVariable String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = deckAtlasService.resolve(name).orElse(null);
+        if (file == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        ImmutableImageResponse.write(request, response, file, "\"" + name.substring(0, name.indexOf('.')) + "\"", "image/jpeg");
+    }
+}
@@ -3,7 +3,11 @@ package ropold.backend.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import ropold.backend.model.HighScoreModel;
+import ropold.backend.model.HighScorePercentileModel;
+import ropold.backend.model.HighScoreRankModel;
+import ropold.backend.model.HighScoreWindow;
 import ropold.backend.service.HighScoreService;
 
 import java.util.List;
@@ -14,10 +18,35 @@ import java.util.List;
 public class HighScoreController {
 
     private final HighScoreService highScoreService;
+    private final HttpCacheHeaders httpCacheHeaders;
 
+    // Mit matchId die Bestenliste dieses Decks, sonst die über alle Decks mit dieser Kartenanzahl.
+    // window=TODAY oder WEEK liefert die Liste des laufenden Tages bzw. der laufenden Woche.
     @GetMapping("/{numberOfCards}")
-    public List<HighScoreModel> getBestHighScoresForCards(@PathVariable int numberOfCards) {
-        return highScoreService.getBestHighScoresForCards(numberOfCards);
+    public List<HighScoreModel> getBestHighScoresForCards(@PathVariable int numberOfCards,
+                                                          @RequestParam(required = false) Integer matchId,
+                                                          @RequestParam(defaultValue = "ALL_TIME") HighScoreWindow window,
+                                                          ServletWebRequest request) {
+        String versionKey = highScoreService.versionKey(numberOfCards, matchId, window);
+        if (httpCacheHeaders.notModified(request, versionKey, highScoreService.version(numberOfCards, matchId, window))) {
+            return null;
+        }
+        return highScoreService.getBestHighScores(numberOfCards, matchId, window);
+    }
+
+    // Rang und Perzentil kommen aus dem Speicher und ändern sich mit jedem Score, daher ohne ETag
+    @GetMapping("/{numberOfCards}/rank")
+    public HighScoreRankModel getRank(@PathVariable int numberOfCards,
+                                      @RequestParam double time,
+                                      @RequestParam(required = false) Integer matchId) {
+        return highScoreService.getRank(numberOfCards, matchId, time);
+    }
+
+    @GetMapping("/{numberOfCards}/percentile")
+    public HighScorePercentileModel getPercentile(@PathVariable int numberOfCards,
+                                                  @RequestParam double p,
+                                                  @RequestParam(required = false) Integer matchId) {
+        return highScoreService.getPercentile(numberOfCards, matchId, p);
     }
 
     @ResponseStatus(HttpStatus.CREATED)
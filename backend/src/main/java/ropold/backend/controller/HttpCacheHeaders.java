@@ -0,0 +1,99 @@
+package ropold.backend.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import ropold.backend.service.ContentVersionService;
+import ropold.backend.service.SerializedResponseCache.SerializedResponse;
+
+// ETag + Cache-Control für öffentliche GETs. Browser validieren jedes Mal per If-None-Match,
+// ein Reverse Proxy darf surrogateMaxAge Sekunden cachen und gezielt per Surrogate-Key purgen.
+@Component
+@RequiredArgsConstructor
+public class HttpCacheHeaders {
+
+    public static final String SURROGATE_KEY = "Surrogate-Key";
+    public static final String SURROGATE_CONTROL = "Surrogate-Control";
+
+    private final ContentVersionService contentVersionService;
+
+    @Value("${memoryhub.http-cache.surrogate-max-age:60}")
+    private long surrogateMaxAge;
+
+    public String currentVersion(String versionKey) {
+        return contentVersionService.getVersion(versionKey);
+    }
+
+    // Liefert true, wenn der Client die aktuelle Version schon hat; dann ist die Antwort ein 304
+    // und der Controller darf die eigentliche Abfrage überspringen.
+    public boolean notModified(ServletWebRequest request, String versionKey) {
+        return notModified(request, versionKey, currentVersion(versionKey));
+    }
+
+    public boolean notModified(ServletWebRequest request, String versionKey, String version) {
+        return checkNotModified(request, versionKey, "\"" + versionKey + "-" + version + "\"");
+    }
+
+    // Für Antworten aus serialized(): gzip- und identity-Body sind verschiedene Repräsentationen
+    // und bekommen daher eigene starke ETags, passend zu Vary: Accept-Encoding
+    public boolean notModifiedSerialized(ServletWebRequest request, String versionKey, String version) {
+        String encoding = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING)) ? "-gz" : "";
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return checkNotModified(request, versionKey, "\"" + versionKey + "-" + version + encoding + "\"");
+    }
+
+    private boolean checkNotModified(ServletWebRequest request, String versionKey, String etag) {
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "public, no-cache");
+            response.setHeader(SURROGATE_CONTROL, "max-age=" + surrogateMaxAge);
+            response.setHeader(SURROGATE_KEY, versionKey);
+        }
+        return request.checkNotModified(etag);
+    }
+
+    // Schreibt die vorbereiteten Bytes unverändert raus, gzip nur wenn der Client es akzeptiert
+    public ResponseEntity<byte[]> serialized(ServletWebRequest request, SerializedResponse serialized) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(serialized.gzip());
+        }
+        return builder.body(serialized.json());
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean rejected = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        rejected = Double.parseDouble(parameter.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        rejected = true;
+                    }
+                }
+            }
+            return !rejected;
+        }
+        return false;
+    }
+}
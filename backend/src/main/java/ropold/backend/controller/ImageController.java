@@ -0,0 +1,39 @@
+package ropold.backend.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ropold.backend.model.ImageFormat;
+import ropold.backend.service.LocalImageStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Liefert Bilder der lokalen Ablage aus; der Name ist der SHA-256 des Inhalts und damit auch das ETag
+@RestController
+@RequestMapping("/api/images")
+@ConditionalOnProperty(name = "memoryhub.image-storage", havingValue = "local")
+@RequiredArgsConstructor
+public class ImageController {
+
+    private final LocalImageStorage localImageStorage;
+
+    @GetMapping("/{name}")
+    public void getImage(@PathVariable String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = localImageStorage.resolve(name).orElse(null);
+        if (file == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        String contentType = ImageFormat.fromExtension(name.substring(name.lastIndexOf('.') + 1))
+                .map(ImageFormat::mimeType)
+                .orElse("application/octet-stream");
+        ImmutableImageResponse.write(request, response, file, "\"" + name.substring(0, name.indexOf('.')) + "\"", contentType);
+    }
+}
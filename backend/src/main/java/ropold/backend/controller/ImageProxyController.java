@@ -0,0 +1,35 @@
+package ropold.backend.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ropold.backend.service.ImageProxyService;
+import ropold.backend.service.ImageProxyService.CachedImage;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Der Token ist die Base64url-kodierte Original-URL. Deren Inhalt kann sich ändern (z.B. GitHub-Avatare),
+// daher nur begrenzt cachen; der ETag kommt aus dem Inhalt, ein unverändertes Bild bleibt ein 304.
+@RestController
+@RequestMapping("/api/image-proxy")
+@RequiredArgsConstructor
+public class ImageProxyController {
+
+    private final ImageProxyService imageProxyService;
+
+    @Value("${memoryhub.image-proxy.browser-max-age:1d}")
+    private Duration browserMaxAge;
+
+    @GetMapping("/{token}")
+    public void getImage(@PathVariable String token, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        CachedImage image = imageProxyService.getImage(token);
+        ImmutableImageResponse.write(request, response, image.file(), "\"" + image.contentHash() + "\"",
+                image.format().mimeType(), "public, max-age=" + browserMaxAge.toSeconds());
+    }
+}
@@ -0,0 +1,109 @@
+package ropold.backend.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Schreibt eine Bilddatei, deren Inhalt sich unter ihrem Namen nie ändert. Mit Tomcat per sendfile
+// (Kernel kopiert direkt von der Datei in den Socket), sonst per FileChannel.transferTo.
+// Unterstützt If-None-Match/If-Modified-Since und einzelne Byte-Ranges. Für Dateien, deren URL nicht
+// inhaltsadressiert ist (Image-Proxy), gibt der Aufrufer ein begrenztes Cache-Control mit.
+final class ImmutableImageResponse {
+
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private ImmutableImageResponse() {
+    }
+
+    static void write(HttpServletRequest request, HttpServletResponse response,
+                      Path file, String etag, String contentType) throws IOException {
+        write(request, response, file, etag, contentType, CACHE_CONTROL);
+    }
+
+    static void write(HttpServletRequest request, HttpServletResponse response,
+                      Path file, String etag, String contentType, String cacheControl) throws IOException {
+        long length = Files.size(file);
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, Files.getLastModifiedTime(file).toMillis())) {
+            return;
+        }
+        response.setContentType(contentType);
+
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = singleRange(request, etag);
+        if (range != null) {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            if (start >= length || start > end) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    // Mehrere Ranges (multipart/byteranges) braucht für Bilder niemand; dann und bei veraltetem If-Range gibt es die ganze Datei
+    private static HttpRange singleRange(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.getFirst() : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
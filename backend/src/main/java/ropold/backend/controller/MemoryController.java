@@ -3,17 +3,37 @@ package ropold.backend.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import ropold.backend.exception.AccessDeniedException;
 import ropold.backend.exception.MemoryNotFoundException;
+import ropold.backend.model.Category;
+import ropold.backend.model.DealModel;
+import ropold.backend.model.DeckCacheStats;
+import ropold.backend.model.ImageDeletionStats;
 import ropold.backend.model.MemoryModel;
+import ropold.backend.model.MemoryCardView;
 import ropold.backend.model.MemoryModelDto;
+import ropold.backend.model.MemoryPage;
+import ropold.backend.model.MemorySummaryView;
+import ropold.backend.model.PlayBootstrapModel;
+import ropold.backend.model.SignedUploadModel;
+import ropold.backend.model.UploadedImageDto;
 import ropold.backend.service.AppUserService;
-import ropold.backend.service.CloudinaryService;
+import ropold.backend.service.ContentVersionService;
+import ropold.backend.service.ImageDeletionWorker;
+import ropold.backend.service.ImageStorage;
+import ropold.backend.service.ImageUploadService;
+import ropold.backend.service.ImageUploadService.StoredImage;
+import ropold.backend.service.MemorySearchService;
 import ropold.backend.service.MemoryService;
+import ropold.backend.service.PlayBootstrapService;
+import ropold.backend.service.PlayService;
+import ropold.backend.service.SerializedResponseCache;
 
 import java.io.IOException;
 import java.util.List;
@@ -23,20 +43,83 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MemoryController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final MemoryService memoryService;
-    private final CloudinaryService cloudinaryService;
+    private final ImageStorage imageStorage;
+    private final ImageUploadService imageUploadService;
     private final AppUserService appUserService;
-
+    private final MemorySearchService memorySearchService;
+    private final PlayService playService;
+    private final PlayBootstrapService playBootstrapService;
+    private final HttpCacheHeaders httpCacheHeaders;
+    private final SerializedResponseCache serializedResponseCache;
+    private final ImageDeletionWorker imageDeletionWorker;
+
+    // Heiße Endpunkte: JSON (und gzip) wird pro Version einmal erzeugt und danach nur noch als Bytes ausgeliefert
     @GetMapping("/active/match-id/{numberOfMatchId}")
-    public List<MemoryModel> getActiveMemoriesFilterByMatchId(@PathVariable int numberOfMatchId) {
-        return memoryService.getActiveMemoriesFilterByMatchId(numberOfMatchId);
+    public ResponseEntity<byte[]> getActiveMemoriesFilterByMatchId(@PathVariable int numberOfMatchId, ServletWebRequest request) {
+        String versionKey = ContentVersionService.deck(numberOfMatchId);
+        String version = httpCacheHeaders.currentVersion(versionKey);
+        if (httpCacheHeaders.notModifiedSerialized(request, versionKey, version)) {
+            return null;
+        }
+        return httpCacheHeaders.serialized(request, serializedResponseCache.get(versionKey, version,
+                () -> memoryService.getActiveMemoriesFilterByMatchId(numberOfMatchId, version)));
+    }
+
+    @GetMapping("/active/match-id/{numberOfMatchId}/cards")
+    public List<MemoryCardView> getActiveMemoryCardsFilterByMatchId(@PathVariable int numberOfMatchId, ServletWebRequest request) {
+        if (httpCacheHeaders.notModified(request, ContentVersionService.deck(numberOfMatchId))) {
+            return null;
+        }
+        return memoryService.getActiveMemoryCardsFilterByMatchId(numberOfMatchId);
     }
 
     @GetMapping("/active/match-ids")
-    public List<Integer> getActiveMemoriesMatchIds() {
-        return memoryService.getActiveMemoriesMatchIds();
+    public ResponseEntity<byte[]> getActiveMemoriesMatchIds(ServletWebRequest request) {
+        String version = httpCacheHeaders.currentVersion(ContentVersionService.CATALOG);
+        if (httpCacheHeaders.notModifiedSerialized(request, ContentVersionService.CATALOG, version)) {
+            return null;
+        }
+        return httpCacheHeaders.serialized(request, serializedResponseCache.get("match-ids", version,
+                memoryService::getActiveMemoriesMatchIds));
     }
 
+    @GetMapping("/active/match-ids/counts")
+    public ResponseEntity<byte[]> getActiveMemoriesMatchIdCounts(ServletWebRequest request) {
+        String version = httpCacheHeaders.currentVersion(ContentVersionService.CATALOG);
+        if (httpCacheHeaders.notModifiedSerialized(request, ContentVersionService.CATALOG, version)) {
+            return null;
+        }
+        return httpCacheHeaders.serialized(request, serializedResponseCache.get("match-id-counts", version,
+                memoryService::getActiveMemoriesMatchIdCounts));
+    }
+
+
+    @GetMapping("/play/deal")
+    public DealModel deal(
+            @RequestParam int matchId,
+            @RequestParam int cards,
+            @RequestParam(required = false) Long seed) {
+        return playService.deal(matchId, cards, seed);
+    }
+
+    // Ein Aufruf statt fünf beim Laden der Spielseite: Decks mit Anzahl, gewähltes Deck und die Bestenlisten
+    @GetMapping("/play/bootstrap")
+    public PlayBootstrapModel bootstrap(@RequestParam(required = false) Integer matchId) {
+        return playBootstrapService.bootstrap(matchId);
+    }
+
+    @GetMapping("/cache/stats")
+    public DeckCacheStats getDeckCacheStats() {
+        return memoryService.getDeckCacheStats();
+    }
+
+    @GetMapping("/image-deletions/stats")
+    public ImageDeletionStats getImageDeletionStats() {
+        return imageDeletionWorker.getStats();
+    }
 
     @GetMapping("/favorites")
     public List<MemoryModel> getUserFavorites(@AuthenticationPrincipal OAuth2User authentication) {
@@ -60,28 +143,93 @@ public class MemoryController {
 
     @PutMapping("/{id}/toggle-active")
     public MemoryModel toggleMemoryActive(@PathVariable String id, @AuthenticationPrincipal OAuth2User authentication) {
-        String authenticatedUserId = authentication.getName();
-        MemoryModel memoryModel = memoryService.getMemoryById(id);
+        return memoryService.toggleMemoryActiveForOwner(id, authentication.getName());
+    }
 
-        if (!authenticatedUserId.equals(memoryModel.appUserGithubId())) {
-            throw new AccessDeniedException("You are not allowed to update memories for other users");
+    // Ohne limit wird wie bisher die komplette Liste geliefert, mit limit/after seitenweise per Keyset-Cursor
+    @GetMapping()
+    public ResponseEntity<List<MemoryModel>> getAllMemories(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            ServletWebRequest request) {
+        if (httpCacheHeaders.notModified(request, ContentVersionService.CATALOG)) {
+            return null;
+        }
+        if (limit == null) {
+            return ResponseEntity.ok(memoryService.getAllMemories());
         }
+        return pageResponse(memoryService.getAllMemoriesPage(limit, after));
+    }
 
-        return memoryService.toggleMemoryActive(id);
+    @GetMapping("/active")
+    public ResponseEntity<List<MemoryModel>> getActiveMemories(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            ServletWebRequest request) {
+        if (httpCacheHeaders.notModified(request, ContentVersionService.CATALOG)) {
+            return null;
+        }
+        if (limit == null) {
+            return ResponseEntity.ok(memoryService.getActiveMemories());
+        }
+        return pageResponse(memoryService.getActiveMemoriesPage(limit, after));
     }
 
-    @GetMapping()
-    public List<MemoryModel> getAllMemories() {
-        return memoryService.getAllMemories();
+    @GetMapping("/summaries")
+    public ResponseEntity<List<MemorySummaryView>> getAllMemorySummaries(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            ServletWebRequest request) {
+        if (httpCacheHeaders.notModified(request, ContentVersionService.CATALOG)) {
+            return null;
+        }
+        if (limit == null) {
+            return ResponseEntity.ok(memoryService.getAllMemorySummaries());
+        }
+        return pageResponse(memoryService.getAllMemorySummariesPage(limit, after));
     }
 
-    @GetMapping("/active")
-    public List<MemoryModel> getActiveMemories() {
-        return memoryService.getActiveMemories();
+    @GetMapping("/active/summaries")
+    public ResponseEntity<List<MemorySummaryView>> getActiveMemorySummaries(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            ServletWebRequest request) {
+        if (httpCacheHeaders.notModified(request, ContentVersionService.CATALOG)) {
+            return null;
+        }
+        if (limit == null) {
+            return ResponseEntity.ok(memoryService.getActiveMemorySummaries());
+        }
+        return pageResponse(memoryService.getActiveMemorySummariesPage(limit, after));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<MemoryModel>> searchMemories(
+            @RequestParam String q,
+            @RequestParam(required = false) Category category,
+            @RequestParam(required = false) Integer matchId,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String after,
+            ServletWebRequest request) {
+        if (httpCacheHeaders.notModified(request, ContentVersionService.CATALOG)) {
+            return null;
+        }
+        return pageResponse(memorySearchService.searchMemories(q, category, matchId, limit, after));
+    }
+
+    public static <T> ResponseEntity<List<T>> pageResponse(MemoryPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.memories());
     }
 
     @GetMapping("/{id}")
-    public MemoryModel getMemoryById(@PathVariable String id) {
+    public MemoryModel getMemoryById(@PathVariable String id, ServletWebRequest request) {
+        if (httpCacheHeaders.notModified(request, ContentVersionService.CATALOG)) {
+            return null;
+        }
         MemoryModel memory = memoryService.getMemoryById(id);
         if (memory == null) {
             throw new MemoryNotFoundException("No Memory found with id: " + id);
@@ -95,6 +243,7 @@ public class MemoryController {
     public MemoryModel addMemory(
             @RequestPart("memoryModelDto") @Valid MemoryModelDto memoryModelDto,
             @RequestPart(value = "image", required = false) MultipartFile image,
+            @RequestPart(value = "uploadedImage", required = false) @Valid UploadedImageDto uploadedImage,
             @AuthenticationPrincipal OAuth2User authentication) throws IOException {
 
         String authenticatedUserId = authentication.getName();
@@ -102,10 +251,7 @@ public class MemoryController {
             throw new AccessDeniedException("You are not allowed to create memories for other users");
         }
 
-        String imageUrl = null;
-        if (image != null && !image.isEmpty()) {
-            imageUrl = cloudinaryService.uploadImage(image);
-        }
+        StoredImage storedImage = storedImageFor(image, uploadedImage, authenticatedUserId);
 
         return memoryService.addMemory(
                 new MemoryModel(
@@ -119,10 +265,18 @@ public class MemoryController {
                         memoryModelDto.appUserUsername(),
                         memoryModelDto.appUserAvatarUrl(),
                         memoryModelDto.appUserGithubUrl(),
-                        imageUrl
+                        storedImage.imageUrl(),
+                        storedImage.renditions()
                 ));
     }
 
+    // Signierte Upload-Parameter: der Browser lädt das Bild direkt in die Bildablage hoch
+    // und schickt beim Anlegen nur noch das Ergebnis als uploadedImage mit
+    @PostMapping("/uploads/signature")
+    public SignedUploadModel signUpload(@AuthenticationPrincipal OAuth2User authentication) {
+        return imageStorage.signUpload(authentication.getName());
+    }
+
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("/avatar")
     public MemoryModel addMemoryAvatar(@RequestBody MemoryModelDto memoryModelDto) {
@@ -166,27 +320,15 @@ public class MemoryController {
             @PathVariable String id,
             @RequestPart("memoryModelDto") @Valid MemoryModelDto memoryModelDto,
             @RequestPart(value = "image", required = false) MultipartFile image,
+            @RequestPart(value = "uploadedImage", required = false) @Valid UploadedImageDto uploadedImage,
             @AuthenticationPrincipal OAuth2User authentication) throws IOException {
 
-        String authenticatedUserId = authentication.getName();
-        MemoryModel existingMemory = memoryService.getMemoryById(id);
-
-        if (!authenticatedUserId.equals(existingMemory.appUserGithubId())) {
-            throw new AccessDeniedException("You are not allowed to update memories for other users");
-        }
+        // Ohne neues Bild bleibt imageUrl null und das vorhandene Bild wird behalten
+        StoredImage newImage = storedImageFor(image, uploadedImage, authentication.getName());
 
-        String newImageUrl;
-        if (image != null && !image.isEmpty()) {
-            if (existingMemory.imageUrl() != null) {
-                cloudinaryService.deleteImage(existingMemory.imageUrl());
-            }
-            newImageUrl = cloudinaryService.uploadImage(image);
-        } else {
-            newImageUrl = existingMemory.imageUrl();
-        }
-
-        return memoryService.updateMemoryWithPut(
+        return memoryService.updateMemoryForOwner(
                 id,
+                authentication.getName(),
                 new MemoryModel(
                         id,
                         memoryModelDto.name(),
@@ -198,7 +340,8 @@ public class MemoryController {
                         memoryModelDto.appUserUsername(),
                         memoryModelDto.appUserAvatarUrl(),
                         memoryModelDto.appUserGithubUrl(),
-                        newImageUrl
+                        newImage.imageUrl(),
+                        newImage.renditions()
                 )
         );
     }
@@ -206,16 +349,16 @@ public class MemoryController {
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteMemory(@PathVariable String id, @AuthenticationPrincipal OAuth2User authentication) {
-        String authenticatedUserId = authentication.getName();
-
-        MemoryModel memoryModel = memoryService.getMemoryById(id);
+        memoryService.deleteMemoryForOwner(id, authentication.getName());
+    }
 
-        if (!authenticatedUserId.equals(memoryModel.appUserGithubId())) {
-            throw new AccessDeniedException("You are not allowed to delete memories for other users");
+    private StoredImage storedImageFor(MultipartFile image, UploadedImageDto uploadedImage, String authenticatedUserId) throws IOException {
+        if (uploadedImage != null) {
+            return new StoredImage(imageStorage.verifyUploadedImage(authenticatedUserId, uploadedImage), null);
         }
-
-        memoryService.deleteMemory(id);
+        if (image != null && !image.isEmpty()) {
+            return imageUploadService.upload(image);
+        }
+        return new StoredImage(null, null);
     }
 }
-
-
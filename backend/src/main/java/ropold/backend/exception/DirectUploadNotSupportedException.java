@@ -0,0 +1,8 @@
+package ropold.backend.exception;
+
+// Die konfigurierte Bildablage kann keine signierten Direkt-Uploads (nur Cloudinary kann das); Antwort ist 501
+public class DirectUploadNotSupportedException extends RuntimeException {
+    public DirectUploadNotSupportedException(String message) {
+        super(message);
+    }
+}
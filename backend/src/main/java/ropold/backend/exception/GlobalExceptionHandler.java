@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -45,6 +46,36 @@ public class GlobalExceptionHandler {
         return errors;
     }
 
+    @ExceptionHandler(InvalidRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public MemoryError handleInvalidRequestException(InvalidRequestException e) {
+        return new MemoryError(e.getMessage());
+    }
+
+    @ExceptionHandler(DirectUploadNotSupportedException.class)
+    @ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+    public MemoryError handleDirectUploadNotSupportedException(DirectUploadNotSupportedException e) {
+        return new MemoryError(e.getMessage());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public MemoryError handleRejectedExecutionException(RejectedExecutionException e) {
+        return new MemoryError(e.getMessage());
+    }
+
+    @ExceptionHandler(PlayBootstrapTimeoutException.class)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public MemoryError handlePlayBootstrapTimeoutException(PlayBootstrapTimeoutException e) {
+        return new MemoryError(e.getMessage());
+    }
+
+    @ExceptionHandler(ImageProxyException.class)
+    @ResponseStatus(HttpStatus.BAD_GATEWAY)
+    public MemoryError handleImageProxyException(ImageProxyException e) {
+        return new MemoryError(e.getMessage());
+    }
+
     @ExceptionHandler(ImageDeletionException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ImageDeletionError handleImageDeletionException(ImageDeletionException e) {
@@ -0,0 +1,7 @@
+package ropold.backend.exception;
+
+public class ImageProxyException extends RuntimeException {
+    public ImageProxyException(String message) {
+        super(message);
+    }
+}
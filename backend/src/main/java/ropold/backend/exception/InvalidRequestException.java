@@ -0,0 +1,9 @@
+package ropold.backend.exception;
+
+// Ungültige Eingabe vom Client (Suchbegriff, Cursor, Parameter, Upload); wird als 400 mit Meldung beantwortet.
+// Andere IllegalArgumentExceptions sind Programmfehler und landen als 500 im RuntimeException-Handler.
+public class InvalidRequestException extends IllegalArgumentException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
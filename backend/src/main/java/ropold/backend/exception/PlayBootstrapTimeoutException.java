@@ -0,0 +1,7 @@
+package ropold.backend.exception;
+
+public class PlayBootstrapTimeoutException extends RuntimeException {
+    public PlayBootstrapTimeoutException(String message) {
+        super(message);
+    }
+}
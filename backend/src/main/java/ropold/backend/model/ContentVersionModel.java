@@ -0,0 +1,17 @@
+package ropold.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+
+import java.time.Instant;
+
+// expiresAt nur bei Schlüsseln, die zu einem Zeitraum gehören (Tages- und Wochenlisten); der TTL-Index
+// löscht sie wie die Listen selbst, sobald der Zeitraum vorbei ist. Ohne expiresAt bleibt der Schlüssel.
+public record ContentVersionModel(
+        @Id
+        String key,
+        String version,
+        @Indexed(expireAfter = "0s")
+        Instant expiresAt
+) {
+}
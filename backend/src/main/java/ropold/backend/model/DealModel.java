@@ -0,0 +1,13 @@
+package ropold.backend.model;
+
+import java.util.List;
+
+// layout enthält für jede Position auf dem Spielfeld den Index der Karte in memories (jede Karte genau zweimal)
+public record DealModel(
+        int matchId,
+        int numberOfCards,
+        long seed,
+        List<MemoryModel> memories,
+        List<Integer> layout
+) {
+}
@@ -0,0 +1,14 @@
+package ropold.backend.model;
+
+import java.util.Map;
+
+// Ein Bild mit allen Karten eines Decks; tiles bildet die Memory-Id auf ihren Ausschnitt im Atlas ab
+public record DeckAtlasModel(
+        int matchId,
+        String version,
+        String imageUrl,
+        int width,
+        int height,
+        Map<String, DeckAtlasTile> tiles
+) {
+}
@@ -0,0 +1,9 @@
+package ropold.backend.model;
+
+public record DeckAtlasTile(
+        int x,
+        int y,
+        int width,
+        int height
+) {
+}
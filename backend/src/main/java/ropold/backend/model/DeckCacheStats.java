@@ -0,0 +1,10 @@
+package ropold.backend.model;
+
+public record DeckCacheStats(
+        long size,
+        long hitCount,
+        long missCount,
+        double hitRate,
+        long evictionCount
+) {
+}
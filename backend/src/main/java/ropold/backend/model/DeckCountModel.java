@@ -0,0 +1,10 @@
+package ropold.backend.model;
+
+import org.springframework.data.annotation.Id;
+
+public record DeckCountModel(
+        @Id
+        int matchId,
+        long activeCount
+) {
+}
@@ -0,0 +1,24 @@
+package ropold.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+// Bestenliste eines einzelnen Decks (matchId) bei einer Kartenanzahl, sonst wie HighScoreBoardModel.
+// Der eindeutige Index auf (numberOfCards, matchId) ist der Schlüssel der Liste.
+@Document("deck_high_score_boards")
+@CompoundIndexes({
+        @CompoundIndex(name = "numberOfCards_matchId", def = "{'numberOfCards': 1, 'matchId': 1}", unique = true),
+        @CompoundIndex(name = "scores_id", def = "{'scores._id': 1}")
+})
+public record DeckHighScoreBoardModel(
+        @Id
+        String id,
+        int numberOfCards,
+        int matchId,
+        List<HighScoreModel> scores
+) {
+}
@@ -0,0 +1,17 @@
+package ropold.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+// Eine Bestenliste pro Kartenanzahl als ein Dokument: scores ist nach scoreTime sortiert und hat höchstens 10 Einträge
+@Document("high_score_boards")
+@CompoundIndex(name = "scores_id", def = "{'scores._id': 1}")
+public record HighScoreBoardModel(
+        @Id
+        int numberOfCards,
+        List<HighScoreModel> scores
+) {
+}
@@ -0,0 +1,26 @@
+package ropold.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Append-only: jeder abgegebene Score und jede Löschung ist ein Eintrag, daraus wird die Rangliste im Speicher aufgebaut.
+// sequence wird vor dem Insert aus SequenceModel vergeben und ist über alle Instanzen lückenlos aufsteigend,
+// solange kein Insert fehlschlägt.
+@Document("high_score_log")
+public record HighScoreLogModel(
+        @Id
+        String id,
+        @Indexed(unique = true)
+        long sequence,
+        @Indexed
+        String highScoreId,
+        int matchId,
+        int numberOfCards,
+        double scoreTime,
+        boolean removed,
+        Instant createdAt
+) {
+}
@@ -0,0 +1,11 @@
+package ropold.backend.model;
+
+// scoreTime ist null, solange es für die Rangliste noch keine Scores gibt
+public record HighScorePercentileModel(
+        int numberOfCards,
+        Integer matchId,
+        double percentile,
+        Double scoreTime,
+        long total
+) {
+}
@@ -0,0 +1,12 @@
+package ropold.backend.model;
+
+// percentile: Anteil der Scores in Prozent, die langsamer waren
+public record HighScoreRankModel(
+        int numberOfCards,
+        Integer matchId,
+        double scoreTime,
+        long rank,
+        long total,
+        double percentile
+) {
+}
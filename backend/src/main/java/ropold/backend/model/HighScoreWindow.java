@@ -0,0 +1,7 @@
+package ropold.backend.model;
+
+public enum HighScoreWindow {
+    TODAY,
+    WEEK,
+    ALL_TIME
+}
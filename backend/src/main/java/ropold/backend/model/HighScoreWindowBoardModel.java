@@ -0,0 +1,25 @@
+package ropold.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+// Bestenliste einer Kartenanzahl für einen Tag oder eine Woche. Die _id enthält den Zeitraum
+// (z.B. "TODAY:2025-03-05:10"), der TTL-Index löscht die Liste, sobald ihr Zeitraum vorbei ist.
+@Document("high_score_window_boards")
+@CompoundIndex(name = "scores_id", def = "{'scores._id': 1}")
+public record HighScoreWindowBoardModel(
+        @Id
+        String id,
+        HighScoreWindow window,
+        String period,
+        int numberOfCards,
+        List<HighScoreModel> scores,
+        @Indexed(expireAfter = "0s")
+        Instant expiresAt
+) {
+}
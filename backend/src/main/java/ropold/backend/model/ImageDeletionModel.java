@@ -0,0 +1,25 @@
+package ropold.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Outbox-Eintrag für ein zu löschendes Cloudinary-Bild.
+// nextAttemptAt == null heißt: nach zu vielen Fehlversuchen geparkt, wird nicht mehr abgeholt.
+@Document("image_deletions")
+public record ImageDeletionModel(
+        @Id
+        String id,
+        String imageUrl,
+        String publicId,
+        int attempts,
+        @Indexed
+        Instant nextAttemptAt,
+        @Indexed(sparse = true)
+        String claimToken,
+        String lastError,
+        Instant createdAt
+) {
+}
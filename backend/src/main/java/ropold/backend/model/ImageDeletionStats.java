@@ -0,0 +1,12 @@
+package ropold.backend.model;
+
+public record ImageDeletionStats(
+        long pending,
+        long parked,
+        long deletedCount,
+        long retainedCount,
+        long retryCount,
+        long parkedCount,
+        long batchCount
+) {
+}
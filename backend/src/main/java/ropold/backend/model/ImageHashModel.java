@@ -0,0 +1,20 @@
+package ropold.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Index SHA-256 des Bildinhalts -> hochgeladenes Bild. references zählt die Memories bzw. laufenden Uploads,
+// die das Bild verwenden; bei 0 darf der ImageDeletionWorker Eintrag und Bild entfernen.
+@Document("image_hashes")
+public record ImageHashModel(
+        @Id
+        String id,
+        @Indexed
+        String imageUrl,
+        int references,
+        Instant createdAt
+) {
+}
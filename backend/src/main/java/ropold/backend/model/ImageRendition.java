@@ -0,0 +1,8 @@
+package ropold.backend.model;
+
+public record ImageRendition(
+        String url,
+        int width,
+        int height
+) {
+}
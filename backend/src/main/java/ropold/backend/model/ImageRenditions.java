@@ -0,0 +1,9 @@
+package ropold.backend.model;
+
+// Beim Upload erzeugte Fassungen eines Bildes: full (auf die Maximalgröße verkleinert) für die Detailansicht,
+// thumbnail für Kartenraster. Fehlt bei Avataren, direkten Uploads und älteren Memories.
+public record ImageRenditions(
+        ImageRendition full,
+        ImageRendition thumbnail
+) {
+}
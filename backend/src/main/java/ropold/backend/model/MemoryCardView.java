@@ -0,0 +1,22 @@
+package ropold.backend.model;
+
+import java.util.Map;
+
+// Alles, was das Spielfeld braucht
+public record MemoryCardView(
+        String id,
+        int matchId,
+        String imageUrl,
+        Map<String, String> srcset
+) {
+
+    public MemoryCardView {
+        if (srcset == null) {
+            srcset = ResponsiveImages.srcset(imageUrl);
+        }
+    }
+
+    public MemoryCardView(String id, int matchId, String imageUrl) {
+        this(id, matchId, imageUrl, null);
+    }
+}
@@ -1,17 +1,61 @@
 package ropold.backend.model;
 
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.TextIndexed;
+import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.Map;
+
+@CompoundIndexes({
+        @CompoundIndex(name = "isActive_matchId", def = "{'isActive': 1, 'matchId': 1}"),
+        @CompoundIndex(name = "matchId", def = "{'matchId': 1}"),
+        @CompoundIndex(name = "isActive_id", def = "{'isActive': 1, '_id': 1}"),
+        @CompoundIndex(name = "appUserGithubId_id", def = "{'appUserGithubId': 1, '_id': 1}"),
+        @CompoundIndex(name = "imageUrl", def = "{'imageUrl': 1}", sparse = true),
+        @CompoundIndex(name = "renditions_thumbnail_url", def = "{'renditions.thumbnail.url': 1}", sparse = true)
+})
+// language "none": Namen und Beschreibungen sind gemischt deutsch/englisch, daher kein Stemming und keine Stopwörter
+@Document(language = "none")
 public record MemoryModel(
         String id,
+        @TextIndexed(weight = 3)
         String name,
         int matchId,
         Category category,
+        @TextIndexed
         String description,
         boolean isActive,
         String appUserGithubId,
         String appUserUsername,
         String appUserAvatarUrl,
         String appUserGithubUrl,
-        String imageUrl
+        String imageUrl,
+        ImageRenditions renditions,
+        // Wird nicht gespeichert, sondern beim Erzeugen aus imageUrl berechnet
+        @ReadOnlyProperty
+        Map<String, String> srcset
 ) {
+
+    public MemoryModel {
+        if (srcset == null) {
+            srcset = ResponsiveImages.srcset(imageUrl);
+        }
+    }
+
+    public MemoryModel(String id, String name, int matchId, Category category, String description, boolean isActive,
+                       String appUserGithubId, String appUserUsername, String appUserAvatarUrl, String appUserGithubUrl,
+                       String imageUrl, ImageRenditions renditions) {
+        this(id, name, matchId, category, description, isActive, appUserGithubId, appUserUsername, appUserAvatarUrl,
+                appUserGithubUrl, imageUrl, renditions, null);
+    }
+
+    // Memories ohne beim Upload erzeugte Fassungen (Avatare, direkte Uploads)
+    public MemoryModel(String id, String name, int matchId, Category category, String description, boolean isActive,
+                       String appUserGithubId, String appUserUsername, String appUserAvatarUrl, String appUserGithubUrl,
+                       String imageUrl) {
+        this(id, name, matchId, category, description, isActive, appUserGithubId, appUserUsername, appUserAvatarUrl,
+                appUserGithubUrl, imageUrl, null, null);
+    }
 }
@@ -0,0 +1,9 @@
+package ropold.backend.model;
+
+import java.util.List;
+
+public record MemoryPage<T>(
+        List<T> memories,
+        String nextCursor
+) {
+}
@@ -0,0 +1,27 @@
+package ropold.backend.model;
+
+import java.util.Map;
+
+// Für Kartenübersichten, ohne description und die denormalisierten User-Felder
+public record MemorySummaryView(
+        String id,
+        String name,
+        int matchId,
+        Category category,
+        boolean isActive,
+        String imageUrl,
+        ImageRenditions renditions,
+        Map<String, String> srcset
+) {
+
+    public MemorySummaryView {
+        if (srcset == null) {
+            srcset = ResponsiveImages.srcset(imageUrl);
+        }
+    }
+
+    public MemorySummaryView(String id, String name, int matchId, Category category, boolean isActive,
+                             String imageUrl, ImageRenditions renditions) {
+        this(id, name, matchId, category, isActive, imageUrl, renditions, null);
+    }
+}
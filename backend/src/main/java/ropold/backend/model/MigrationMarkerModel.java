@@ -0,0 +1,13 @@
+package ropold.backend.model;
+
+import org.springframework.data.annotation.Id;
+
+import java.time.Instant;
+
+// Einmalige Schritte beim Start: wer das Dokument anlegen kann, führt den Schritt aus, alle anderen scheitern am _id
+public record MigrationMarkerModel(
+        @Id
+        String id,
+        Instant createdAt
+) {
+}
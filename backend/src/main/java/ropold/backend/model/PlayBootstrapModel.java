@@ -0,0 +1,14 @@
+package ropold.backend.model;
+
+import java.util.List;
+import java.util.Map;
+
+// Alles, was Spielseite und Bestenliste beim Laden brauchen, in einer Antwort.
+// highScores enthält die Allzeit-Bestenlisten je Kartenanzahl (10, 20, 32).
+public record PlayBootstrapModel(
+        List<DeckCountModel> matchIds,
+        Integer matchId,
+        List<MemoryModel> deck,
+        Map<Integer, List<HighScoreModel>> highScores
+) {
+}
@@ -0,0 +1,98 @@
+package ropold.backend.model;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// srcset-Varianten pro Darstellungsgröße, abgeleitet aus der Bild-URL: bei Cloudinary per Transformation
+// (Breite begrenzen, q_auto, f_auto), bei GitHub-Avataren per ?s=. Andere Bilder haben keine Varianten.
+public final class ResponsiveImages {
+
+    // CSS-Breite in Pixeln, geliefert wird jeweils 1x und 2x
+    public static final Map<String, Integer> PRESETS = presets();
+
+    // Größer liefert GitHub Avatare nicht aus
+    private static final int GITHUB_MAX_SIZE = 460;
+    private static final Pattern CLOUDINARY_VERSIONED_UPLOAD = Pattern.compile("/image/upload/v\\d+/");
+
+    private ResponsiveImages() {
+    }
+
+    public static Map<String, String> srcset(String imageUrl) {
+        return srcset(imageUrl, UnaryOperator.identity());
+    }
+
+    // urlMapper bekommt jede Varianten-URL, z.B. um sie über den Image-Proxy auszuliefern
+    public static Map<String, String> srcset(String imageUrl, UnaryOperator<String> urlMapper) {
+        IntFunction<String> variant = variants(imageUrl);
+        if (variant == null) {
+            return Map.of();
+        }
+        int maxWidth = isGithubAvatar(imageUrl) ? GITHUB_MAX_SIZE : Integer.MAX_VALUE;
+
+        Map<String, String> srcset = new LinkedHashMap<>();
+        PRESETS.forEach((preset, width) -> srcset.put(preset, IntStream.of(width, width * 2)
+                .map(candidate -> Math.min(candidate, maxWidth))
+                .distinct()
+                .mapToObj(candidate -> urlMapper.apply(variant.apply(candidate)) + " " + candidate + "w")
+                .collect(Collectors.joining(", "))));
+        return Collections.unmodifiableMap(srcset);
+    }
+
+    private static IntFunction<String> variants(String imageUrl) {
+        String host = host(imageUrl);
+        if ("res.cloudinary.com".equals(host)) {
+            // Nur unveränderte Upload-URLs (secure_url); vorhandene Transformationen würden sonst falsch verkettet
+            var matcher = CLOUDINARY_VERSIONED_UPLOAD.matcher(imageUrl);
+            if (!matcher.find()) {
+                return null;
+            }
+            int insertAt = matcher.start() + "/image/upload/".length();
+            return width -> imageUrl.substring(0, insertAt) + "c_limit,w_" + width + ",q_auto,f_auto/" + imageUrl.substring(insertAt);
+        }
+        if (isGithubAvatar(imageUrl)) {
+            return width -> withSize(imageUrl, width);
+        }
+        return null;
+    }
+
+    private static boolean isGithubAvatar(String imageUrl) {
+        return "avatars.githubusercontent.com".equals(host(imageUrl));
+    }
+
+    private static String withSize(String imageUrl, int size) {
+        int queryStart = imageUrl.indexOf('?');
+        if (queryStart < 0) {
+            return imageUrl + "?s=" + size;
+        }
+        String query = imageUrl.substring(queryStart + 1);
+        String withoutSize = Pattern.compile("(^|&)s=[^&]*").matcher(query).replaceAll("").replaceFirst("^&", "");
+        return imageUrl.substring(0, queryStart) + "?" + (withoutSize.isEmpty() ? "" : withoutSize + "&") + "s=" + size;
+    }
+
+    private static String host(String imageUrl) {
+        if (imageUrl == null) {
+            return null;
+        }
+        try {
+            return new URI(imageUrl).getHost();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, Integer> presets() {
+        Map<String, Integer> presets = new LinkedHashMap<>();
+        presets.put("board", 200);
+        presets.put("grid", 320);
+        presets.put("detail", 800);
+        return Collections.unmodifiableMap(presets);
+    }
+}
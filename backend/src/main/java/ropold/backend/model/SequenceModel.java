@@ -0,0 +1,11 @@
+package ropold.backend.model;
+
+import org.springframework.data.annotation.Id;
+
+// Zähler, die per $inc monoton hochgezählt werden
+public record SequenceModel(
+        @Id
+        String id,
+        long value
+) {
+}
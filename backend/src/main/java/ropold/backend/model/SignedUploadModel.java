@@ -0,0 +1,15 @@
+package ropold.backend.model;
+
+import java.time.Instant;
+
+// Parameter für einen direkten, signierten Upload vom Browser zu Cloudinary
+public record SignedUploadModel(
+        String uploadUrl,
+        String apiKey,
+        long timestamp,
+        String folder,
+        String allowedFormats,
+        String signature,
+        Instant expiresAt
+) {
+}
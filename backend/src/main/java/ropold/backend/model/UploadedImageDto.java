@@ -0,0 +1,16 @@
+package ropold.backend.model;
+
+import jakarta.validation.constraints.NotBlank;
+
+// Felder aus der Upload-Antwort von Cloudinary, die der Browser nach einem signierten Upload mitschickt
+public record UploadedImageDto(
+        @NotBlank
+        String publicId,
+        @NotBlank
+        String version,
+        @NotBlank
+        String signature,
+        @NotBlank
+        String format
+) {
+}
@@ -1,9 +1,37 @@
 package ropold.backend.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 import ropold.backend.model.MemoryModel;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface MemoryRepository extends MongoRepository<MemoryModel, String> {
+
+    List<MemoryModel> findAllByIsActiveTrue();
+
+    List<MemoryModel> findAllByIsActiveTrueAndMatchId(int matchId);
+
+    List<MemoryModel> findAllByMatchId(int matchId);
+
+    List<MemoryModel> findAllByAppUserGithubId(String appUserGithubId);
+
+    // Projektion auf eine View-Klasse: Mongo liest und überträgt nur deren Felder
+    <T> List<T> findAllBy(Class<T> type);
+
+    <T> List<T> findAllByIsActiveTrue(Class<T> type);
+
+    // Keyset-Pagination: immer nach _id sortiert und ab dem letzten gelieferten _id weitergelesen (kein skip)
+    <T> List<T> findAllByIdGreaterThanOrderByIdAsc(String after, Limit limit, Class<T> type);
+
+    <T> List<T> findAllByIsActiveTrueAndIdGreaterThanOrderByIdAsc(String after, Limit limit, Class<T> type);
+
+    <T> List<T> findAllByAppUserGithubIdAndIdGreaterThanOrderByIdAsc(String appUserGithubId, String after, Limit limit, Class<T> type);
+
+    // Welche dieser Bilder noch von einer Memory verwendet werden, als Bild oder als Thumbnail
+    // (gleicher Inhalt = gleiche URL bei lokaler Ablage)
+    <T> List<T> findAllByImageUrlInOrRenditionsThumbnailUrlIn(Collection<String> imageUrls, Collection<String> thumbnailUrls, Class<T> type);
 }
@@ -32,6 +32,8 @@ public class SecurityConfig {
     private final AppUserRepository appUserRepository;
 
     private static final String MEMORY_HUB_PATH = "/api/memory-hub/**";
+    // Interne Betriebszähler, nicht öffentlich wie die übrigen GETs
+    private static final String[] STATS_PATHS = {"/api/memory-hub/cache/stats", "/api/memory-hub/image-deletions/stats"};
 
 
     @Bean
@@ -40,6 +42,7 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
 
                 .authorizeHttpRequests(a -> a
+                        .requestMatchers(HttpMethod.GET, STATS_PATHS).authenticated()
                         .requestMatchers(HttpMethod.GET, MEMORY_HUB_PATH).permitAll()
                         .requestMatchers(HttpMethod.POST, MEMORY_HUB_PATH).authenticated()
                         .requestMatchers(HttpMethod.PUT, MEMORY_HUB_PATH).authenticated()
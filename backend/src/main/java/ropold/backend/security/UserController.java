@@ -1,13 +1,16 @@
 package ropold.backend.security;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import ropold.backend.controller.MemoryController;
 import ropold.backend.model.MemoryModel;
 import ropold.backend.service.MemoryService;
 
@@ -35,8 +38,14 @@ public class UserController {
     }
 
     @GetMapping("/me/my-memories/{githubId}")
-    public List<MemoryModel> getMemoriesForGithubUser(@PathVariable String githubId) {
-        return memoryService.getMemoriesForGithubUser(githubId);
+    public ResponseEntity<List<MemoryModel>> getMemoriesForGithubUser(
+            @PathVariable String githubId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
+        if (limit == null) {
+            return ResponseEntity.ok(memoryService.getMemoriesForGithubUser(githubId));
+        }
+        return MemoryController.pageResponse(memoryService.getMemoriesForGithubUserPage(githubId, limit, after));
     }
 
 }
@@ -1,17 +1,26 @@
 package ropold.backend.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import ropold.backend.model.AppUser;
 import ropold.backend.repository.AppUserRepository;
 
 import java.util.List;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
 @Service
 @RequiredArgsConstructor
 public class AppUserService {
 
+    private static final String FAVORITES = "favorites";
+
     private final AppUserRepository appUserRepository;
+    private final MongoTemplate mongoTemplate;
 
     public AppUser getUserById(String userId) {
         return appUserRepository.findById(userId)
@@ -23,21 +32,25 @@ public class AppUserService {
         return user.favorites();
     }
 
-    public void addMemoryToFavorites(String userId, String memoryId) {
-        AppUser user = getUserById(userId);
-
-        if (!user.favorites().contains(memoryId)) {
-            user.favorites().add(memoryId);
-            appUserRepository.save(user);
-        }
+    // $addToSet/$pull direkt in Mongo: kein Laden und Zurückschreiben des ganzen Users,
+    // parallele Änderungen an den Favoriten gehen nicht verloren
+    public AppUser addMemoryToFavorites(String userId, String memoryId) {
+        return updateFavorites(userId, new Update().addToSet(FAVORITES, memoryId));
     }
 
-    public void removeMemoryFromFavorites(String userId, String memoryId) {
-        AppUser user = getUserById(userId);
+    public AppUser removeMemoryFromFavorites(String userId, String memoryId) {
+        return updateFavorites(userId, new Update().pull(FAVORITES, memoryId));
+    }
 
-        if (user.favorites().contains(memoryId)) {
-            user.favorites().remove(memoryId);
-            appUserRepository.save(user);
+    private AppUser updateFavorites(String userId, Update update) {
+        AppUser user = mongoTemplate.findAndModify(
+                query(where("_id").is(userId)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                AppUser.class);
+        if (user == null) {
+            throw new RuntimeException("User not found");
         }
+        return user;
     }
 }
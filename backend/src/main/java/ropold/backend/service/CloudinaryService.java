@@ -1,43 +1,157 @@
 package ropold.backend.service;
 
 import com.cloudinary.Cloudinary;
+import com.cloudinary.api.ApiResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import ropold.backend.exception.AccessDeniedException;
 import ropold.backend.exception.ImageDeletionException;
+import ropold.backend.exception.InvalidRequestException;
+import ropold.backend.model.ImageFormat;
+import ropold.backend.model.SignedUploadModel;
+import ropold.backend.model.UploadedImageDto;
 
-import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
+@ConditionalOnProperty(name = "memoryhub.image-storage", havingValue = "cloudinary", matchIfMissing = true)
 @RequiredArgsConstructor
-public class CloudinaryService {
+public class CloudinaryService implements ImageStorage {
+
+    public static final String UPLOAD_FOLDER = "memory-hub";
+
+    // Cloudinary akzeptiert eine Upload-Signatur nur eine Stunde ab ihrem timestamp
+    private static final Duration SIGNATURE_LIFETIME = Duration.ofHours(1);
+    private static final String ALLOWED_FORMATS = Arrays.stream(ImageFormat.values())
+            .map(ImageFormat::extension)
+            .collect(Collectors.joining(","));
 
     private final Cloudinary cloudinary;
+    private final ImageHashIndex imageHashIndex;
+
+    // Kein Temp-File mehr: der Upload geht als byte[] direkt an Cloudinary. Die Größe ist durch
+    // spring.servlet.multipart.max-file-size begrenzt, Nicht-Bilder werden vor dem Upload abgelehnt.
+    // Gleicher Inhalt wird nur einmal hochgeladen, weitere Uploads bekommen die vorhandene URL.
+    @Override
+    public String uploadImage(byte[] bytes) throws IOException {
+        String hash = ImageStorage.sha256(bytes);
 
-    public String uploadImage(MultipartFile image) throws IOException {
-        File fileToUpload = File.createTempFile("practice-hub", "");
-        image.transferTo(fileToUpload);
+        Optional<String> existing = imageHashIndex.acquire(hash);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        Map uploadResult = cloudinary.uploader().upload(bytes, Collections.emptyMap());
+        String imageUrl = uploadResult.get("secure_url").toString();
 
-        Map uploadResult = cloudinary.uploader().upload(fileToUpload, Collections.emptyMap());
-        return uploadResult.get("secure_url").toString();
+        Optional<String> concurrent = imageHashIndex.register(hash, imageUrl);
+        if (concurrent.isPresent()) {
+            // Derselbe Inhalt wurde gleichzeitig hochgeladen; die eigene Kopie wird nicht gebraucht
+            destroyQuietly(extractPublicIdFromUrl(imageUrl));
+            return concurrent.get();
+        }
+        return imageUrl;
     }
 
-    private String extractPublicIdFromUrl(String url) {
-        String[] parts = url.split("/");
-        String publicId = parts[parts.length - 1].split("\\.")[0]; // extrahiere v1614149342/sample
-        return publicId;
+    // Signierte Parameter für einen Upload direkt aus dem Browser. Der Ordner ist Teil der Signatur,
+    // der Browser kann also nur in den Ordner des angemeldeten Users hochladen.
+    @Override
+    public SignedUploadModel signUpload(String githubId) {
+        long timestamp = Instant.now().getEpochSecond();
+        String folder = uploadFolder(githubId);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("timestamp", timestamp);
+        params.put("folder", folder);
+        params.put("allowed_formats", ALLOWED_FORMATS);
+
+        return new SignedUploadModel(
+                cloudinary.cloudinaryApiUrl("upload", Map.of("resource_type", "image")),
+                cloudinary.config.apiKey,
+                timestamp,
+                folder,
+                ALLOWED_FORMATS,
+                cloudinary.apiSignRequest(params, cloudinary.config.apiSecret),
+                Instant.ofEpochSecond(timestamp).plus(SIGNATURE_LIFETIME)
+        );
     }
 
-    public void deleteImage(String imageUrl) {
-        String publicId = extractPublicIdFromUrl(imageUrl);
+    // Prüft die Signatur der Cloudinary-Upload-Antwort (public_id + version) und liefert die Bild-URL
+    @Override
+    public String verifyUploadedImage(String githubId, UploadedImageDto uploadedImage) {
+        if (!uploadedImage.publicId().startsWith(uploadFolder(githubId) + "/")) {
+            throw new AccessDeniedException("You are not allowed to use images uploaded by other users");
+        }
+        if (!cloudinary.verifyApiResponseSignature(uploadedImage.publicId(), uploadedImage.version(), uploadedImage.signature())) {
+            throw new InvalidRequestException("Invalid upload signature for image: " + uploadedImage.publicId());
+        }
+        boolean allowedFormat = Arrays.stream(ImageFormat.values())
+                .anyMatch(format -> format.extension().equals(uploadedImage.format()));
+        if (!allowedFormat) {
+            throw new InvalidRequestException("Unsupported image format: " + uploadedImage.format());
+        }
 
+        return cloudinary.url()
+                .secure(true)
+                .resourceType("image")
+                .version(uploadedImage.version())
+                .format(uploadedImage.format())
+                .generate(uploadedImage.publicId());
+    }
+
+    private static String uploadFolder(String githubId) {
+        return UPLOAD_FOLDER + "/" + githubId;
+    }
+
+    // https://res.cloudinary.com/<cloud>/image/upload/v1614149342/memory-hub/123/sample.jpg -> memory-hub/123/sample
+    @Override
+    public String extractPublicIdFromUrl(String url) {
+        int upload = url.indexOf("/upload/");
+        String path = upload >= 0 ? url.substring(upload + "/upload/".length()) : url.substring(url.lastIndexOf('/') + 1);
+        path = path.replaceFirst("^v\\d+/", "");
+        int extension = path.lastIndexOf('.');
+        return extension > path.lastIndexOf('/') ? path.substring(0, extension) : path;
+    }
+
+    private void destroyQuietly(String publicId) {
         try {
             cloudinary.uploader().destroy(publicId, Collections.emptyMap());
         } catch (IOException e) {
-            throw new ImageDeletionException("Error deleting image from Cloudinary: " + publicId);
+            // verwaistes Bild ohne Referenz, kostet nur Speicher
+        }
+    }
+
+    // Löscht mehrere Bilder mit einem Aufruf und liefert die public_ids, die danach sicher weg sind
+    // ("deleted" oder "not_found"); alle anderen muss der Aufrufer erneut versuchen.
+    @Override
+    public Set<String> deleteImages(List<String> publicIds) {
+        ApiResponse response;
+        try {
+            response = cloudinary.api().deleteResources(publicIds, Collections.emptyMap());
+        } catch (Exception e) {
+            throw new ImageDeletionException("Error deleting images from Cloudinary: " + publicIds);
+        }
+
+        Set<String> done = new HashSet<>();
+        if (response != null && response.get("deleted") instanceof Map<?, ?> deleted) {
+            deleted.forEach((publicId, status) -> {
+                if ("deleted".equals(status) || "not_found".equals(status)) {
+                    done.add(publicId.toString());
+                }
+            });
         }
+        return done;
     }
 }
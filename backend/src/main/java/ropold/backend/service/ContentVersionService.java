@@ -0,0 +1,109 @@
+package ropold.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import ropold.backend.model.ContentVersionModel;
+import ropold.backend.model.HighScoreWindow;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+// Versionsstempel pro Katalog, Deck und Bestenliste für ETags.
+// Jede Änderung setzt einen neuen, nie wiederkehrenden Wert (ObjectId), daher
+// stimmen ETags auch über Neustarts und mehrere Instanzen hinweg.
+// Gelesene Versionen werden kurz im Speicher gehalten, damit Cache-Treffer (Deck-Cache, ETags) ohne
+// Mongo-Abfrage auskommen. Eigene Änderungen sind sofort sichtbar, die anderer Instanzen nach höchstens ttl.
+// Schlüssel der Tages- und Wochenlisten tragen ein expiresAt und verschwinden per TTL-Index mit ihrem Zeitraum.
+@Service
+public class ContentVersionService {
+
+    public static final String CATALOG = "catalog";
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, String> versions;
+
+    public ContentVersionService(MongoTemplate mongoTemplate,
+                                 @Value("${memoryhub.content-version.maximum-size:10000}") long maximumSize,
+                                 @Value("${memoryhub.content-version.ttl:2s}") Duration ttl) {
+        this.mongoTemplate = mongoTemplate;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public static String deck(int matchId) {
+        return "deck-" + matchId;
+    }
+
+    public static String highScores(int numberOfCards) {
+        return "high-score-" + numberOfCards;
+    }
+
+    public static String highScores(int numberOfCards, int matchId) {
+        return "high-score-" + numberOfCards + "-" + matchId;
+    }
+
+    public static String highScores(int numberOfCards, HighScoreWindow window, String period) {
+        return "high-score-" + numberOfCards + "-" + window.name().toLowerCase(Locale.ROOT) + "-" + period;
+    }
+
+    public String getVersion(String key) {
+        return getVersion(key, null);
+    }
+
+    // expiresAt: wann der Schlüssel gelöscht werden darf, falls er hier angelegt wird (null = nie)
+    public String getVersion(String key, Instant expiresAt) {
+        return versions.get(key, ignored -> loadVersion(key, expiresAt));
+    }
+
+    // Normalfall ist ein reiner Lesezugriff; nur ein noch unbekannter Schlüssel wird per Upsert angelegt
+    private String loadVersion(String key, Instant expiresAt) {
+        ContentVersionModel existing = mongoTemplate.findById(key, ContentVersionModel.class);
+        if (existing != null) {
+            return existing.version();
+        }
+        Update create = new Update().setOnInsert("version", newVersion());
+        if (expiresAt != null) {
+            create.setOnInsert("expiresAt", expiresAt);
+        }
+        ContentVersionModel contentVersion = mongoTemplate.findAndModify(
+                new Query(where("_id").is(key)),
+                create,
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                ContentVersionModel.class);
+        return contentVersion.version();
+    }
+
+    public void bump(String key) {
+        bump(key, null);
+    }
+
+    public void bump(String key, Instant expiresAt) {
+        Update update = new Update().set("version", newVersion());
+        if (expiresAt != null) {
+            update.set("expiresAt", expiresAt);
+        }
+        mongoTemplate.upsert(
+                new Query(where("_id").is(key)),
+                update,
+                ContentVersionModel.class);
+        // Erst nach dem Schreiben verwerfen: ein gleichzeitig laufendes Laden der alten Version wird
+        // von Caffeine abgewartet und danach mit entfernt
+        versions.invalidate(key);
+    }
+
+    private static String newVersion() {
+        return new ObjectId().toHexString();
+    }
+}
@@ -0,0 +1,273 @@
+package ropold.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ropold.backend.model.DeckAtlasModel;
+import ropold.backend.model.DeckAtlasTile;
+import ropold.backend.model.MemoryModel;
+import ropold.backend.repository.MemoryRepository;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Setzt alle aktiven Kartenbilder einer matchId zu einem Atlas-Bild zusammen, damit das Spielfeld mit einem
+// einzigen Bild-Request auskommt. Gebaut wird im Hintergrund auf einem eigenen Thread: beim ersten Abruf
+// und nach jeder Deck-Änderung. Solange kein aktueller Atlas da ist, lädt der Client die Einzelbilder.
+// Jeder Atlas merkt sich die Deck-Version, aus der er gebaut wurde; weicht sie ab (z.B. weil eine andere
+// Instanz das Deck geändert hat), wird beim nächsten Abruf neu gebaut.
+// Der Dateiname ist der SHA-256 des Inhalts, daher darf das Bild unbegrenzt gecacht werden. Abgelöste
+// Dateien bleiben noch eine Weile liegen, damit Clients mit der alten Koordinaten-Map das Bild noch laden können.
+// Atlanten liegen pro Instanz auf der Platte und werden nach einem Neustart neu gebaut.
+// Karten, deren Bild gar nicht geladen werden darf, fehlen in der Koordinaten-Map und werden einzeln geladen.
+// Schlägt ein Bau fehl (z.B. Bild-Host nicht erreichbar), wird er für dieses Deck erst nach failureBackoff
+// oder nach der nächsten Änderung erneut versucht, statt bei jedem Abruf das ganze Deck neu zu laden.
+@Service
+public class DeckAtlasService {
+
+    private static final Pattern ATLAS_NAME = Pattern.compile("[0-9a-f]{64}\\.jpg");
+
+    private final MemoryRepository memoryRepository;
+    private final ImageProxyService imageProxyService;
+    private final ImageProcessingService imageProcessingService;
+    private final ContentVersionService contentVersionService;
+    private final ObjectProvider<LocalImageStorage> localImageStorage;
+    private final Path directory;
+    private final String baseUrl;
+    private final int tileSize;
+    private final Duration supersededRetention;
+    private final Duration failureBackoff;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<Integer, DeckAtlas> atlases = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> generations = new ConcurrentHashMap<>();
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Instant> failedUntil = new ConcurrentHashMap<>();
+
+    record DeckAtlas(DeckAtlasModel model, Path file, String deckVersion) {
+    }
+
+    public DeckAtlasService(MemoryRepository memoryRepository,
+                            ImageProxyService imageProxyService,
+                            ImageProcessingService imageProcessingService,
+                            ContentVersionService contentVersionService,
+                            ObjectProvider<LocalImageStorage> localImageStorage,
+                            @Value("${memoryhub.deck-atlas.directory:./data/deck-atlas}") Path directory,
+                            @Value("${memoryhub.deck-atlas.base-url:/api/deck-atlas/images}") String baseUrl,
+                            @Value("${memoryhub.deck-atlas.tile-size:256}") int tileSize,
+                            @Value("${memoryhub.deck-atlas.superseded-retention:10m}") Duration supersededRetention,
+                            @Value("${memoryhub.deck-atlas.failure-backoff:1m}") Duration failureBackoff) throws IOException {
+        this.memoryRepository = memoryRepository;
+        this.imageProxyService = imageProxyService;
+        this.imageProcessingService = imageProcessingService;
+        this.contentVersionService = contentVersionService;
+        this.localImageStorage = localImageStorage;
+        this.directory = Files.createDirectories(directory.toAbsolutePath().normalize());
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.tileSize = tileSize;
+        this.supersededRetention = supersededRetention;
+        this.failureBackoff = failureBackoff;
+        deleteExistingFiles();
+    }
+
+    // Leer, solange der Atlas (neu) gebaut wird; der Bau wird dabei angestoßen
+    public Optional<DeckAtlasModel> getAtlas(int matchId) {
+        DeckAtlas atlas = atlases.get(matchId);
+        if (atlas == null || !atlas.deckVersion().equals(contentVersionService.getVersion(ContentVersionService.deck(matchId)))) {
+            requestBuild(matchId);
+            return Optional.empty();
+        }
+        return Optional.of(atlas.model());
+    }
+
+    // Liefert die Datei zu einem Atlas-Namen, falls vorhanden; andere Namen (z.B. "../") werden nie aufgelöst
+    public Optional<Path> resolve(String name) {
+        if (!ATLAS_NAME.matcher(name).matches()) {
+            return Optional.empty();
+        }
+        Path file = directory.resolve(name);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    // Wird von MemoryService bei jeder Änderung eines Decks aufgerufen. Ein gerade laufender Bau
+    // sieht eventuell noch den alten Stand und wird daher über die Generation verworfen.
+    // Andere Instanzen bemerken die Änderung über die Deck-Version in getAtlas.
+    public void deckChanged(int matchId) {
+        generations.merge(matchId, 1L, Long::sum);
+        DeckAtlas stale = atlases.remove(matchId);
+        if (stale != null) {
+            deleteLater(stale.file());
+        }
+        failedUntil.remove(matchId);
+        requestBuild(matchId);
+    }
+
+    private void requestBuild(int matchId) {
+        Instant retryAt = failedUntil.get(matchId);
+        if (retryAt != null && Instant.now().isBefore(retryAt)) {
+            return;
+        }
+        if (!pending.add(matchId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> build(matchId));
+        } catch (RejectedExecutionException e) {
+            pending.remove(matchId);
+        }
+    }
+
+    private void build(int matchId) {
+        pending.remove(matchId);
+        long generation = generations.getOrDefault(matchId, 0L);
+        DeckAtlas built;
+        try {
+            built = buildNow(matchId);
+        } catch (IOException | RuntimeException e) {
+            // z.B. ein Bild-Host ist nicht erreichbar: erst nach failureBackoff wieder versuchen
+            failedUntil.put(matchId, Instant.now().plus(failureBackoff));
+            return;
+        }
+        failedUntil.remove(matchId);
+        if (built == null) {
+            return;
+        }
+        atlases.compute(matchId, (key, previous) -> {
+            if (generations.getOrDefault(matchId, 0L) != generation) {
+                // Gleicher Inhalt ergibt dieselbe Datei, sie kann also auch zu previous gehören
+                deleteLater(built.file());
+                return previous;
+            }
+            if (previous != null && !previous.file().equals(built.file())) {
+                deleteLater(previous.file());
+            }
+            return built;
+        });
+    }
+
+    DeckAtlas buildNow(int matchId) throws IOException {
+        // Version vor dem Laden lesen: ändert sich das Deck währenddessen, gilt der Atlas sofort als veraltet
+        String deckVersion = contentVersionService.getVersion(ContentVersionService.deck(matchId));
+        // Karten ohne ladbare Bild-URL (fehlt oder nicht freigegeben) kommen nicht in den Atlas, der Client
+        // lädt sie einzeln; sonst bekäme das ganze Deck nie einen Atlas
+        List<MemoryModel> deck = memoryRepository.findAllByIsActiveTrueAndMatchId(matchId).stream()
+                .filter(memory -> canLoad(memory.imageUrl()))
+                .sorted(Comparator.comparing(MemoryModel::id))
+                .toList();
+        if (deck.isEmpty()) {
+            return null;
+        }
+
+        int columns = (int) Math.ceil(Math.sqrt(deck.size()));
+        int rows = (deck.size() + columns - 1) / columns;
+        BufferedImage atlas = new BufferedImage(columns * tileSize, rows * tileSize, BufferedImage.TYPE_INT_RGB);
+        Map<String, DeckAtlasTile> tiles = new LinkedHashMap<>();
+        Graphics2D graphics = atlas.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, atlas.getWidth(), atlas.getHeight());
+            for (int i = 0; i < deck.size(); i++) {
+                MemoryModel memory = deck.get(i);
+                BufferedImage image = imageProcessingService.decodeUpright(readImage(memory.imageUrl()));
+                if (image == null) {
+                    throw new IOException("Image can not be decoded: " + memory.imageUrl());
+                }
+                DeckAtlasTile tile = new DeckAtlasTile((i % columns) * tileSize, (i / columns) * tileSize, tileSize, tileSize);
+                graphics.drawImage(cover(image), tile.x(), tile.y(), tile.width(), tile.height(), null);
+                tiles.put(memory.id(), tile);
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        byte[] bytes = imageProcessingService.encodeJpeg(atlas);
+        String version = ImageStorage.sha256(bytes);
+        Path file = directory.resolve(version + ".jpg");
+        if (!Files.exists(file)) {
+            Path temp = Files.createTempFile(directory, version, ".tmp");
+            try {
+                Files.write(temp, bytes);
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        DeckAtlasModel model = new DeckAtlasModel(matchId, version, baseUrl + "/" + file.getFileName(),
+                atlas.getWidth(), atlas.getHeight(), Map.copyOf(tiles));
+        return new DeckAtlas(model, file, deckVersion);
+    }
+
+    // Quadratischer Ausschnitt aus der Mitte, auf Kachelgröße verkleinert (wie object-fit: cover)
+    private BufferedImage cover(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        BufferedImage square = image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+        return ImageProcessingService.fit(square, tileSize);
+    }
+
+    private boolean canLoad(String imageUrl) {
+        LocalImageStorage localStorage = localImageStorage.getIfAvailable();
+        return imageUrl != null && (localStorage != null && localStorage.resolveUrl(imageUrl).isPresent()
+                || imageProxyService.isProxyable(imageUrl));
+    }
+
+    private byte[] readImage(String imageUrl) throws IOException {
+        LocalImageStorage localStorage = localImageStorage.getIfAvailable();
+        Optional<Path> localFile = localStorage == null ? Optional.empty() : localStorage.resolveUrl(imageUrl);
+        if (localFile.isPresent()) {
+            return Files.readAllBytes(localFile.get());
+        }
+        return Files.readAllBytes(imageProxyService.getImageByUrl(imageUrl).file());
+    }
+
+    // Ohne die Kachel-Koordinaten sind alte Atlanten nutzlos
+    private void deleteExistingFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    // Dieselbe Datei kann inzwischen wieder zu einem aktuellen Atlas gehören (gleicher Inhalt = gleicher Name)
+    private void deleteLater(Path file) {
+        CompletableFuture.runAsync(() -> {
+            if (atlases.values().stream().noneMatch(atlas -> atlas.file().equals(file))) {
+                deleteQuietly(file);
+            }
+        }, CompletableFuture.delayedExecutor(supersededRetention.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // wird beim nächsten Start aufgeräumt
+        }
+    }
+}
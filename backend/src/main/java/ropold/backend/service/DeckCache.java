@@ -0,0 +1,66 @@
+package ropold.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ropold.backend.model.DeckCacheStats;
+import ropold.backend.model.MemoryModel;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+// Read-through Cache der aktiven Karten pro matchId. Jeder Eintrag gehört zu der Deck-Version aus
+// ContentVersionService, mit der er geladen wurde; hat eine andere Instanz das Deck geändert, passt die
+// Version nicht mehr und das Deck wird neu geladen. Die TTL begrenzt nur noch den Speicher.
+// ContentVersionService hält die Versionen selbst kurz im Speicher, ein Treffer fragt Mongo also nicht ab.
+@Service
+public class DeckCache {
+
+    private record VersionedDeck(String version, List<MemoryModel> deck) {
+    }
+
+    private final Cache<Integer, VersionedDeck> cache;
+
+    public DeckCache(@Value("${memoryhub.deck-cache.maximum-size:500}") long maximumSize,
+                     @Value("${memoryhub.deck-cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    // Gleichzeitige Misses für dieselbe matchId laden nur einmal aus Mongo. Die Version muss vor dem Laden
+    // gelesen sein, dann ist das geladene Deck mindestens so neu wie die Version, unter der es abgelegt wird.
+    public List<MemoryModel> getActiveDeck(int matchId, String version, IntFunction<List<MemoryModel>> loader) {
+        VersionedDeck cached = cache.get(matchId, key -> new VersionedDeck(version, List.copyOf(loader.apply(key))));
+        if (Objects.equals(cached.version(), version)) {
+            return cached.deck();
+        }
+        return cache.asMap().compute(matchId, (key, current) -> current != null && Objects.equals(current.version(), version)
+                ? current
+                : new VersionedDeck(version, List.copyOf(loader.apply(key)))).deck();
+    }
+
+    public void evict(int matchId) {
+        cache.invalidate(matchId);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public DeckCacheStats getStats() {
+        CacheStats stats = cache.stats();
+        return new DeckCacheStats(
+                cache.estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount());
+    }
+}
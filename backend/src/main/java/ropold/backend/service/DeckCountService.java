@@ -0,0 +1,83 @@
+package ropold.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import ropold.backend.model.DeckCountModel;
+import ropold.backend.model.MemoryModel;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Service
+@RequiredArgsConstructor
+public class DeckCountService implements SmartInitializingSingleton {
+
+    private final MongoTemplate mongoTemplate;
+
+    // Ein Dokument pro Deck, daher kostet das Lesen O(Anzahl Decks) statt O(Anzahl Karten)
+    public List<DeckCountModel> getActiveDeckCounts() {
+        Query query = new Query(where("activeCount").gt(0)).with(Sort.by(Sort.Direction.ASC, "_id"));
+        return mongoTemplate.find(query, DeckCountModel.class);
+    }
+
+    // Wird von jeder schreibenden Methode in MemoryService mit dem Zustand vor und nach der Änderung aufgerufen
+    public void memoryChanged(MemoryModel before, MemoryModel after) {
+        if (before != null && before.isActive()) {
+            incrementActiveCount(before.matchId(), -1);
+        }
+        if (after != null && after.isActive()) {
+            incrementActiveCount(after.matchId(), 1);
+        }
+    }
+
+    private void incrementActiveCount(int matchId, int delta) {
+        mongoTemplate.upsert(
+                new Query(where("_id").is(matchId)),
+                new Update().inc("activeCount", delta),
+                DeckCountModel.class);
+    }
+
+    // Läuft nach dem Anlegen aller Beans, aber bevor der Webserver startet: zwischen Aggregation und
+    // Schreiben kann so kein $inc aus einem Request dieser Instanz landen und vom Neuaufbau überschrieben werden.
+    // Das gilt nur bei einer Instanz: startet eine Instanz neu, während andere Requests bedienen, kann deren $inc
+    // zwischen Aggregation und Upsert verloren gehen. Der Zähler bleibt dann bis zum nächsten Neuaufbau daneben.
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuildDeckCounts();
+    }
+
+    // Baut die Zähler aus der Memory-Collection neu auf ($group über den isActive/matchId-Index).
+    // Jeder Zähler wird einzeln per Upsert gesetzt statt die Collection zu leeren, so fehlt gleichzeitigen
+    // $inc nie das Dokument; Decks ohne aktive Karten gehen auf 0 und fallen beim Lesen heraus.
+    public void rebuildDeckCounts() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                match(where("isActive").is(true)),
+                group("matchId").count().as("activeCount"),
+                sort(Sort.Direction.ASC, "_id"));
+        List<DeckCountModel> deckCounts = mongoTemplate
+                .aggregate(aggregation, MemoryModel.class, DeckCountModel.class)
+                .getMappedResults();
+
+        for (DeckCountModel deckCount : deckCounts) {
+            mongoTemplate.upsert(
+                    new Query(where("_id").is(deckCount.matchId())),
+                    new Update().set("activeCount", deckCount.activeCount()),
+                    DeckCountModel.class);
+        }
+        List<Integer> matchIds = deckCounts.stream().map(DeckCountModel::matchId).toList();
+        mongoTemplate.updateMulti(
+                new Query(where("_id").nin(matchIds).and("activeCount").ne(0)),
+                new Update().set("activeCount", 0),
+                DeckCountModel.class);
+    }
+}
@@ -0,0 +1,89 @@
+package ropold.backend.service;
+
+// Liest den EXIF-Orientation-Tag (0x0112) aus dem APP1-Segment eines JPEGs. Handys speichern Fotos oft
+// im Sensorformat und vermerken die Drehung nur dort; ImageIO ignoriert den Tag beim Dekodieren.
+final class ExifOrientation {
+
+    static final int NORMAL = 1;
+
+    private static final int ORIENTATION_TAG = 0x0112;
+    private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+
+    private ExifOrientation() {
+    }
+
+    // 1 bis 8 wie in der EXIF-Spezifikation, 1 auch wenn nichts gefunden wird
+    static int read(byte[] jpeg) {
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int marker = jpeg[offset + 1] & 0xFF;
+            int length = readShort(jpeg, offset + 2, false);
+            // Start of Scan: danach folgen nur noch Bilddaten
+            if (marker == 0xDA || length < 2) {
+                break;
+            }
+            int end = Math.min(jpeg.length, offset + 2 + length);
+            if (marker == 0xE1 && startsWith(jpeg, offset + 4, EXIF_HEADER)) {
+                return readTiff(jpeg, offset + 4 + EXIF_HEADER.length, end);
+            }
+            offset = end;
+        }
+        return NORMAL;
+    }
+
+    private static int readTiff(byte[] bytes, int tiff, int end) {
+        if (tiff + 8 > end) {
+            return NORMAL;
+        }
+        boolean littleEndian;
+        if (bytes[tiff] == 'I' && bytes[tiff + 1] == 'I') {
+            littleEndian = true;
+        } else if (bytes[tiff] == 'M' && bytes[tiff + 1] == 'M') {
+            littleEndian = false;
+        } else {
+            return NORMAL;
+        }
+
+        long ifdOffset = readInt(bytes, tiff + 4, littleEndian);
+        if (ifdOffset < 8 || tiff + ifdOffset + 2 > end) {
+            return NORMAL;
+        }
+        int ifd = (int) (tiff + ifdOffset);
+        int entries = readShort(bytes, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (readShort(bytes, entry, littleEndian) == ORIENTATION_TAG) {
+                int orientation = readShort(bytes, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : NORMAL;
+            }
+        }
+        return NORMAL;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+        if (offset + prefix.length > bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readShort(byte[] bytes, int offset, boolean littleEndian) {
+        int first = bytes[offset] & 0xFF;
+        int second = bytes[offset + 1] & 0xFF;
+        return littleEndian ? second << 8 | first : first << 8 | second;
+    }
+
+    private static long readInt(byte[] bytes, int offset, boolean littleEndian) {
+        long high = readShort(bytes, offset + (littleEndian ? 2 : 0), littleEndian);
+        long low = readShort(bytes, offset + (littleEndian ? 0 : 2), littleEndian);
+        return high << 16 | low;
+    }
+}
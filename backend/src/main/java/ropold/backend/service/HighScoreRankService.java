@@ -0,0 +1,256 @@
+package ropold.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ropold.backend.exception.InvalidRequestException;
+import ropold.backend.model.DeckHighScoreBoardModel;
+import ropold.backend.model.HighScoreBoardModel;
+import ropold.backend.model.HighScoreLogModel;
+import ropold.backend.model.HighScoreModel;
+import ropold.backend.model.HighScorePercentileModel;
+import ropold.backend.model.HighScoreRankModel;
+import ropold.backend.model.HighScoreWindowBoardModel;
+import ropold.backend.model.MigrationMarkerModel;
+import ropold.backend.model.SequenceModel;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+// Alle Scores (nicht nur die besten 10) pro Kartenanzahl und pro Deck im Speicher, damit Rang und Perzentil
+// in O(log n) ohne Mongo beantwortet werden. Persistiert wird nur ins append-only Log; beim Start wird es
+// komplett eingelesen. Einträge anderer Instanzen holt poll() über die Sequenznummer nach: gelesen wird ab der
+// höchsten angewendeten Nummer bzw. ab der ältesten Lücke. Eine Lücke ist ein Eintrag, dessen Nummer schon
+// vergeben, der aber noch nicht geschrieben ist; sie wird bis zum gap-timeout (lokal gemessen) offen gehalten,
+// danach gilt der Insert als gescheitert. Wanduhren der Instanzen spielen dabei keine Rolle.
+@Service
+public class HighScoreRankService {
+
+    static final String LOG_SEQUENCE = "high_score_log";
+    static final String SEED_MARKER = "high_score_log_seed";
+    static final int MAX_OPEN_GAPS = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration gapTimeout;
+    private final Map<RankingKey, Ranking> rankings = new ConcurrentHashMap<>();
+    // Beides nur unter sequenceLock: höchste angewendete Nummer und offene Lücken darunter (Nummer -> System.nanoTime())
+    private final Object sequenceLock = new Object();
+    private long highestApplied;
+    private final NavigableMap<Long, Long> missing = new TreeMap<>();
+    private volatile boolean loaded;
+
+    // matchId == null: alle Decks mit dieser Kartenanzahl
+    private record RankingKey(int numberOfCards, Integer matchId) {
+    }
+
+    private static final class Ranking {
+        private final OrderStatisticTree scoreTimes = new OrderStatisticTree();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private <T> T read(Supplier<T> reader) {
+            lock.readLock().lock();
+            try {
+                return reader.get();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void apply(double scoreTime, boolean removed) {
+            lock.writeLock().lock();
+            try {
+                if (removed) {
+                    scoreTimes.remove(scoreTime);
+                } else {
+                    scoreTimes.add(scoreTime);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public HighScoreRankService(MongoTemplate mongoTemplate,
+                                @Value("${memoryhub.high-score-rank.gap-timeout:1m}") Duration gapTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.gapTimeout = gapTimeout;
+    }
+
+    public HighScoreRankModel getRank(int numberOfCards, Integer matchId, double scoreTime) {
+        if (!Double.isFinite(scoreTime) || scoreTime < 0) {
+            throw new InvalidRequestException("Invalid score time: " + scoreTime);
+        }
+        Ranking ranking = rankings.get(new RankingKey(numberOfCards, matchId));
+        long[] counts = ranking == null ? new long[3] : ranking.read(() -> new long[]{
+                ranking.scoreTimes.countLess(scoreTime),
+                ranking.scoreTimes.countLessOrEqual(scoreTime),
+                ranking.scoreTimes.size()});
+        long total = counts[2];
+        double percentile = total == 0 ? 100.0 : (total - counts[1]) * 100.0 / total;
+        return new HighScoreRankModel(numberOfCards, matchId, scoreTime, counts[0] + 1, total, percentile);
+    }
+
+    // Die Zeit, die percentile Prozent der Scores erreicht oder unterboten haben (50 = Median)
+    public HighScorePercentileModel getPercentile(int numberOfCards, Integer matchId, double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new InvalidRequestException("Percentile must be between 0 and 100: " + percentile);
+        }
+        Ranking ranking = rankings.get(new RankingKey(numberOfCards, matchId));
+        HighScorePercentileModel empty = new HighScorePercentileModel(numberOfCards, matchId, percentile, null, 0);
+        if (ranking == null) {
+            return empty;
+        }
+        return ranking.read(() -> {
+            long total = ranking.scoreTimes.size();
+            if (total == 0) {
+                return empty;
+            }
+            long index = Math.clamp((long) Math.ceil(percentile / 100 * total) - 1, 0, total - 1);
+            return new HighScorePercentileModel(numberOfCards, matchId, percentile, ranking.scoreTimes.select(index), total);
+        });
+    }
+
+    // Jeder abgegebene Score, auch wenn er nicht unter die besten 10 kommt
+    public void record(HighScoreModel highScoreModel) {
+        append(highScoreModel.id(), highScoreModel.matchId(), highScoreModel.numberOfCards(), highScoreModel.scoreTime(), false);
+    }
+
+    // Die Werte des Scores kommen aus seinem Eintrag im Log; so wird auch ein Score entfernt,
+    // der in keiner Bestenliste steht. Ohne Eintrag oder wenn er schon entfernt ist, passiert nichts.
+    public void recordRemoval(String highScoreId) {
+        List<HighScoreLogModel> entries = mongoTemplate.find(query(where("highScoreId").is(highScoreId)), HighScoreLogModel.class);
+        if (entries.isEmpty() || entries.stream().anyMatch(HighScoreLogModel::removed)) {
+            return;
+        }
+        HighScoreLogModel recorded = entries.getFirst();
+        append(highScoreId, recorded.matchId(), recorded.numberOfCards(), recorded.scoreTime(), true);
+    }
+
+    private void append(String highScoreId, int matchId, int numberOfCards, double scoreTime, boolean removed) {
+        HighScoreLogModel entry = mongoTemplate.insert(new HighScoreLogModel(
+                null,
+                nextSequence(),
+                highScoreId,
+                matchId,
+                numberOfCards,
+                scoreTime,
+                removed,
+                Instant.now()));
+        // Vor load() wendet erst load() den Log an (oder danach poll()); sonst läge jede Nummer seit
+        // Beginn des Logs als Lücke vor dem Eintrag
+        if (loaded) {
+            apply(entry);
+        }
+    }
+
+    private long nextSequence() {
+        return mongoTemplate.findAndModify(
+                query(where("_id").is(LOG_SEQUENCE)),
+                new Update().inc("value", 1),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                SequenceModel.class).value();
+    }
+
+    // Wird von HighScoreService nach der Migration beim Start aufgerufen
+    public void load() {
+        seedFromBoards();
+        try (Stream<HighScoreLogModel> log = mongoTemplate.stream(new Query().with(Sort.by("sequence")), HighScoreLogModel.class)) {
+            log.forEach(this::apply);
+        }
+        loaded = true;
+    }
+
+    // Damit frühere Scores mitzählen, übernimmt genau die Instanz, die den Marker anlegt, alle Scores, die es vor dem
+    // Log schon gab: die alten Einzeldokumente (falls noch vorhanden) und alle Bestenlisten. Ein Score aus einer Deck-
+    // oder Wochenliste fehlt in der Liste seiner Kartenanzahl, wenn er dort nicht unter die besten 10 kam.
+    // Jeder Score zählt einmal; Scores, die schon im Log stehen (neue Scores vor dem Start, Log aus der Zeit
+    // vor dem Marker), werden übersprungen.
+    private void seedFromBoards() {
+        try {
+            mongoTemplate.insert(new MigrationMarkerModel(SEED_MARKER, Instant.now()));
+        } catch (DuplicateKeyException e) {
+            return;
+        }
+        try {
+            List<HighScoreModel> legacy = mongoTemplate.collectionExists(HighScoreService.LEGACY_COLLECTION)
+                    ? mongoTemplate.findAll(HighScoreModel.class, HighScoreService.LEGACY_COLLECTION)
+                    : List.of();
+            Set<String> seen = new HashSet<>();
+            Stream.of(
+                            Stream.of(legacy),
+                            mongoTemplate.findAll(HighScoreBoardModel.class).stream().map(HighScoreBoardModel::scores),
+                            mongoTemplate.findAll(DeckHighScoreBoardModel.class).stream().map(DeckHighScoreBoardModel::scores),
+                            mongoTemplate.findAll(HighScoreWindowBoardModel.class).stream().map(HighScoreWindowBoardModel::scores))
+                    .flatMap(scores -> scores)
+                    .filter(Objects::nonNull)
+                    .flatMap(List::stream)
+                    .filter(score -> seen.add(score.id()))
+                    .filter(score -> !mongoTemplate.exists(query(where("highScoreId").is(score.id())), HighScoreLogModel.class))
+                    .forEach(this::record);
+        } catch (RuntimeException e) {
+            // Beim nächsten Start erneut versuchen
+            mongoTemplate.remove(query(where("_id").is(SEED_MARKER)), MigrationMarkerModel.class);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${memoryhub.high-score-rank.poll-interval:PT5S}",
+            initialDelayString = "${memoryhub.high-score-rank.poll-interval:PT5S}")
+    public void poll() {
+        if (!loaded) {
+            return;
+        }
+        long after;
+        synchronized (sequenceLock) {
+            long expiredBefore = System.nanoTime() - gapTimeout.toNanos();
+            missing.values().removeIf(detectedAt -> detectedAt - expiredBefore < 0);
+            after = missing.isEmpty() ? highestApplied : missing.firstKey() - 1;
+        }
+        mongoTemplate.find(query(where("sequence").gt(after)).with(Sort.by("sequence")), HighScoreLogModel.class)
+                .forEach(this::apply);
+    }
+
+    // Jede Sequenznummer wird genau einmal angewendet; übersprungene Nummern werden als Lücke vorgemerkt
+    private void apply(HighScoreLogModel entry) {
+        synchronized (sequenceLock) {
+            long sequence = entry.sequence();
+            if (sequence > highestApplied) {
+                long now = System.nanoTime();
+                // Nur die jüngsten Nummern können noch geschrieben werden; ältere gelten sofort als gescheitert
+                for (long gap = Math.max(highestApplied + 1, sequence - MAX_OPEN_GAPS); gap < sequence; gap++) {
+                    missing.put(gap, now);
+                }
+                highestApplied = sequence;
+            } else if (missing.remove(sequence) == null) {
+                return;
+            }
+            ranking(new RankingKey(entry.numberOfCards(), null)).apply(entry.scoreTime(), entry.removed());
+            ranking(new RankingKey(entry.numberOfCards(), entry.matchId())).apply(entry.scoreTime(), entry.removed());
+        }
+    }
+
+    private Ranking ranking(RankingKey key) {
+        return rankings.computeIfAbsent(key, ignored -> new Ranking());
+    }
+}
@@ -1,27 +1,98 @@
 package ropold.backend.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import ropold.backend.exception.InvalidRequestException;
+import ropold.backend.model.DeckHighScoreBoardModel;
+import ropold.backend.model.HighScoreBoardModel;
 import ropold.backend.model.HighScoreModel;
-import ropold.backend.repository.HighScoreRepository;
+import ropold.backend.model.HighScorePercentileModel;
+import ropold.backend.model.HighScoreRankModel;
+import ropold.backend.model.HighScoreWindow;
+import ropold.backend.model.HighScoreWindowBoardModel;
+import ropold.backend.model.MigrationMarkerModel;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
 @Service
 @RequiredArgsConstructor
 public class HighScoreService {
 
-    private final HighScoreRepository highScoreRepository;
+    public static final int BOARD_SIZE = 10;
+
+    // Collection der früheren Einzeldokumente, wird beim Start einmalig in die Bestenlisten übernommen
+    static final String LEGACY_COLLECTION = "highScoreModel";
+    static final String LEGACY_MARKER = "legacy_high_scores";
+
+    private final MongoTemplate mongoTemplate;
     private final IdService idService;
+    private final ContentVersionService contentVersionService;
+    private final HighScoreRankService highScoreRankService;
+    private final HighScoreWindows highScoreWindows;
+    // Listen, die es nachweislich schon gibt; für sie heißt ein Schlüsselkonflikt "nicht unter den besten 10"
+    private final Cache<String, Boolean> knownBoards = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
 
     public List<HighScoreModel> getBestHighScoresForCards(int numberOfCards) {
-        // Holen Sie sich die besten 10 Highscores für die angegebene Kartenanzahl, sortiert nach scoreTime
-        return highScoreRepository.findTop10ByNumberOfCardsOrderByScoreTimeAsc(numberOfCards);
+        HighScoreBoardModel board = mongoTemplate.findById(numberOfCards, HighScoreBoardModel.class);
+        return board == null || board.scores() == null ? List.of() : board.scores();
+    }
+
+    public List<HighScoreModel> getBestHighScoresForDeck(int numberOfCards, int matchId) {
+        DeckHighScoreBoardModel board = mongoTemplate.findOne(query(deckBoard(numberOfCards, matchId)), DeckHighScoreBoardModel.class);
+        return board == null || board.scores() == null ? List.of() : board.scores();
+    }
+
+    // Jedes Fenster ist eine eigene, vorab gepflegte Liste; das Lesen ist immer ein Dokument per _id
+    public List<HighScoreModel> getBestHighScores(int numberOfCards, Integer matchId, HighScoreWindow window) {
+        if (window == HighScoreWindow.ALL_TIME) {
+            return matchId == null ? getBestHighScoresForCards(numberOfCards) : getBestHighScoresForDeck(numberOfCards, matchId);
+        }
+        requireNoDeck(matchId);
+        HighScoreWindowBoardModel board = mongoTemplate.findById(
+                windowBoardId(highScoreWindows.current(window), numberOfCards), HighScoreWindowBoardModel.class);
+        return board == null || board.scores() == null ? List.of() : board.scores();
+    }
+
+    public String versionKey(int numberOfCards, Integer matchId, HighScoreWindow window) {
+        if (window == HighScoreWindow.ALL_TIME) {
+            return matchId == null
+                    ? ContentVersionService.highScores(numberOfCards)
+                    : ContentVersionService.highScores(numberOfCards, matchId);
+        }
+        requireNoDeck(matchId);
+        return ContentVersionService.highScores(numberOfCards, window, highScoreWindows.current(window).key());
+    }
+
+    // Der Schlüssel einer Tages- oder Wochenliste läuft mit ihrem Zeitraum ab
+    public String version(int numberOfCards, Integer matchId, HighScoreWindow window) {
+        String versionKey = versionKey(numberOfCards, matchId, window);
+        if (window == HighScoreWindow.ALL_TIME) {
+            return contentVersionService.getVersion(versionKey);
+        }
+        return contentVersionService.getVersion(versionKey, highScoreWindows.current(window).end());
     }
 
+    // Der Score landet in der Liste der Kartenanzahl und in der seines Decks; null heißt wie bisher,
+    // dass er es bei der Kartenanzahl nicht unter die besten 10 geschafft hat
     public HighScoreModel addHighScore(HighScoreModel highScoreModel) {
-        // Erstelle das neue HighScoreModel mit einer neuen ID und aktuellen Zeitstempel
         HighScoreModel newHighScoreModel = new HighScoreModel(
                 idService.generateRandomId(),
                 highScoreModel.playerName(),
@@ -31,29 +102,175 @@ public class HighScoreService {
                 highScoreModel.scoreTime(),
                 LocalDateTime.now()
         );
+        int numberOfCards = newHighScoreModel.numberOfCards();
+        int matchId = newHighScoreModel.matchId();
+        highScoreRankService.record(newHighScoreModel);
 
-        // Finde die besten 10 Highscores für diese Kartenanzahl
-        List<HighScoreModel> scoresForCategory = highScoreRepository.findTop10ByNumberOfCardsOrderByScoreTimeAsc(newHighScoreModel.numberOfCards());
-
-        // Überprüfe, ob der neue Highscore eine bessere Zeit als der schlechteste Highscore hat
-        if (scoresForCategory.size() >= 10 && newHighScoreModel.scoreTime() > scoresForCategory.get(9).scoreTime()) {
-            // Wenn der neue Highscore schlechter ist als der schlechteste der aktuellen Top 10, wird er nicht gespeichert
+        for (HighScoreWindow window : List.of(HighScoreWindow.TODAY, HighScoreWindow.WEEK)) {
+            HighScoreWindows.Period period = highScoreWindows.current(window);
+            String id = windowBoardId(period, numberOfCards);
+            Update create = pushScore(newHighScoreModel)
+                    .setOnInsert("window", window)
+                    .setOnInsert("period", period.key())
+                    .setOnInsert("numberOfCards", numberOfCards)
+                    .setOnInsert("expiresAt", period.end());
+            if (push(id, where("_id").is(id), create, newHighScoreModel, HighScoreWindowBoardModel.class)) {
+                contentVersionService.bump(ContentVersionService.highScores(numberOfCards, window, period.key()), period.end());
+            }
+        }
+        boolean onDeckBoard = push("deck:" + numberOfCards + ":" + matchId, deckBoard(numberOfCards, matchId),
+                pushScore(newHighScoreModel), newHighScoreModel, DeckHighScoreBoardModel.class);
+        if (onDeckBoard) {
+            contentVersionService.bump(ContentVersionService.highScores(numberOfCards, matchId));
+        }
+        boolean onBoard = push("cards:" + numberOfCards, where("_id").is(numberOfCards),
+                pushScore(newHighScoreModel), newHighScoreModel, HighScoreBoardModel.class);
+        if (!onBoard) {
+            // Nicht unter den besten 10
             return null;
         }
+        contentVersionService.bump(ContentVersionService.highScores(numberOfCards));
+        return newHighScoreModel;
+    }
 
-        // Wenn schon 10 Einträge existieren, lösche den schlechtesten (höchste scoreTime)
-        if (scoresForCategory.size() >= 10) {
-            // Der schlechteste Eintrag ist der letzte, wenn die Liste nach scoreTime aufsteigend sortiert ist
-            HighScoreModel worstScore = scoresForCategory.get(9); // Der 10. Eintrag in einer Liste mit maximal 10 Einträgen
-            highScoreRepository.deleteById(worstScore.id());
+    // Ein einziges Upsert: $push mit $sort und $slice hält die Liste sortiert und auf 10 Einträge begrenzt, eine
+    // fehlende Liste wird dabei angelegt. Der Filter greift nur, wenn die Liste noch Platz hat oder der neue Score
+    // den 10. schlägt; sonst scheitert das Anlegen am Schlüssel der vorhandenen Liste, ohne etwas zu schreiben.
+    // Nur wenn diese Instanz die Liste noch nicht kannte, kann sie gerade erst (von einer anderen Instanz)
+    // angelegt worden sein; dann wird einmal als reines Update nachgefasst.
+    private boolean push(String boardKey, Criteria board, Update push, HighScoreModel highScoreModel, Class<?> boardType) {
+        String last = "scores." + (BOARD_SIZE - 1);
+        Query qualifies = query(board.orOperator(
+                where(last).exists(false),
+                where(last + ".scoreTime").gt(highScoreModel.scoreTime())));
+        try {
+            mongoTemplate.upsert(qualifies, push, boardType);
+        } catch (DuplicateKeyException e) {
+            if (knownBoards.getIfPresent(boardKey) != null) {
+                return false;
+            }
+            knownBoards.put(boardKey, Boolean.TRUE);
+            return mongoTemplate.updateFirst(qualifies, pushScore(highScoreModel), boardType).getMatchedCount() > 0;
         }
+        knownBoards.put(boardKey, Boolean.TRUE);
+        return true;
+    }
 
-        // Speichere das neue HighScore
-        return highScoreRepository.save(newHighScoreModel);
+    private static Update newBoard() {
+        return new Update().setOnInsert("scores", List.of());
     }
 
+    private static Update pushScore(HighScoreModel highScoreModel) {
+        return new Update().push("scores")
+                .sort(Sort.by("scoreTime"))
+                .slice(BOARD_SIZE)
+                .each(highScoreModel);
+    }
 
+    // Ein Score kann in der Liste seines Decks stehen, ohne bei der Kartenanzahl unter den besten 10 zu sein.
     public void deleteHighScore(String id) {
-        highScoreRepository.deleteById(id);
+        Query containsScore = query(where("scores._id").is(id));
+        Update pull = new Update().pull("scores", query(where("_id").is(id)));
+        FindAndModifyOptions before = FindAndModifyOptions.options().returnNew(false);
+        HighScoreBoardModel board = mongoTemplate.findAndModify(containsScore, pull, before, HighScoreBoardModel.class);
+        DeckHighScoreBoardModel deckBoard = mongoTemplate.findAndModify(containsScore, pull, before, DeckHighScoreBoardModel.class);
+        // Höchstens eine Tages- und eine Wochenliste, abgelaufene räumt der TTL-Index weg
+        List<HighScoreWindowBoardModel> windowBoards = mongoTemplate.find(containsScore, HighScoreWindowBoardModel.class);
+        if (!windowBoards.isEmpty()) {
+            mongoTemplate.updateMulti(containsScore, pull, HighScoreWindowBoardModel.class);
+        }
+
+        // Auch ein Score, der nur in einer Tages- oder Wochenliste oder in keiner Liste steht, zählt im Rang mit
+        highScoreRankService.recordRemoval(id);
+        if (board != null) {
+            contentVersionService.bump(ContentVersionService.highScores(board.numberOfCards()));
+        }
+        if (deckBoard != null) {
+            contentVersionService.bump(ContentVersionService.highScores(deckBoard.numberOfCards(), deckBoard.matchId()));
+        }
+        for (HighScoreWindowBoardModel windowBoard : windowBoards) {
+            contentVersionService.bump(ContentVersionService.highScores(windowBoard.numberOfCards(), windowBoard.window(), windowBoard.period()),
+                    windowBoard.expiresAt());
+        }
+    }
+
+    public HighScoreRankModel getRank(int numberOfCards, Integer matchId, double scoreTime) {
+        return highScoreRankService.getRank(numberOfCards, matchId, scoreTime);
+    }
+
+    public HighScorePercentileModel getPercentile(int numberOfCards, Integer matchId, double percentile) {
+        return highScoreRankService.getPercentile(numberOfCards, matchId, percentile);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        migrateLegacyHighScores();
+        highScoreRankService.load();
+    }
+
+    // Übernimmt die besten 10 je Kartenanzahl und je Deck aus den alten Einzeldokumenten. Das passiert genau einmal:
+    // nur die Instanz, die den Marker anlegt, führt zusammen. Ein später gelöschter alter Score kommt so nicht zurück.
+    // Beim Start können schon neue Scores in den Listen stehen, daher wird wie bei addHighScore
+    // per $push/$sort/$slice zusammengeführt statt nur fehlende Listen anzulegen
+    public void migrateLegacyHighScores() {
+        if (!mongoTemplate.collectionExists(LEGACY_COLLECTION)) {
+            return;
+        }
+        try {
+            mongoTemplate.insert(new MigrationMarkerModel(LEGACY_MARKER, Instant.now()));
+        } catch (DuplicateKeyException e) {
+            return;
+        }
+        try {
+            List<Integer> numbersOfCards = mongoTemplate.findDistinct(new Query(), "numberOfCards", LEGACY_COLLECTION, Integer.class);
+            for (int numberOfCards : numbersOfCards) {
+                mergeLegacyHighScores(where("_id").is(numberOfCards),
+                        where("numberOfCards").is(numberOfCards),
+                        HighScoreBoardModel.class, ContentVersionService.highScores(numberOfCards));
+                List<Integer> matchIds = mongoTemplate.findDistinct(
+                        query(where("numberOfCards").is(numberOfCards)), "matchId", LEGACY_COLLECTION, Integer.class);
+                for (int matchId : matchIds) {
+                    mergeLegacyHighScores(deckBoard(numberOfCards, matchId),
+                            deckBoard(numberOfCards, matchId),
+                            DeckHighScoreBoardModel.class, ContentVersionService.highScores(numberOfCards, matchId));
+                }
+            }
+        } catch (RuntimeException e) {
+            // Beim nächsten Start erneut versuchen; bereits zusammengeführte Listen überspringt der Filter
+            mongoTemplate.remove(query(where("_id").is(LEGACY_MARKER)), MigrationMarkerModel.class);
+            throw e;
+        }
+    }
+
+    // Steht schon einer der alten Scores in der Liste (abgebrochener früherer Versuch), trifft das Update nichts
+    private void mergeLegacyHighScores(Criteria board, Criteria legacy, Class<?> boardType, String versionKey) {
+        List<HighScoreModel> scores = mongoTemplate.find(query(legacy).with(Sort.by("scoreTime")).limit(BOARD_SIZE),
+                HighScoreModel.class, LEGACY_COLLECTION);
+        if (scores.isEmpty()) {
+            return;
+        }
+        mongoTemplate.upsert(query(board), newBoard(), boardType);
+        Query notMerged = query(new Criteria().andOperator(board, where("scores._id").nin(scores.stream().map(HighScoreModel::id).toList())));
+        Update merge = new Update().push("scores")
+                .sort(Sort.by("scoreTime"))
+                .slice(BOARD_SIZE)
+                .each(scores.toArray());
+        if (mongoTemplate.updateFirst(notMerged, merge, boardType).getMatchedCount() > 0) {
+            contentVersionService.bump(versionKey);
+        }
+    }
+
+    private static void requireNoDeck(Integer matchId) {
+        if (matchId != null) {
+            throw new InvalidRequestException("Deck leaderboards are only available for ALL_TIME");
+        }
+    }
+
+    static String windowBoardId(HighScoreWindows.Period period, int numberOfCards) {
+        return period.window() + ":" + period.key() + ":" + numberOfCards;
+    }
+
+    private static Criteria deckBoard(int numberOfCards, int matchId) {
+        return where("numberOfCards").is(numberOfCards).and("matchId").is(matchId);
     }
 }
@@ -0,0 +1,62 @@
+package ropold.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ropold.backend.model.HighScoreWindow;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Map;
+
+// Die aktuellen Zeiträume für TODAY und WEEK (ISO-Woche ab Montag) in der Zeitzone der Spieler.
+// Gewechselt wird per Scheduler um Mitternacht; ist ein Zeitraum beim Abruf schon vorbei
+// (Scheduler verspätet), wird sofort gewechselt. Alte Versionsschlüssel räumt der TTL-Index über expiresAt ab.
+@Component
+public class HighScoreWindows {
+
+    public record Period(HighScoreWindow window, String key, Instant start, Instant end) {
+    }
+
+    private final ZoneId zone;
+    private volatile Map<HighScoreWindow, Period> current;
+
+    public HighScoreWindows(@Value("${memoryhub.high-score.zone:Europe/Berlin}") ZoneId zone) {
+        this.zone = zone;
+        rollOver();
+    }
+
+    @Scheduled(cron = "0 0 0 * * *", zone = "${memoryhub.high-score.zone:Europe/Berlin}")
+    public void rollOver() {
+        current = periodsAt(ZonedDateTime.now(zone));
+    }
+
+    public Period current(HighScoreWindow window) {
+        if (window == HighScoreWindow.ALL_TIME) {
+            throw new IllegalArgumentException("ALL_TIME has no period");
+        }
+        Period period = current.get(window);
+        if (!Instant.now().isBefore(period.end())) {
+            rollOver();
+            period = current.get(window);
+        }
+        return period;
+    }
+
+    static Map<HighScoreWindow, Period> periodsAt(ZonedDateTime now) {
+        ZoneId zone = now.getZone();
+        LocalDate today = now.toLocalDate();
+        LocalDate monday = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        String week = String.format("%d-W%02d", monday.get(IsoFields.WEEK_BASED_YEAR), monday.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+        return Map.of(
+                HighScoreWindow.TODAY, new Period(HighScoreWindow.TODAY, today.toString(),
+                        today.atStartOfDay(zone).toInstant(), today.plusDays(1).atStartOfDay(zone).toInstant()),
+                HighScoreWindow.WEEK, new Period(HighScoreWindow.WEEK, week,
+                        monday.atStartOfDay(zone).toInstant(), monday.plusWeeks(1).atStartOfDay(zone).toInstant()));
+    }
+}
@@ -0,0 +1,98 @@
+package ropold.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import ropold.backend.model.ImageDeletionModel;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+// Bild-Löschungen werden nur vorgemerkt; der ImageDeletionWorker arbeitet sie im Hintergrund ab.
+// Mongo läuft hier ohne Replica Set, daher keine Transaktion: der Eintrag wird direkt nach dem
+// Schreiben der Memory angelegt, so dass ein Fehler bei Cloudinary die Änderung nicht mehr verhindert.
+@Service
+@RequiredArgsConstructor
+public class ImageDeletionOutbox {
+
+    private static final String NEXT_ATTEMPT_AT = "nextAttemptAt";
+    private static final String CLAIM_TOKEN = "claimToken";
+
+    private final MongoTemplate mongoTemplate;
+    private final ImageStorage imageStorage;
+    private final IdService idService;
+    private final ImageHashIndex imageHashIndex;
+
+    // Die Memory gibt ihre Referenz hier sofort frei; ob das Bild wirklich weg darf, entscheidet der Worker
+    public void enqueue(String imageUrl) {
+        imageHashIndex.release(imageUrl);
+        Instant now = Instant.now();
+        mongoTemplate.insert(new ImageDeletionModel(
+                idService.generateRandomId(),
+                imageUrl,
+                imageStorage.extractPublicIdFromUrl(imageUrl),
+                0,
+                now,
+                null,
+                null,
+                now
+        ));
+    }
+
+    // Fällige Einträge werden für die Dauer von lease reserviert, damit mehrere Instanzen
+    // sich nicht gegenseitig dieselben Bilder wegnehmen. Läuft ein Worker vorher ab, sind sie danach wieder fällig.
+    public List<ImageDeletionModel> claim(int batchSize, Duration lease) {
+        Instant now = Instant.now();
+        List<String> dueIds = mongoTemplate.find(
+                        query(where(NEXT_ATTEMPT_AT).lte(now)).with(Sort.by(NEXT_ATTEMPT_AT)).limit(batchSize),
+                        ImageDeletionModel.class).stream()
+                .map(ImageDeletionModel::id)
+                .toList();
+        if (dueIds.isEmpty()) {
+            return List.of();
+        }
+
+        String token = idService.generateRandomId();
+        mongoTemplate.updateMulti(
+                query(where("_id").in(dueIds).and(NEXT_ATTEMPT_AT).lte(now)),
+                new Update().set(NEXT_ATTEMPT_AT, now.plus(lease)).set(CLAIM_TOKEN, token),
+                ImageDeletionModel.class);
+        return mongoTemplate.find(query(where(CLAIM_TOKEN).is(token)), ImageDeletionModel.class);
+    }
+
+    public void complete(Collection<String> ids) {
+        if (!ids.isEmpty()) {
+            mongoTemplate.remove(query(where("_id").in(ids)), ImageDeletionModel.class);
+        }
+    }
+
+    public void retryAt(ImageDeletionModel deletion, Instant nextAttemptAt, String error) {
+        mongoTemplate.updateFirst(
+                query(where("_id").is(deletion.id())),
+                new Update()
+                        .set("attempts", deletion.attempts() + 1)
+                        .set(NEXT_ATTEMPT_AT, nextAttemptAt)
+                        .set("lastError", error)
+                        .unset(CLAIM_TOKEN),
+                ImageDeletionModel.class);
+    }
+
+    public void park(ImageDeletionModel deletion, String error) {
+        retryAt(deletion, null, error);
+    }
+
+    public long countPending() {
+        return mongoTemplate.count(query(where(NEXT_ATTEMPT_AT).ne(null)), ImageDeletionModel.class);
+    }
+
+    public long countParked() {
+        return mongoTemplate.count(query(where(NEXT_ATTEMPT_AT).is(null)), ImageDeletionModel.class);
+    }
+}
@@ -0,0 +1,148 @@
+package ropold.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ropold.backend.exception.ImageDeletionException;
+import ropold.backend.model.ImageDeletionModel;
+import ropold.backend.model.ImageDeletionStats;
+import ropold.backend.model.MemorySummaryView;
+import ropold.backend.repository.MemoryRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Arbeitet die Outbox ab: pro Batch ein Löschaufruf an die Bildablage (bei Cloudinary die Admin API, bis zu 100 public_ids).
+// Fehlgeschlagene Einträge werden mit exponentiellem Backoff erneut versucht und nach maxAttempts geparkt.
+@Service
+public class ImageDeletionWorker {
+
+    private final ImageDeletionOutbox imageDeletionOutbox;
+    private final ImageStorage imageStorage;
+    private final MemoryRepository memoryRepository;
+    private final ImageHashIndex imageHashIndex;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+
+    private final AtomicLong deletedCount = new AtomicLong();
+    // Einträge, die ohne Löschaufruf erledigt sind, weil das Bild noch verwendet wird
+    private final AtomicLong retainedCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong parkedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+
+    public ImageDeletionWorker(ImageDeletionOutbox imageDeletionOutbox,
+                               ImageStorage imageStorage,
+                               MemoryRepository memoryRepository,
+                               ImageHashIndex imageHashIndex,
+                               @Value("${memoryhub.image-deletion.batch-size:100}") int batchSize,
+                               @Value("${memoryhub.image-deletion.max-attempts:8}") int maxAttempts,
+                               @Value("${memoryhub.image-deletion.initial-backoff:10s}") Duration initialBackoff,
+                               @Value("${memoryhub.image-deletion.max-backoff:1h}") Duration maxBackoff,
+                               @Value("${memoryhub.image-deletion.lease:5m}") Duration lease) {
+        this.imageDeletionOutbox = imageDeletionOutbox;
+        this.imageStorage = imageStorage;
+        this.memoryRepository = memoryRepository;
+        this.imageHashIndex = imageHashIndex;
+        this.batchSize = Math.clamp(batchSize, 1, ImageStorage.MAX_DELETE_BATCH_SIZE);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+    }
+
+    @Scheduled(fixedDelayString = "${memoryhub.image-deletion.poll-interval:PT5S}",
+            initialDelayString = "${memoryhub.image-deletion.initial-delay:PT5S}")
+    public void drain() {
+        List<ImageDeletionModel> batch;
+        do {
+            batch = imageDeletionOutbox.claim(batchSize, lease);
+            if (!batch.isEmpty()) {
+                process(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private void process(List<ImageDeletionModel> batch) {
+        batchCount.incrementAndGet();
+
+        // Bilder, die inzwischen (wieder) von einer Memory verwendet werden oder laut Hash-Index
+        // noch Referenzen haben, bleiben liegen. Thumbnails zählen mit, auch für ältere Bilder ohne Eintrag im Hash-Index.
+        List<String> imageUrls = batch.stream().map(ImageDeletionModel::imageUrl).toList();
+        Set<String> stillReferenced = memoryRepository.findAllByImageUrlInOrRenditionsThumbnailUrlIn(
+                        imageUrls, imageUrls, MemorySummaryView.class).stream()
+                .flatMap(memory -> Stream.of(memory.imageUrl(),
+                        memory.renditions() == null || memory.renditions().thumbnail() == null
+                                ? null : memory.renditions().thumbnail().url()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(HashSet::new));
+        stillReferenced.addAll(imageHashIndex.retainReferenced(batch.stream()
+                .map(ImageDeletionModel::imageUrl)
+                .filter(imageUrl -> !stillReferenced.contains(imageUrl))
+                .distinct()
+                .toList()));
+        List<String> publicIds = batch.stream()
+                .filter(deletion -> !stillReferenced.contains(deletion.imageUrl()))
+                .map(ImageDeletionModel::publicId)
+                .distinct()
+                .toList();
+
+        Set<String> done;
+        String error;
+        try {
+            done = publicIds.isEmpty() ? Set.of() : imageStorage.deleteImages(publicIds);
+            error = "Image storage did not confirm the deletion";
+        } catch (ImageDeletionException e) {
+            done = Set.of();
+            error = e.getMessage();
+        }
+
+        List<String> completed = new ArrayList<>();
+        Instant now = Instant.now();
+        for (ImageDeletionModel deletion : batch) {
+            if (stillReferenced.contains(deletion.imageUrl())) {
+                completed.add(deletion.id());
+                retainedCount.incrementAndGet();
+            } else if (done.contains(deletion.publicId())) {
+                completed.add(deletion.id());
+                deletedCount.incrementAndGet();
+            } else if (deletion.attempts() + 1 >= maxAttempts) {
+                imageDeletionOutbox.park(deletion, error);
+                parkedCount.incrementAndGet();
+            } else {
+                imageDeletionOutbox.retryAt(deletion, now.plus(backoff(deletion.attempts() + 1)), error);
+                retryCount.incrementAndGet();
+            }
+        }
+        imageDeletionOutbox.complete(completed);
+    }
+
+    // 10s, 20s, 40s, ... bis maxBackoff
+    Duration backoff(int attempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    public ImageDeletionStats getStats() {
+        return new ImageDeletionStats(
+                imageDeletionOutbox.countPending(),
+                imageDeletionOutbox.countParked(),
+                deletedCount.get(),
+                retainedCount.get(),
+                retryCount.get(),
+                parkedCount.get(),
+                batchCount.get()
+        );
+    }
+}
@@ -0,0 +1,81 @@
+package ropold.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import ropold.backend.model.ImageHashModel;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+// Referenzzählung für deduplizierte Uploads. Jeder Upload zählt +1, jede vorgemerkte Löschung -1.
+// Alle Änderungen sind einzelne atomare Mongo-Updates, daher auch über mehrere Instanzen korrekt.
+@Service
+@RequiredArgsConstructor
+public class ImageHashIndex {
+
+    private static final String IMAGE_URL = "imageUrl";
+    private static final String REFERENCES = "references";
+
+    private final MongoTemplate mongoTemplate;
+
+    // Referenziert ein bereits hochgeladenes Bild mit diesem Inhalt, falls vorhanden
+    public Optional<String> acquire(String hash) {
+        ImageHashModel existing = mongoTemplate.findAndModify(
+                query(where("_id").is(hash)),
+                new Update().inc(REFERENCES, 1),
+                FindAndModifyOptions.options().returnNew(true),
+                ImageHashModel.class);
+        return Optional.ofNullable(existing).map(ImageHashModel::imageUrl);
+    }
+
+    // Trägt ein frisch hochgeladenes Bild mit einer Referenz ein. Hat parallel jemand denselben Inhalt
+    // eingetragen, wird stattdessen dessen Bild referenziert und seine URL geliefert.
+    public Optional<String> register(String hash, String imageUrl) {
+        while (true) {
+            try {
+                mongoTemplate.insert(new ImageHashModel(hash, imageUrl, 1, Instant.now()));
+                return Optional.empty();
+            } catch (DuplicateKeyException e) {
+                Optional<String> existing = acquire(hash);
+                if (existing.isPresent()) {
+                    return existing;
+                }
+                // Eintrag wurde zwischendurch entfernt, dann gilt wieder das eigene Bild
+            }
+        }
+    }
+
+    public void release(String imageUrl) {
+        mongoTemplate.updateFirst(
+                query(where(IMAGE_URL).is(imageUrl).and(REFERENCES).gt(0)),
+                new Update().inc(REFERENCES, -1),
+                ImageHashModel.class);
+    }
+
+    public boolean isReferenced(String imageUrl) {
+        return mongoTemplate.exists(query(where(IMAGE_URL).is(imageUrl).and(REFERENCES).gt(0)), ImageHashModel.class);
+    }
+
+    // Entfernt die Einträge ohne Referenz und liefert die URLs, die noch verwendet werden.
+    // Erst der Eintrag, dann das Bild: ein gleichzeitiger Upload desselben Inhalts lädt dann neu hoch,
+    // statt auf ein Bild zu zeigen, das gerade gelöscht wird.
+    public Set<String> retainReferenced(Collection<String> imageUrls) {
+        if (imageUrls.isEmpty()) {
+            return Set.of();
+        }
+        mongoTemplate.remove(query(where(IMAGE_URL).in(imageUrls).and(REFERENCES).lte(0)), ImageHashModel.class);
+        return mongoTemplate.find(query(where(IMAGE_URL).in(imageUrls)), ImageHashModel.class).stream()
+                .map(ImageHashModel::imageUrl)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,384 @@
+package ropold.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ropold.backend.exception.InvalidRequestException;
+import ropold.backend.model.ImageFormat;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Verarbeitet Uploads vor der Ablage: dekodieren, nach EXIF drehen, auf maxDimension verkleinern,
+// neu kodieren (JPEG, PNG nur bei echter Transparenz) und ein Thumbnail erzeugen.
+// Läuft auf einem eigenen, begrenzten Pool: Dekodieren großer Fotos kostet viel CPU und Speicher,
+// bei voller Warteschlange wird der Upload abgelehnt statt den Server zu überlasten.
+// Nach einem Timeout wird der Job unterbrochen: das Dekodieren bricht ab und zwischen den Schritten wird
+// geprüft, damit ein abgebrochener Job seinen Platz im Pool sofort wieder freigibt.
+@Service
+public class ImageProcessingService {
+
+    private final int maxDimension;
+    private final int thumbnailDimension;
+    private final float jpegQuality;
+    private final long maxPixels;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+
+    public record Rendition(byte[] bytes, ImageFormat format, int width, int height) {
+    }
+
+    public record ProcessedImage(Rendition full, Rendition thumbnail) {
+    }
+
+    public ImageProcessingService(@Value("${memoryhub.image-processing.max-dimension:1600}") int maxDimension,
+                                  @Value("${memoryhub.image-processing.thumbnail-dimension:320}") int thumbnailDimension,
+                                  @Value("${memoryhub.image-processing.jpeg-quality:0.82}") float jpegQuality,
+                                  @Value("${memoryhub.image-processing.max-pixels:50000000}") long maxPixels,
+                                  @Value("${memoryhub.image-processing.timeout:30s}") Duration timeout,
+                                  @Value("${memoryhub.image-processing.threads:2}") int threads,
+                                  @Value("${memoryhub.image-processing.queue-capacity:16}") int queueCapacity) {
+        this.maxDimension = maxDimension;
+        this.thumbnailDimension = thumbnailDimension;
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+        this.timeout = timeout;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+    }
+
+    // Leer für Bilder, die unverändert abgelegt werden: GIF (Animation bliebe sonst nicht erhalten),
+    // WebP (kann das JDK nicht dekodieren) und alles, was ImageIO nicht lesen kann
+    public Optional<ProcessedImage> process(byte[] original) {
+        ImageFormat format = ImageFormat.detect(original)
+                .orElseThrow(() -> new InvalidRequestException("Unsupported image format"));
+        if (format != ImageFormat.JPEG && format != ImageFormat.PNG) {
+            return Optional.empty();
+        }
+        // Zu große Bilder belegen gar nicht erst einen Platz im Pool
+        checkPixels(original);
+
+        Future<Optional<ProcessedImage>> result;
+        try {
+            result = executor.submit(() -> processNow(original, format));
+        } catch (RejectedExecutionException e) {
+            throw new RejectedExecutionException("Too many images are being processed, please try again later");
+        }
+        try {
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Error processing image", e.getCause());
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new RejectedExecutionException("Image processing timed out, please try again later");
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing image");
+        }
+    }
+
+    Optional<ProcessedImage> processNow(byte[] original, ImageFormat format) {
+        BufferedImage decoded;
+        try {
+            decoded = decode(original);
+        } catch (IOException e) {
+            // z.B. CMYK-JPEGs: dann wie bisher unverändert ablegen
+            return Optional.empty();
+        }
+        if (decoded == null) {
+            return Optional.empty();
+        }
+
+        // Erst verkleinern, dann drehen: gedreht wird so nur noch das Bild in Maximalgröße
+        int orientation = format == ImageFormat.JPEG ? ExifOrientation.read(original) : ExifOrientation.NORMAL;
+        BufferedImage scaled = fit(decoded, maxDimension);
+        checkInterrupted();
+        BufferedImage full = orient(scaled, orientation, decoded.getColorModel().hasAlpha());
+        checkInterrupted();
+        boolean transparent = hasTransparency(full);
+
+        Rendition fullRendition = encode(full, transparent);
+        checkInterrupted();
+        // Ein schon passend kleines, richtig gedrehtes JPEG nur ersetzen, wenn es dadurch kleiner wird
+        if (full == decoded && orientation == ExifOrientation.NORMAL && format == ImageFormat.JPEG
+                && original.length <= fullRendition.bytes().length) {
+            fullRendition = new Rendition(original, ImageFormat.JPEG, full.getWidth(), full.getHeight());
+        }
+        Rendition thumbnail = encode(fit(full, thumbnailDimension), transparent);
+        return Optional.of(new ProcessedImage(fullRendition, thumbnail));
+    }
+
+    // Dekodiert und dreht nach EXIF; null, wenn ImageIO das Bild nicht lesen kann
+    BufferedImage decodeUpright(byte[] bytes) throws IOException {
+        BufferedImage decoded = decode(bytes);
+        if (decoded == null) {
+            return null;
+        }
+        boolean jpeg = ImageFormat.detect(bytes).orElse(null) == ImageFormat.JPEG;
+        return orient(decoded, jpeg ? ExifOrientation.read(bytes) : ExifOrientation.NORMAL, decoded.getColorModel().hasAlpha());
+    }
+
+    // Liest nur den Header. Was sich so nicht lesen lässt, entscheidet erst die eigentliche Verarbeitung.
+    private void checkPixels(byte[] bytes) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                checkPixels(reader);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            // unlesbarer Header: wird unverändert abgelegt
+        }
+    }
+
+    // Prüft die Abmessungen vor dem Dekodieren, damit ein kleines Bild mit riesiger Auflösung nicht den Speicher sprengt
+    private void checkPixels(ImageReader reader) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        if ((long) width * height > maxPixels) {
+            throw new InvalidRequestException("Image is too large: " + width + "x" + height + " pixels");
+        }
+    }
+
+    private BufferedImage decode(byte[] bytes) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                checkPixels(reader);
+                reader.addIIOReadProgressListener(AbortWhenInterrupted.INSTANCE);
+                BufferedImage decoded = reader.read(0);
+                checkInterrupted();
+                return decoded;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Ein unterbrochener Job (Timeout) wird nicht weitergerechnet; das Ergebnis will niemand mehr
+    private static void checkInterrupted() {
+        if (Thread.interrupted()) {
+            throw new CancellationException("Image processing was cancelled");
+        }
+    }
+
+    // Future.cancel(true) unterbricht nur den Thread, ImageIO liest trotzdem weiter. Die Reader melden ihren
+    // Fortschritt aber zeilen- bzw. blockweise, dort wird das Lesen bei gesetztem Interrupt abgebrochen.
+    private enum AbortWhenInterrupted implements IIOReadProgressListener {
+        INSTANCE;
+
+        @Override
+        public void imageProgress(ImageReader source, float percentageDone) {
+            if (Thread.currentThread().isInterrupted()) {
+                source.abort();
+            }
+        }
+
+        @Override
+        public void sequenceStarted(ImageReader source, int minIndex) {
+        }
+
+        @Override
+        public void sequenceComplete(ImageReader source) {
+        }
+
+        @Override
+        public void imageStarted(ImageReader source, int imageIndex) {
+        }
+
+        @Override
+        public void imageComplete(ImageReader source) {
+        }
+
+        @Override
+        public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {
+        }
+
+        @Override
+        public void thumbnailProgress(ImageReader source, float percentageDone) {
+        }
+
+        @Override
+        public void thumbnailComplete(ImageReader source) {
+        }
+
+        @Override
+        public void readAborted(ImageReader source) {
+        }
+    }
+
+    // Zeichnet das Bild gemäß EXIF-Orientation in ein neues RGB/ARGB-Bild, bei 5 bis 8 mit vertauschter Breite und Höhe.
+    // Bei NORMAL bleibt ein Bild mit direkten Farben unverändert, statt es in voller Auflösung zu kopieren.
+    static BufferedImage orient(BufferedImage image, int orientation, boolean alpha) {
+        if (orientation == ExifOrientation.NORMAL && isDirectColor(image)) {
+            return image;
+        }
+        return draw(image, orientation, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static BufferedImage draw(BufferedImage image, int orientation, int type) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, height, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, height, width);
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, width);
+            default -> new AffineTransform();
+        };
+        boolean swapped = orientation >= 5 && orientation <= 8;
+        BufferedImage oriented = new BufferedImage(swapped ? height : width, swapped ? width : height, type);
+        Graphics2D graphics = oriented.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return oriented;
+    }
+
+    // Verkleinert in Halbierungsschritten; ein einziger bilinearer Schritt von 4000 auf 320 Pixel würde stark aliasen
+    static BufferedImage fit(BufferedImage image, int maxSize) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (Math.max(width, height) <= maxSize) {
+            return image;
+        }
+        double scale = (double) maxSize / Math.max(width, height);
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = image;
+        do {
+            checkInterrupted();
+            int nextWidth = Math.max(targetWidth, current.getWidth() / 2);
+            int nextHeight = Math.max(targetHeight, current.getHeight() / 2);
+            current = resize(current, nextWidth, nextHeight);
+        } while (current.getWidth() != targetWidth || current.getHeight() != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        int type = isDirectColor(image) ? image.getType()
+                : image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage resized = new BufferedImage(width, height, type);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    // Palettenbilder und TYPE_CUSTOM lassen sich nicht verlustfrei als Ziel neu anlegen
+    private static boolean isDirectColor(BufferedImage image) {
+        return switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR,
+                 BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean hasTransparency(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return false;
+        }
+        int[] row = new int[image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, row.length, 1, row, 0, row.length);
+            for (int pixel : row) {
+                if (pixel >>> 24 != 0xFF) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Rendition encode(BufferedImage image, boolean transparent) {
+        try {
+            if (transparent) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ImageIO.write(image, "png", out);
+                return new Rendition(out.toByteArray(), ImageFormat.PNG, image.getWidth(), image.getHeight());
+            }
+            return new Rendition(encodeJpeg(toRgb(image)), ImageFormat.JPEG, image.getWidth(), image.getHeight());
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding image", e);
+        }
+    }
+
+    byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            // progressiv: der Browser zeigt früh eine grobe Vorschau
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        return draw(image, ExifOrientation.NORMAL, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,322 @@
+package ropold.backend.service;
+
+import com.cloudinary.Cloudinary;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import ropold.backend.exception.ImageProxyException;
+import ropold.backend.exception.InvalidRequestException;
+import ropold.backend.model.ImageFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Proxy für Kartenbilder externer Hosts (Cloudinary, GitHub-Avatare) mit größenbegrenztem LRU-Cache auf der Platte.
+// Gleichzeitige Misses für dasselbe Bild teilen sich einen Download, geladen wird auf einem eigenen, begrenzten Pool.
+// Geladen werden nur URLs unterhalb von allowed-prefixes und des eigenen Cloudinary-Accounts, damit der Proxy
+// weder für beliebige URLs noch für fremde Cloudinary-Accounts missbraucht werden kann.
+@Service
+public class ImageProxyService {
+
+    // <sha256 der URL>-<Inhalts-Hash>-<Download-Nonce>.<ext>: jeder Download bekommt eine eigene Datei
+    private static final Pattern CACHED_FILE = Pattern.compile("([0-9a-f]{64})-([0-9a-f]{16})-([0-9a-f]{8})\\.(jpg|png|gif|webp)");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Eine verdrängte Datei kann gerade noch ausgeliefert werden (sendfile liest sie erst nach dem Controller)
+    private static final Duration DELETE_DELAY = Duration.ofMinutes(1);
+
+    private final Path directory;
+    private final String baseUrl;
+    private final List<String> allowedPrefixes;
+    private final long maxImageSize;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+    private final ExecutorService downloadExecutor;
+    private final AsyncCache<String, CachedImage> cache;
+
+    // contentHash ist der gekürzte SHA-256 des Inhalts und dient als ETag
+    public record CachedImage(String key, Path file, ImageFormat format, long size, String contentHash) {
+    }
+
+    public ImageProxyService(@Value("${memoryhub.image-proxy.directory:./data/image-cache}") Path directory,
+                             @Value("${memoryhub.image-proxy.base-url:/api/image-proxy}") String baseUrl,
+                             @Value("${memoryhub.image-proxy.allowed-prefixes:https://avatars.githubusercontent.com/}") List<String> allowedPrefixes,
+                             Cloudinary cloudinary,
+                             @Value("${memoryhub.image-proxy.maximum-size:1GB}") DataSize maximumSize,
+                             @Value("${memoryhub.image-proxy.max-image-size:10MB}") DataSize maxImageSize,
+                             @Value("${memoryhub.image-proxy.ttl:7d}") Duration ttl,
+                             @Value("${memoryhub.image-proxy.timeout:10s}") Duration timeout,
+                             @Value("${memoryhub.image-proxy.download-threads:8}") int downloadThreads) throws IOException {
+        this.directory = Files.createDirectories(directory.toAbsolutePath().normalize());
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.allowedPrefixes = allowedPrefixes(allowedPrefixes, cloudinary.config.cloudName);
+        this.maxImageSize = maxImageSize.toBytes();
+        this.timeout = timeout;
+        // Keine Redirects: sonst könnte ein erlaubter Host auf beliebige (interne) Adressen umleiten
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.downloadExecutor = Executors.newFixedThreadPool(downloadThreads);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((String key, CachedImage image) -> (int) Math.min(image.size(), Integer.MAX_VALUE))
+                .expireAfterWrite(ttl)
+                .removalListener((String key, CachedImage image, RemovalCause cause) -> {
+                    // Die Datei gehört nur zu diesem Eintrag, ein neuer Download derselben URL schreibt eine andere
+                    if (image != null) {
+                        deleteLater(image.file());
+                    }
+                })
+                .buildAsync();
+        indexExistingFiles();
+    }
+
+    // Bilder erlaubter Hosts bekommen eine Proxy-URL, alles andere (z.B. die lokale Bildablage) bleibt unverändert
+    public String proxyUrl(String imageUrl) {
+        if (!isProxyable(imageUrl)) {
+            return imageUrl;
+        }
+        return baseUrl + "/" + Base64.getUrlEncoder().withoutPadding().encodeToString(imageUrl.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Startet die Downloads im Hintergrund, ohne auf sie zu warten; Fehler fallen beim ersten echten Abruf erneut auf
+    public void prefetch(Collection<String> imageUrls) {
+        imageUrls.stream()
+                .filter(this::isProxyable)
+                .distinct()
+                .forEach(this::load);
+    }
+
+    public CachedImage getImage(String token) {
+        String imageUrl;
+        try {
+            imageUrl = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid image token: " + token);
+        }
+        return getImageByUrl(imageUrl);
+    }
+
+    public CachedImage getImageByUrl(String imageUrl) {
+        if (!isProxyable(imageUrl)) {
+            throw new InvalidRequestException("Image URL is not allowed: " + imageUrl);
+        }
+
+        try {
+            CachedImage image = load(imageUrl).get(timeout.toMillis() * 2, TimeUnit.MILLISECONDS);
+            if (Files.isRegularFile(image.file())) {
+                return image;
+            }
+            // Datei wurde außerhalb des Caches gelöscht: Eintrag verwerfen und neu laden
+            cache.synchronous().invalidate(image.key());
+            return load(imageUrl).get(timeout.toMillis() * 2, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ImageProxyException proxyException) {
+                throw proxyException;
+            }
+            throw new ImageProxyException("Error loading image " + imageUrl + ": " + e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            throw new ImageProxyException("Timed out loading image " + imageUrl);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImageProxyException("Interrupted while loading image " + imageUrl);
+        }
+    }
+
+    // Verglichen wird der dekodierte Pfad; "." und ".." sind abgelehnt, sonst käme man per
+    // /<eigener Account>/../<fremder Account>/ aus dem erlaubten Präfix heraus
+    boolean isProxyable(String imageUrl) {
+        if (imageUrl == null || imageUrl.isBlank()) {
+            return false;
+        }
+        try {
+            URI uri = new URI(imageUrl);
+            if (!("https".equals(uri.getScheme()) || "http".equals(uri.getScheme()))
+                    || uri.getHost() == null
+                    || uri.getUserInfo() != null
+                    || uri.getPort() != -1
+                    || uri.getPath() == null) {
+                return false;
+            }
+            for (String segment : uri.getPath().split("/")) {
+                if (segment.equals(".") || segment.equals("..")) {
+                    return false;
+                }
+            }
+            String target = uri.getScheme() + "://" + uri.getHost().toLowerCase(Locale.ROOT) + uri.getPath();
+            return allowedPrefixes.stream().anyMatch(target::startsWith);
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    static List<String> allowedPrefixes(List<String> configured, String cloudName) {
+        Stream<String> cloudinary = cloudName == null || cloudName.isBlank()
+                ? Stream.empty()
+                : Stream.of("https://res.cloudinary.com/" + cloudName + "/");
+        return Stream.concat(configured.stream(), cloudinary)
+                .map(String::trim)
+                .filter(prefix -> !prefix.isEmpty())
+                // Ohne abschließenden Slash würde "/demo" auch "/demo-fremd/" erlauben
+                .map(prefix -> prefix.endsWith("/") ? prefix : prefix + "/")
+                .toList();
+    }
+
+    private CompletableFuture<CachedImage> load(String imageUrl) {
+        String key = sha256(imageUrl);
+        return cache.get(key, (cacheKey, executor) ->
+                CompletableFuture.supplyAsync(() -> download(imageUrl, cacheKey), downloadExecutor));
+    }
+
+    private CachedImage download(String imageUrl, String key) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(imageUrl))
+                .timeout(timeout)
+                .GET()
+                .build();
+        Path temp = null;
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new ImageProxyException("Image host answered " + response.statusCode() + " for " + imageUrl);
+                }
+                if (response.headers().firstValueAsLong("Content-Length").orElse(0) > maxImageSize) {
+                    throw new ImageProxyException("Image is larger than " + maxImageSize + " bytes: " + imageUrl);
+                }
+                temp = Files.createTempFile(directory, key, ".tmp");
+                MessageDigest digest = sha256();
+                long size = copy(body, temp, imageUrl, digest);
+                String contentHash = HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+
+                ImageFormat format;
+                try (InputStream header = Files.newInputStream(temp)) {
+                    format = ImageFormat.detect(header.readNBytes(12))
+                            .orElseThrow(() -> new ImageProxyException("Image host did not return an image for " + imageUrl));
+                }
+                String nonce = HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextInt());
+                Path file = directory.resolve(key + "-" + contentHash + "-" + nonce + "." + format.extension());
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+                return new CachedImage(key, file, format, size, contentHash);
+            }
+        } catch (IOException e) {
+            throw new ImageProxyException("Error loading image " + imageUrl + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImageProxyException("Interrupted while loading image " + imageUrl);
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    // Content-Length fehlt oft oder stimmt nicht, daher wird beim Kopieren mitgezählt
+    private long copy(InputStream body, Path target, String imageUrl, MessageDigest digest) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                size += read;
+                if (size > maxImageSize) {
+                    throw new ImageProxyException("Image is larger than " + maxImageSize + " bytes: " + imageUrl);
+                }
+                out.write(buffer, 0, read);
+                digest.update(buffer, 0, read);
+            }
+        }
+        return size;
+    }
+
+    // Dateien aus einem früheren Lauf wieder in den Cache aufnehmen, damit sie mitgezählt und verdrängt werden.
+    // Gibt es für eine URL mehrere Dateien (Löschen vor dem Neustart nicht mehr geschafft), bleibt die neueste.
+    private void indexExistingFiles() throws IOException {
+        Map<String, CachedImage> newest = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher matcher = CACHED_FILE.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    deleteQuietly(file);
+                    continue;
+                }
+                ImageFormat format = ImageFormat.fromExtension(matcher.group(4)).orElseThrow();
+                CachedImage image = new CachedImage(matcher.group(1), file, format, Files.size(file), matcher.group(2));
+                CachedImage other = newest.get(image.key());
+                if (other != null && Files.getLastModifiedTime(other.file()).compareTo(Files.getLastModifiedTime(file)) >= 0) {
+                    deleteQuietly(file);
+                    continue;
+                }
+                if (other != null) {
+                    deleteQuietly(other.file());
+                }
+                newest.put(image.key(), image);
+            }
+        }
+        newest.values().forEach(image -> cache.put(image.key(), CompletableFuture.completedFuture(image)));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        downloadExecutor.shutdownNow();
+    }
+
+    private void deleteLater(Path file) {
+        CompletableFuture.runAsync(() -> deleteQuietly(file),
+                CompletableFuture.delayedExecutor(DELETE_DELAY.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // wird beim nächsten Start aufgeräumt oder überschrieben
+        }
+    }
+
+    private static String sha256(String value) {
+        return HexFormat.of().formatHex(sha256().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ropold.backend.service;
+
+import org.springframework.web.multipart.MultipartFile;
+import ropold.backend.exception.InvalidRequestException;
+import ropold.backend.model.ImageFormat;
+import ropold.backend.model.SignedUploadModel;
+import ropold.backend.model.UploadedImageDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+// Ablage der Kartenbilder. Auswahl per memoryhub.image-storage: cloudinary (Standard) oder local.
+public interface ImageStorage {
+
+    // Obergrenze für deleteImages, entspricht dem Limit der Cloudinary Admin API
+    int MAX_DELETE_BATCH_SIZE = 100;
+
+    // Erwartet ein bereits geprüftes (und ggf. verarbeitetes) Bild und liefert seine URL
+    String uploadImage(byte[] image) throws IOException;
+
+    default String uploadImage(MultipartFile image) throws IOException {
+        return uploadImage(readImage(image));
+    }
+
+    // Schlüssel, unter dem das Bild in der Ablage liegt (bei Cloudinary die public_id)
+    String extractPublicIdFromUrl(String imageUrl);
+
+    // Liefert die Schlüssel, die danach sicher gelöscht sind; alle anderen muss der Aufrufer erneut versuchen
+    Set<String> deleteImages(List<String> publicIds);
+
+    SignedUploadModel signUpload(String githubId);
+
+    String verifyUploadedImage(String githubId, UploadedImageDto uploadedImage);
+
+    // Liest den Upload in einen Puffer passender Größe und lehnt alles ab, was kein unterstütztes Bild ist
+    static byte[] readImage(MultipartFile image) throws IOException {
+        byte[] bytes = readBytes(image);
+        if (ImageFormat.detect(bytes).isEmpty()) {
+            throw new InvalidRequestException("Unsupported image format: " + image.getOriginalFilename());
+        }
+        return bytes;
+    }
+
+    // Inhalts-Hash für Deduplizierung und content-addressed Dateinamen
+    static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] readBytes(MultipartFile image) throws IOException {
+        long size = image.getSize();
+        try (InputStream in = image.getInputStream()) {
+            if (size <= 0 || size > Integer.MAX_VALUE - 8) {
+                return in.readAllBytes();
+            }
+            byte[] bytes = new byte[(int) size];
+            int read = in.readNBytes(bytes, 0, bytes.length);
+            return read == bytes.length ? bytes : Arrays.copyOf(bytes, read);
+        }
+    }
+}
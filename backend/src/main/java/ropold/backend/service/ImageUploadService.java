@@ -0,0 +1,47 @@
+package ropold.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import ropold.backend.model.ImageRendition;
+import ropold.backend.model.ImageRenditions;
+import ropold.backend.service.ImageProcessingService.ProcessedImage;
+import ropold.backend.service.ImageProcessingService.Rendition;
+
+import java.io.IOException;
+import java.util.Optional;
+
+// Upload über den Server: prüfen, verarbeiten, dann beide Fassungen in der Bildablage speichern
+@Service
+@RequiredArgsConstructor
+public class ImageUploadService {
+
+    private final ImageStorage imageStorage;
+    private final ImageProcessingService imageProcessingService;
+    private final ImageDeletionOutbox imageDeletionOutbox;
+
+    public record StoredImage(String imageUrl, ImageRenditions renditions) {
+    }
+
+    public StoredImage upload(MultipartFile image) throws IOException {
+        byte[] original = ImageStorage.readImage(image);
+        Optional<ProcessedImage> processed = imageProcessingService.process(original);
+        if (processed.isEmpty()) {
+            return new StoredImage(imageStorage.uploadImage(original), null);
+        }
+
+        Rendition full = processed.get().full();
+        Rendition thumbnail = processed.get().thumbnail();
+        String fullUrl = imageStorage.uploadImage(full.bytes());
+        String thumbnailUrl;
+        try {
+            thumbnailUrl = imageStorage.uploadImage(thumbnail.bytes());
+        } catch (IOException | RuntimeException e) {
+            imageDeletionOutbox.enqueue(fullUrl);
+            throw e;
+        }
+        return new StoredImage(fullUrl, new ImageRenditions(
+                new ImageRendition(fullUrl, full.width(), full.height()),
+                new ImageRendition(thumbnailUrl, thumbnail.width(), thumbnail.height())));
+    }
+}
@@ -0,0 +1,171 @@
+package ropold.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ropold.backend.exception.DirectUploadNotSupportedException;
+import ropold.backend.exception.InvalidRequestException;
+import ropold.backend.model.ImageFormat;
+import ropold.backend.model.SignedUploadModel;
+import ropold.backend.model.UploadedImageDto;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+// Bildablage im lokalen Dateisystem für Self-Hosting ohne Cloudinary.
+// Content-addressed: der Dateiname ist der SHA-256 des Inhalts, gleiche Bilder liegen nur einmal auf der Platte
+// und eine Datei ändert sich nie, daher dürfen Clients sie unbegrenzt cachen.
+// Referenzen werden wie bei Cloudinary im ImageHashIndex gezählt; weil ein erneuter Upload desselben Inhalts
+// dieselbe Datei trifft, prüft das Löschen die Referenzen noch einmal, nachdem die Datei beiseitegelegt ist.
+@Service
+@ConditionalOnProperty(name = "memoryhub.image-storage", havingValue = "local")
+public class LocalImageStorage implements ImageStorage {
+
+    private static final Pattern IMAGE_NAME = Pattern.compile("[0-9a-f]{64}\\.(jpg|png|gif|webp)");
+
+    private final Path directory;
+    private final String baseUrl;
+    private final ImageHashIndex imageHashIndex;
+
+    public LocalImageStorage(@Value("${memoryhub.local-storage.directory:./data/images}") Path directory,
+                             @Value("${memoryhub.local-storage.base-url:/api/images}") String baseUrl,
+                             ImageHashIndex imageHashIndex) throws IOException {
+        this.directory = Files.createDirectories(directory.toAbsolutePath().normalize());
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.imageHashIndex = imageHashIndex;
+    }
+
+    @Override
+    public String uploadImage(byte[] bytes) throws IOException {
+        ImageFormat format = ImageFormat.detect(bytes)
+                .orElseThrow(() -> new InvalidRequestException("Unsupported image format"));
+        String hash = ImageStorage.sha256(bytes);
+        String name = hash + "." + format.extension();
+        String imageUrl = baseUrl + "/" + name;
+
+        // Erst die Referenz, dann die Datei: ein Löschen, das die Datei schon beiseitegelegt hat,
+        // sieht die Referenz und legt sie zurück; sonst ist die Datei danach weg und wird hier neu geschrieben
+        if (imageHashIndex.acquire(hash).isEmpty()) {
+            imageHashIndex.register(hash, imageUrl);
+        }
+        try {
+            store(path(name), bytes);
+        } catch (IOException | RuntimeException e) {
+            imageHashIndex.release(imageUrl);
+            throw e;
+        }
+        return imageUrl;
+    }
+
+    private static void store(Path target, byte[] bytes) throws IOException {
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        // Erst vollständig in eine Temp-Datei im selben Verzeichnis schreiben, dann atomar umbenennen,
+        // damit nie eine halb geschriebene Datei ausgeliefert wird
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes);
+            moveIntoPlace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Liefert die Datei zu einem Bildnamen, falls vorhanden; andere Namen (z.B. "../") werden nie aufgelöst
+    public Optional<Path> resolve(String name) {
+        if (!IMAGE_NAME.matcher(name).matches()) {
+            return Optional.empty();
+        }
+        Path file = path(name);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    public Optional<Path> resolveUrl(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(baseUrl + "/")) {
+            return Optional.empty();
+        }
+        return resolve(imageUrl.substring(baseUrl.length() + 1));
+    }
+
+    @Override
+    public String extractPublicIdFromUrl(String imageUrl) {
+        return imageUrl.substring(imageUrl.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public Set<String> deleteImages(List<String> publicIds) {
+        Set<String> done = new HashSet<>();
+        for (String name : publicIds) {
+            if (!IMAGE_NAME.matcher(name).matches()) {
+                // Kein Bild dieser Ablage (z.B. altes Cloudinary-Bild), hier gibt es nichts zu löschen
+                done.add(name);
+                continue;
+            }
+            try {
+                delete(name);
+                done.add(name);
+            } catch (IOException e) {
+                // bleibt in der Outbox und wird erneut versucht
+            }
+        }
+        return done;
+    }
+
+    // Die Datei wird zuerst umbenannt und erst gelöscht, wenn danach niemand eine Referenz hält. Hat ein
+    // Upload desselben Inhalts inzwischen referenziert, kommt sie zurück (oder der Upload hat sie schon neu geschrieben).
+    private void delete(String name) throws IOException {
+        Path file = path(name);
+        Path aside = file.resolveSibling(name + "." + UUID.randomUUID() + ".deleting");
+        try {
+            Files.move(file, aside);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (imageHashIndex.isReferenced(baseUrl + "/" + name)) {
+            moveIntoPlace(aside, file);
+        }
+        Files.deleteIfExists(aside);
+    }
+
+    @Override
+    public SignedUploadModel signUpload(String githubId) {
+        throw new DirectUploadNotSupportedException("Direct uploads are not supported by the local image storage");
+    }
+
+    @Override
+    public String verifyUploadedImage(String githubId, UploadedImageDto uploadedImage) {
+        throw new DirectUploadNotSupportedException("Direct uploads are not supported by the local image storage");
+    }
+
+    // Zwei Ebenen Unterverzeichnisse, damit kein einzelnes Verzeichnis zu groß wird
+    private Path path(String name) {
+        return directory.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(temp, target);
+            } catch (FileAlreadyExistsException alreadyStored) {
+                // derselbe Inhalt wurde parallel schon abgelegt
+            }
+        } catch (FileAlreadyExistsException alreadyStored) {
+            // derselbe Inhalt wurde parallel schon abgelegt
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ropold.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.stereotype.Service;
+import ropold.backend.exception.InvalidRequestException;
+import ropold.backend.model.Category;
+import ropold.backend.model.MemoryModel;
+import ropold.backend.model.MemoryPage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.limit;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Service
+@RequiredArgsConstructor
+public class MemorySearchService {
+
+    private static final String SCORE_FIELD = "score";
+    private static final String CURSOR_SEPARATOR = ":";
+
+    private final MongoTemplate mongoTemplate;
+
+    // Volltextsuche über name und description (Text-Index), sortiert nach Relevanz.
+    // Pagination per Keyset auf (score, _id), damit auch späte Seiten kein skip brauchen.
+    public MemoryPage<MemoryModel> searchMemories(String searchTerm, Category category, Integer matchId, int limit, String after) {
+        if (searchTerm == null || searchTerm.isBlank()) {
+            throw new InvalidRequestException("Search term must not be blank");
+        }
+        int pageSize = Math.clamp(limit, 1, MemoryService.MAX_PAGE_SIZE);
+
+        Criteria filter = where("isActive").is(true);
+        if (category != null) {
+            filter = filter.and("category").is(category.name());
+        }
+        if (matchId != null) {
+            filter = filter.and("matchId").is(matchId);
+        }
+
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(match(TextCriteria.forDefaultLanguage().matching(searchTerm)));
+        stages.add(match(filter));
+        stages.add(context -> new Document("$addFields",
+                new Document(SCORE_FIELD, new Document("$meta", "textScore"))));
+        if (after != null) {
+            stages.add(match(afterCursor(after)));
+        }
+        stages.add(sort(Sort.by(Sort.Direction.DESC, SCORE_FIELD).and(Sort.by(Sort.Direction.ASC, "_id"))));
+        stages.add(limit(pageSize + 1L));
+
+        List<Document> results = mongoTemplate.aggregate(
+                Aggregation.newAggregation(stages),
+                mongoTemplate.getCollectionName(MemoryModel.class),
+                Document.class).getMappedResults();
+
+        List<MemoryModel> memories = results.stream()
+                .limit(pageSize)
+                .map(document -> mongoTemplate.getConverter().read(MemoryModel.class, document))
+                .toList();
+
+        if (results.size() <= pageSize) {
+            return new MemoryPage<>(memories, null);
+        }
+        Document last = results.get(pageSize - 1);
+        return new MemoryPage<>(memories, last.get(SCORE_FIELD, Number.class).doubleValue() + CURSOR_SEPARATOR + last.getString("_id"));
+    }
+
+    private Criteria afterCursor(String after) {
+        int separator = after.indexOf(CURSOR_SEPARATOR);
+        if (separator < 0) {
+            throw new InvalidRequestException("Invalid search cursor: " + after);
+        }
+        double score;
+        try {
+            score = Double.parseDouble(after.substring(0, separator));
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Invalid search cursor: " + after);
+        }
+        String id = after.substring(separator + 1);
+
+        return new Criteria().orOperator(
+                where(SCORE_FIELD).lt(score),
+                where(SCORE_FIELD).is(score).and("_id").gt(id));
+    }
+}
@@ -1,20 +1,49 @@
 package ropold.backend.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.BooleanOperators;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import ropold.backend.exception.AccessDeniedException;
 import ropold.backend.exception.MemoryNotFoundException;
+import ropold.backend.model.DeckCacheStats;
+import ropold.backend.model.DeckCountModel;
+import ropold.backend.model.ImageRendition;
+import ropold.backend.model.ImageRenditions;
 import ropold.backend.model.MemoryModel;
+import ropold.backend.model.MemoryCardView;
+import ropold.backend.model.MemoryPage;
+import ropold.backend.model.MemorySummaryView;
+import ropold.backend.model.ResponsiveImages;
 import ropold.backend.repository.MemoryRepository;
 
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 @Service
 @RequiredArgsConstructor
 public class MemoryService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final IdService idService;
     private final MemoryRepository memoryRepository;
-    private final CloudinaryService cloudinaryService;
+    private final ImageDeletionOutbox imageDeletionOutbox;
+    private final DeckCountService deckCountService;
+    private final DeckCache deckCache;
+    private final ContentVersionService contentVersionService;
+    private final MongoTemplate mongoTemplate;
+    private final ImageProxyService imageProxyService;
+    private final DeckAtlasService deckAtlasService;
 
     public List<MemoryModel> getAllMemories() {
         return memoryRepository.findAll();
@@ -22,9 +51,52 @@ public class MemoryService {
 
 
     public List<MemoryModel> getActiveMemories() {
-        return memoryRepository.findAll().stream()
-                .filter(MemoryModel::isActive)
-                .toList();
+        return memoryRepository.findAllByIsActiveTrue();
+    }
+
+    public MemoryPage<MemoryModel> getAllMemoriesPage(int limit, String after) {
+        return page(limit, after, MemoryModel::id,
+                (cursor, pageLimit) -> memoryRepository.findAllByIdGreaterThanOrderByIdAsc(cursor, pageLimit, MemoryModel.class));
+    }
+
+    public MemoryPage<MemoryModel> getActiveMemoriesPage(int limit, String after) {
+        return page(limit, after, MemoryModel::id,
+                (cursor, pageLimit) -> memoryRepository.findAllByIsActiveTrueAndIdGreaterThanOrderByIdAsc(cursor, pageLimit, MemoryModel.class));
+    }
+
+    public MemoryPage<MemoryModel> getMemoriesForGithubUserPage(String githubId, int limit, String after) {
+        return page(limit, after, MemoryModel::id,
+                (cursor, pageLimit) -> memoryRepository.findAllByAppUserGithubIdAndIdGreaterThanOrderByIdAsc(githubId, cursor, pageLimit, MemoryModel.class));
+    }
+
+    public List<MemorySummaryView> getAllMemorySummaries() {
+        return memoryRepository.findAllBy(MemorySummaryView.class);
+    }
+
+    public MemoryPage<MemorySummaryView> getAllMemorySummariesPage(int limit, String after) {
+        return page(limit, after, MemorySummaryView::id,
+                (cursor, pageLimit) -> memoryRepository.findAllByIdGreaterThanOrderByIdAsc(cursor, pageLimit, MemorySummaryView.class));
+    }
+
+    public List<MemorySummaryView> getActiveMemorySummaries() {
+        return memoryRepository.findAllByIsActiveTrue(MemorySummaryView.class);
+    }
+
+    public MemoryPage<MemorySummaryView> getActiveMemorySummariesPage(int limit, String after) {
+        return page(limit, after, MemorySummaryView::id,
+                (cursor, pageLimit) -> memoryRepository.findAllByIsActiveTrueAndIdGreaterThanOrderByIdAsc(cursor, pageLimit, MemorySummaryView.class));
+    }
+
+    // Lädt limit + 1 Einträge, um ohne count-Query zu wissen, ob es eine weitere Seite gibt
+    private <T> MemoryPage<T> page(int limit, String after, Function<T, String> idOf, BiFunction<String, Limit, List<T>> query) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        List<T> memories = query.apply(after == null ? "" : after, Limit.of(pageSize + 1));
+
+        if (memories.size() <= pageSize) {
+            return new MemoryPage<>(memories, null);
+        }
+        List<T> pageContent = memories.subList(0, pageSize);
+        return new MemoryPage<>(pageContent, idOf.apply(pageContent.getLast()));
     }
 
     public MemoryModel getMemoryById(String id) {
@@ -43,65 +115,139 @@ public class MemoryService {
                 memoryModel.appUserUsername(),
                 memoryModel.appUserAvatarUrl(),
                 memoryModel.appUserGithubUrl(),
-                memoryModel.imageUrl()
+                memoryModel.imageUrl(),
+                memoryModel.renditions()
         );
-        return memoryRepository.save(newMemoryModel);
-    }
-
-    public MemoryModel updateMemoryWithPut(String id, MemoryModel memoryModel) {
-        if(memoryRepository.existsById(id)) {
-            MemoryModel updatedMemoryModel = new MemoryModel(
-                    id,
-                    memoryModel.name(),
-                    memoryModel.matchId(),
-                    memoryModel.category(),
-                    memoryModel.description(),
-                    memoryModel.isActive(),
-                    memoryModel.appUserGithubId(),
-                    memoryModel.appUserUsername(),
-                    memoryModel.appUserAvatarUrl(),
-                    memoryModel.appUserGithubUrl(),
-                    memoryModel.imageUrl()
-            );
-            return memoryRepository.save(updatedMemoryModel);
-        } else {
-            throw new MemoryNotFoundException("No Memory found with the Put-Id:" + id);
+        MemoryModel savedMemoryModel = memoryRepository.save(newMemoryModel);
+        memoryChanged(null, savedMemoryModel);
+        return savedMemoryModel;
+    }
+
+    public List<MemoryModel> getMemoriesByIds(List<String> memoryIds) {
+        return memoryRepository.findAllById(memoryIds);
+    }
+
+
+    // Ein einziges findAndModify: isActive wird in Mongo per Update-Pipeline negiert,
+    // zurück kommt das Dokument nach der Änderung. Der Zustand davor unterscheidet sich nur in isActive.
+    // Schreibende Methoden prüfen den Besitzer: appUserGithubId steht mit im Filter, damit reicht im Erfolgsfall
+    // ein Round Trip. Nur wenn nichts getroffen wurde, wird nachgeschaut, ob es die Memory überhaupt gibt.
+    public MemoryModel toggleMemoryActiveForOwner(String id, String ownerGithubId) {
+        MemoryModel toggled = toggleActive(ownedBy(id, ownerGithubId));
+        if (toggled == null) {
+            throw ownershipFailure(id, "You are not allowed to update memories for other users");
         }
+        return toggled;
     }
 
-    public void deleteMemory(String id) {
-        MemoryModel memoryModel = memoryRepository.findById(id)
-                .orElseThrow(() -> new MemoryNotFoundException("No Memory found with ID: " + id));
+    // imageUrl == null heißt: vorhandenes Bild behalten. Ein neu hochgeladenes Bild wird wieder
+    // gelöscht, falls das Update nicht greift; das ersetzte Bild erst nach erfolgreichem Update.
+    public MemoryModel updateMemoryForOwner(String id, String ownerGithubId, MemoryModel memoryModel) {
+        Update update = new Update()
+                .set("name", memoryModel.name())
+                .set("matchId", memoryModel.matchId())
+                .set("category", memoryModel.category())
+                .set("description", memoryModel.description())
+                .set("isActive", memoryModel.isActive())
+                .set("appUserGithubId", memoryModel.appUserGithubId())
+                .set("appUserUsername", memoryModel.appUserUsername())
+                .set("appUserAvatarUrl", memoryModel.appUserAvatarUrl())
+                .set("appUserGithubUrl", memoryModel.appUserGithubUrl());
+        if (memoryModel.imageUrl() != null) {
+            update.set("imageUrl", memoryModel.imageUrl());
+            update.set("renditions", memoryModel.renditions());
+        }
 
-        if(memoryModel.imageUrl() != null) {
-            cloudinaryService.deleteImage(memoryModel.imageUrl());
+        MemoryModel before = mongoTemplate.findAndModify(
+                ownedBy(id, ownerGithubId),
+                update,
+                FindAndModifyOptions.options().returnNew(false),
+                MemoryModel.class);
+        if (before == null) {
+            releaseImages(memoryModel);
+            throw ownershipFailure(id, "You are not allowed to update memories for other users");
         }
-        memoryRepository.deleteById(id);
+
+        // Auch bei gleicher URL (deduplizierter Upload) freigeben: der Upload hat eine Referenz mehr genommen,
+        // und ein noch verwendetes Bild lässt der ImageDeletionWorker ohnehin liegen
+        boolean imageReplaced = memoryModel.imageUrl() != null;
+        if (imageReplaced) {
+            releaseImages(before);
+        }
+        MemoryModel after = new MemoryModel(
+                id,
+                memoryModel.name(),
+                memoryModel.matchId(),
+                memoryModel.category(),
+                memoryModel.description(),
+                memoryModel.isActive(),
+                memoryModel.appUserGithubId(),
+                memoryModel.appUserUsername(),
+                memoryModel.appUserAvatarUrl(),
+                memoryModel.appUserGithubUrl(),
+                imageReplaced ? memoryModel.imageUrl() : before.imageUrl(),
+                imageReplaced ? memoryModel.renditions() : before.renditions()
+        );
+        memoryChanged(before, after);
+        return after;
     }
 
-    public List<MemoryModel> getMemoriesByIds(List<String> memoryIds) {
-        return memoryRepository.findAllById(memoryIds);
+    public void deleteMemoryForOwner(String id, String ownerGithubId) {
+        MemoryModel deleted = mongoTemplate.findAndRemove(ownedBy(id, ownerGithubId), MemoryModel.class);
+        if (deleted == null) {
+            throw ownershipFailure(id, "You are not allowed to delete memories for other users");
+        }
+        releaseImages(deleted);
+        memoryChanged(deleted, null);
     }
 
+    // Bild und Thumbnail einer Memory zum Löschen vormerken
+    private void releaseImages(MemoryModel memoryModel) {
+        if (memoryModel.imageUrl() != null) {
+            imageDeletionOutbox.enqueue(memoryModel.imageUrl());
+        }
+        if (memoryModel.renditions() != null && memoryModel.renditions().thumbnail() != null) {
+            imageDeletionOutbox.enqueue(memoryModel.renditions().thumbnail().url());
+        }
+    }
 
-    public MemoryModel toggleMemoryActive(String id) {
-        MemoryModel memory = memoryRepository.findById(id)
-                .orElseThrow(() -> new MemoryNotFoundException("No Memory found with id: " + id));
+    private MemoryModel toggleActive(Query query) {
+        MemoryModel toggled = mongoTemplate.findAndModify(
+                query,
+                AggregationUpdate.update().set("isActive").toValue(BooleanOperators.Not.not("isActive")),
+                FindAndModifyOptions.options().returnNew(true),
+                MemoryModel.class);
+        if (toggled == null) {
+            return null;
+        }
 
-        MemoryModel updatedMemoryModel = new MemoryModel(
-                id,
-                memory.name(),
-                memory.matchId(),
-                memory.category(),
-                memory.description(),
-                !memory.isActive(),
-                memory.appUserGithubId(),
-                memory.appUserUsername(),
-                memory.appUserAvatarUrl(),
-                memory.appUserGithubUrl(),
-                memory.imageUrl()
+        MemoryModel before = new MemoryModel(
+                toggled.id(),
+                toggled.name(),
+                toggled.matchId(),
+                toggled.category(),
+                toggled.description(),
+                !toggled.isActive(),
+                toggled.appUserGithubId(),
+                toggled.appUserUsername(),
+                toggled.appUserAvatarUrl(),
+                toggled.appUserGithubUrl(),
+                toggled.imageUrl(),
+                toggled.renditions()
         );
-        return memoryRepository.save(updatedMemoryModel);
+        memoryChanged(before, toggled);
+        return toggled;
+    }
+
+    private static Query ownedBy(String id, String ownerGithubId) {
+        return query(where("_id").is(id).and("appUserGithubId").is(ownerGithubId));
+    }
+
+    private RuntimeException ownershipFailure(String id, String accessDeniedMessage) {
+        if (memoryRepository.existsById(id)) {
+            return new AccessDeniedException(accessDeniedMessage);
+        }
+        return new MemoryNotFoundException("No Memory found with id: " + id);
     }
 
     public MemoryModel addMemoryAvatar(MemoryModel memoryModel) {
@@ -116,15 +262,17 @@ public class MemoryService {
                 memoryModel.appUserUsername(),
                 memoryModel.appUserAvatarUrl(),
                 memoryModel.appUserGithubUrl(),
-                memoryModel.imageUrl()
+                memoryModel.imageUrl(),
+                memoryModel.renditions()
         );
-        return memoryRepository.save(memoryModel);
+        MemoryModel savedMemoryModel = memoryRepository.save(memoryModel);
+        memoryChanged(null, savedMemoryModel);
+        return savedMemoryModel;
     }
 
     public MemoryModel updateMemoryAvatar(String id, MemoryModel memoryModel) {
-        if (!memoryRepository.existsById(id)) {
-            throw new MemoryNotFoundException("No Memory found with ID: " + id);
-        }
+        MemoryModel existingMemoryModel = memoryRepository.findById(id)
+                .orElseThrow(() -> new MemoryNotFoundException("No Memory found with ID: " + id));
 
         MemoryModel updatedMemoryModel = new MemoryModel(
                 id,
@@ -137,38 +285,109 @@ public class MemoryService {
                 memoryModel.appUserUsername(),
                 memoryModel.appUserAvatarUrl(),
                 memoryModel.appUserGithubUrl(),
-                memoryModel.imageUrl()
+                memoryModel.imageUrl(),
+                memoryModel.renditions()
         );
-        return memoryRepository.save(updatedMemoryModel);
+        MemoryModel savedMemoryModel = memoryRepository.save(updatedMemoryModel);
+        memoryChanged(existingMemoryModel, savedMemoryModel);
+        return savedMemoryModel;
     }
 
 
     //Only Used in Tests
     public List<MemoryModel> getMemoriesByMatchId(int matchId) {
-        return memoryRepository.findAll().stream()
-                .filter(memory -> memory.matchId() == matchId)
-                .toList();
+        return memoryRepository.findAllByMatchId(matchId);
     }
 
+    // Das Spiel lädt die Bilder über den Image-Proxy; beim Laden ins Deck-Cache werden sie schon vorab geholt
     public List<MemoryModel> getActiveMemoriesFilterByMatchId(int numberOfMatchId) {
-        return memoryRepository.findAll().stream()
-                .filter(memory -> memory.isActive() && memory.matchId() == numberOfMatchId)
+        return getActiveMemoriesFilterByMatchId(numberOfMatchId,
+                contentVersionService.getVersion(ContentVersionService.deck(numberOfMatchId)));
+    }
+
+    // version ist die vorher gelesene Deck-Version; ein Eintrag aus einer älteren Version wird neu geladen
+    public List<MemoryModel> getActiveMemoriesFilterByMatchId(int numberOfMatchId, String version) {
+        return deckCache.getActiveDeck(numberOfMatchId, version,
+                matchId -> withProxiedImages(memoryRepository.findAllByIsActiveTrueAndMatchId(matchId)));
+    }
+
+    private List<MemoryModel> withProxiedImages(List<MemoryModel> deck) {
+        imageProxyService.prefetch(deck.stream().map(MemoryModel::imageUrl).toList());
+        return deck.stream()
+                .map(memory -> new MemoryModel(
+                        memory.id(),
+                        memory.name(),
+                        memory.matchId(),
+                        memory.category(),
+                        memory.description(),
+                        memory.isActive(),
+                        memory.appUserGithubId(),
+                        memory.appUserUsername(),
+                        memory.appUserAvatarUrl(),
+                        memory.appUserGithubUrl(),
+                        imageProxyService.proxyUrl(memory.imageUrl()),
+                        proxied(memory.renditions()),
+                        ResponsiveImages.srcset(memory.imageUrl(), imageProxyService::proxyUrl)))
                 .toList();
     }
 
-    public List<MemoryModel> getMemoriesForGithubUser(String githubId) {
-        return memoryRepository.findAll().stream()
-                .filter(memory -> githubId.equals(memory.appUserGithubId()))
+    private ImageRenditions proxied(ImageRenditions renditions) {
+        if (renditions == null) {
+            return null;
+        }
+        return new ImageRenditions(proxied(renditions.full()), proxied(renditions.thumbnail()));
+    }
+
+    private ImageRendition proxied(ImageRendition rendition) {
+        if (rendition == null) {
+            return null;
+        }
+        return new ImageRendition(imageProxyService.proxyUrl(rendition.url()), rendition.width(), rendition.height());
+    }
+
+    // Das Spielfeld kommt aus dem Deck-Cache, daher hier kein eigener Mongo-Zugriff
+    public List<MemoryCardView> getActiveMemoryCardsFilterByMatchId(int numberOfMatchId) {
+        return getActiveMemoriesFilterByMatchId(numberOfMatchId).stream()
+                .map(memory -> new MemoryCardView(memory.id(), memory.matchId(), memory.imageUrl(), memory.srcset()))
                 .toList();
     }
 
+    public List<MemoryModel> getMemoriesForGithubUser(String githubId) {
+        return memoryRepository.findAllByAppUserGithubId(githubId);
+    }
+
     public List<Integer> getActiveMemoriesMatchIds() {
-        return memoryRepository.findAll().stream()  // Alle MemoryModel-Objekte laden
-                .filter(MemoryModel::isActive)  // Nur aktive Einträge filtern
-                .map(MemoryModel::matchId)  // matchId extrahieren
-                .distinct()  // Duplikate entfernen
-                .sorted()  // Sortieren
-                .toList();  // Mit Stream.toList() die Liste zurückgeben
+        return deckCountService.getActiveDeckCounts().stream()
+                .map(DeckCountModel::matchId)
+                .toList();
+    }
+
+    public List<DeckCountModel> getActiveMemoriesMatchIdCounts() {
+        return deckCountService.getActiveDeckCounts();
+    }
+
+    public DeckCacheStats getDeckCacheStats() {
+        return deckCache.getStats();
+    }
+
+    // Muss von jeder schreibenden Methode mit dem Zustand vor und nach der Änderung aufgerufen werden
+    private void memoryChanged(MemoryModel before, MemoryModel after) {
+        deckCountService.memoryChanged(before, after);
+        contentVersionService.bump(ContentVersionService.CATALOG);
+        boolean wasInDeck = before != null && before.isActive();
+        boolean isInDeck = after != null && after.isActive();
+        if (wasInDeck) {
+            deckChanged(before.matchId());
+        }
+        if (isInDeck && !(wasInDeck && before.matchId() == after.matchId())) {
+            deckChanged(after.matchId());
+        }
+    }
+
+    private void deckChanged(int matchId) {
+        deckCache.evict(matchId);
+        contentVersionService.bump(ContentVersionService.deck(matchId));
+        deckAtlasService.deckChanged(matchId);
     }
 
 }
@@ -0,0 +1,169 @@
+package ropold.backend.service;
+
+import java.util.SplittableRandom;
+
+// Treap über Zeiten, in dem jeder Knoten die Anzahl der Einträge seines Teilbaums kennt.
+// Einfügen, Entfernen, Rang und k-tes Element kosten damit erwartet O(log n). Nicht threadsafe.
+final class OrderStatisticTree {
+
+    private static final class Node {
+        private final double key;
+        private final int priority;
+        private long count = 1;
+        private long size = 1;
+        private Node left;
+        private Node right;
+
+        private Node(double key, int priority) {
+            this.key = key;
+            this.priority = priority;
+        }
+    }
+
+    private final SplittableRandom random = new SplittableRandom();
+    private Node root;
+
+    long size() {
+        return size(root);
+    }
+
+    void add(double key) {
+        root = add(root, key);
+    }
+
+    // false, wenn der Wert nicht enthalten war
+    boolean remove(double key) {
+        if (countLessOrEqual(key) == countLess(key)) {
+            return false;
+        }
+        root = remove(root, key);
+        return true;
+    }
+
+    long countLess(double key) {
+        long count = 0;
+        Node node = root;
+        while (node != null) {
+            if (Double.compare(key, node.key) <= 0) {
+                node = node.left;
+            } else {
+                count += size(node.left) + node.count;
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    long countLessOrEqual(double key) {
+        long count = 0;
+        Node node = root;
+        while (node != null) {
+            if (Double.compare(key, node.key) < 0) {
+                node = node.left;
+            } else {
+                count += size(node.left) + node.count;
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    // 0-basiert in aufsteigender Reihenfolge
+    double select(long index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+        }
+        Node node = root;
+        while (true) {
+            long leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index < leftSize + node.count) {
+                return node.key;
+            } else {
+                index -= leftSize + node.count;
+                node = node.right;
+            }
+        }
+    }
+
+    private Node add(Node node, double key) {
+        if (node == null) {
+            return new Node(key, random.nextInt());
+        }
+        int compare = Double.compare(key, node.key);
+        if (compare == 0) {
+            node.count++;
+        } else if (compare < 0) {
+            node.left = add(node.left, key);
+            if (node.left.priority > node.priority) {
+                return rotateRight(node);
+            }
+        } else {
+            node.right = add(node.right, key);
+            if (node.right.priority > node.priority) {
+                return rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node remove(Node node, double key) {
+        int compare = Double.compare(key, node.key);
+        if (compare < 0) {
+            node.left = remove(node.left, key);
+        } else if (compare > 0) {
+            node.right = remove(node.right, key);
+        } else if (node.count > 1) {
+            node.count--;
+        } else {
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        update(node);
+        left.right = node;
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        update(node);
+        right.left = node;
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + node.count + size(node.right);
+    }
+
+    private static long size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,99 @@
+package ropold.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ropold.backend.exception.PlayBootstrapTimeoutException;
+import ropold.backend.model.DeckCountModel;
+import ropold.backend.model.HighScoreModel;
+import ropold.backend.model.MemoryModel;
+import ropold.backend.model.PlayBootstrapModel;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Fasst die Abfragen beim Laden der Spielseite zusammen. Jede läuft auf einem eigenen virtuellen Thread,
+// die Antwort dauert damit so lange wie die langsamste einzelne Abfrage. Jede Abfrage hat ihren eigenen
+// Timeout. Eine abgelaufene Abfrage wird nicht abgebrochen, sondern läuft zu Ende: sie kann ein gemeinsames
+// Laden im DeckCache sein, auf das andere Requests warten, und ein Interrupt würde dessen Mongo-I/O abbrechen.
+@Service
+public class PlayBootstrapService {
+
+    static final List<Integer> HIGH_SCORE_CARDS = List.of(10, 20, 32);
+
+    private final MemoryService memoryService;
+    private final HighScoreService highScoreService;
+    private final Duration timeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public PlayBootstrapService(MemoryService memoryService,
+                                HighScoreService highScoreService,
+                                @Value("${memoryhub.play-bootstrap.timeout:2s}") Duration timeout) {
+        this.memoryService = memoryService;
+        this.highScoreService = highScoreService;
+        this.timeout = timeout;
+    }
+
+    // Ohne matchId wird das erste Deck gewählt; dann wartet nur das Deck auf die Liste der Decks,
+    // die Bestenlisten laufen trotzdem parallel
+    public PlayBootstrapModel bootstrap(Integer matchId) {
+        Call<List<DeckCountModel>> matchIds = submit(memoryService::getActiveMemoriesMatchIdCounts);
+        Call<List<MemoryModel>> deck = matchId == null ? null
+                : submit(() -> memoryService.getActiveMemoriesFilterByMatchId(matchId));
+        Map<Integer, Call<List<HighScoreModel>>> highScores = new LinkedHashMap<>();
+        for (int numberOfCards : HIGH_SCORE_CARDS) {
+            highScores.put(numberOfCards, submit(() -> highScoreService.getBestHighScoresForCards(numberOfCards)));
+        }
+
+        List<DeckCountModel> counts = matchIds.await();
+        Integer selected = matchId != null ? matchId : counts.isEmpty() ? null : counts.getFirst().matchId();
+        if (deck == null && selected != null) {
+            deck = submit(() -> memoryService.getActiveMemoriesFilterByMatchId(selected));
+        }
+        List<MemoryModel> cards = deck == null ? List.of() : deck.await();
+
+        Map<Integer, List<HighScoreModel>> boards = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Call<List<HighScoreModel>>> board : highScores.entrySet()) {
+            boards.put(board.getKey(), board.getValue().await());
+        }
+        return new PlayBootstrapModel(counts, selected, cards, boards);
+    }
+
+    private <T> Call<T> submit(Callable<T> query) {
+        return new Call<>(executor.submit(query), System.nanoTime() + timeout.toNanos());
+    }
+
+    // Eine Abfrage mit ihrem eigenen Timeout ab dem Start
+    private record Call<T>(Future<T> future, long deadline) {
+
+        T await() {
+            try {
+                return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw new PlayBootstrapTimeoutException("Loading the game took too long, please try again later");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading the game");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("Error loading the game", e.getCause());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,60 @@
+package ropold.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ropold.backend.exception.InvalidRequestException;
+import ropold.backend.model.DealModel;
+import ropold.backend.model.MemoryModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Service
+@RequiredArgsConstructor
+public class PlayService {
+
+    // Größte Ganzzahl, die ein JavaScript-Number exakt darstellt; größere Seeds kämen im Browser gerundet
+    // zurück und ergäben ein anderes Spielfeld
+    static final long MAX_GENERATED_SEED = (1L << 53) - 1;
+
+    private final MemoryService memoryService;
+
+    // Zieht numberOfCards / 2 zufällige aktive Karten aus dem (gecachten) Deck und mischt die Paare.
+    // Mit demselben seed und unverändertem Deck entsteht exakt dasselbe Spielfeld.
+    public DealModel deal(int matchId, int numberOfCards, Long seed) {
+        if (numberOfCards < 2 || numberOfCards % 2 != 0) {
+            throw new InvalidRequestException("Number of cards must be a positive even number: " + numberOfCards);
+        }
+        int pairs = numberOfCards / 2;
+
+        List<MemoryModel> deck = new ArrayList<>(memoryService.getActiveMemoriesFilterByMatchId(matchId));
+        if (deck.size() < pairs) {
+            throw new InvalidRequestException("Deck " + matchId + " has only " + deck.size()
+                    + " active Memory-Cards, " + pairs + " are needed to play with " + numberOfCards + " cards");
+        }
+
+        long dealSeed = seed != null ? seed : ThreadLocalRandom.current().nextLong(-MAX_GENERATED_SEED, MAX_GENERATED_SEED + 1);
+        Random random = new Random(dealSeed);
+
+        // Feste Reihenfolge, damit der seed unabhängig von der Reihenfolge aus Mongo reproduzierbar ist
+        deck.sort(Comparator.comparing(MemoryModel::id));
+        // Partieller Fisher-Yates: nur die ersten "pairs" Positionen werden gezogen
+        for (int i = 0; i < pairs; i++) {
+            Collections.swap(deck, i, i + random.nextInt(deck.size() - i));
+        }
+        List<MemoryModel> memories = List.copyOf(deck.subList(0, pairs));
+
+        List<Integer> layout = new ArrayList<>(numberOfCards);
+        for (int i = 0; i < pairs; i++) {
+            layout.add(i);
+            layout.add(i);
+        }
+        Collections.shuffle(layout, random);
+
+        return new DealModel(matchId, numberOfCards, dealSeed, memories, List.copyOf(layout));
+    }
+}
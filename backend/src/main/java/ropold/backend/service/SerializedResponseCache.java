@@ -0,0 +1,72 @@
+package ropold.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// Fertig serialisierte (und gzip-komprimierte) JSON-Antworten für heiße Endpunkte.
+// Ein Eintrag gilt nur für die Version aus ContentVersionService, mit der er gebaut wurde;
+// nach einer Änderung wird er beim nächsten Zugriff einmal neu gebaut.
+@Service
+public class SerializedResponseCache {
+
+    public record SerializedResponse(
+            String version,
+            byte[] json,
+            byte[] gzip
+    ) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, SerializedResponse> cache;
+
+    public SerializedResponseCache(ObjectMapper objectMapper,
+                                   @Value("${memoryhub.response-cache.maximum-size:1000}") long maximumSize) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public SerializedResponse get(String key, String version, Supplier<?> body) {
+        SerializedResponse cached = cache.getIfPresent(key);
+        if (cached != null && cached.version().equals(version)) {
+            return cached;
+        }
+        SerializedResponse serialized = serialize(version, body.get());
+        cache.put(key, serialized);
+        return serialized;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private SerializedResponse serialize(String version, Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return new SerializedResponse(version, json, gzip(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response for version " + version, e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -7,15 +7,20 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import ropold.backend.model.DeckHighScoreBoardModel;
+import ropold.backend.model.HighScoreWindowBoardModel;
+import ropold.backend.model.HighScoreBoardModel;
 import ropold.backend.model.HighScoreModel;
-import ropold.backend.repository.HighScoreRepository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -23,13 +28,15 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 class HighScoreControllerIntegrationTest {
 
     @Autowired
-    private HighScoreRepository highScoreRepository;
+    private MongoTemplate mongoTemplate;
     @Autowired
     private MockMvc mockMvc;
 
     @BeforeEach
     void setUp() {
-        highScoreRepository.deleteAll();
+        mongoTemplate.remove(new Query(), HighScoreBoardModel.class);
+        mongoTemplate.remove(new Query(), DeckHighScoreBoardModel.class);
+        mongoTemplate.remove(new Query(), HighScoreWindowBoardModel.class);
 
         // Fester Zeitstempel für Teststabilität
         LocalDateTime fixedDate = LocalDateTime.of(2025, 3, 5, 12, 0, 0);
@@ -40,7 +47,7 @@ class HighScoreControllerIntegrationTest {
         HighScoreModel highScoreModel2 = new HighScoreModel(
                 "2", "player1", "123456", 1, 10, 14.5, fixedDate.minusMinutes(5));
 
-        highScoreRepository.saveAll(List.of(highScoreModel1, highScoreModel2));
+        mongoTemplate.save(new HighScoreBoardModel(10, List.of(highScoreModel1, highScoreModel2)));
     }
 
     @Test
@@ -75,7 +82,7 @@ class HighScoreControllerIntegrationTest {
     @Test
     void postHighScore_shouldReturnSavedHighScore() throws Exception {
         // GIVEN
-        highScoreRepository.deleteAll();
+        mongoTemplate.remove(new Query(), HighScoreBoardModel.class);
 
         String highScoreJson = """
             {
@@ -94,7 +101,7 @@ class HighScoreControllerIntegrationTest {
                 .andExpect(status().isCreated());
 
         // THEN
-        List<HighScoreModel> allHighScores = highScoreRepository.findAll();
+        List<HighScoreModel> allHighScores = mongoTemplate.findById(10, HighScoreBoardModel.class).scores();
         Assertions.assertEquals(1, allHighScores.size());
 
         HighScoreModel savedHighScore = allHighScores.getFirst();
@@ -115,7 +122,7 @@ class HighScoreControllerIntegrationTest {
     @Test
     void postHighScore_withHighTime_shouldNotSave() throws Exception {
         // GIVEN: Bestehende Highscores vorbereiten
-        highScoreRepository.deleteAll();
+        mongoTemplate.remove(new Query(), HighScoreBoardModel.class);
 
         LocalDateTime fixedDate = LocalDateTime.of(2025, 3, 5, 12, 0, 0);
 
@@ -132,8 +139,7 @@ class HighScoreControllerIntegrationTest {
                 new HighScoreModel("10", "player10", "john_doe_123", 5, 32, 29.6, fixedDate)
         );
 
-        highScoreRepository.saveAll(existingScores);
-        Assertions.assertEquals(10, highScoreRepository.count()); // Sicherstellen, dass 10 Einträge existieren
+        mongoTemplate.save(new HighScoreBoardModel(32, existingScores));
 
         // WHEN: Ein neuer, schlechterer Highscore wird gepostet
         String newHighScoreJson = """
@@ -153,8 +159,121 @@ class HighScoreControllerIntegrationTest {
                 .andExpect(MockMvcResultMatchers.content().string("")); // Aber Body ist null
 
         // THEN: Sicherstellen, dass kein zusätzlicher Eintrag gespeichert wurde
-        List<HighScoreModel> allHighScores = highScoreRepository.findAll();
+        List<HighScoreModel> allHighScores = mongoTemplate.findById(32, HighScoreBoardModel.class).scores();
         Assertions.assertEquals(10, allHighScores.size()); // Anzahl der Highscores bleibt gleich
+        Assertions.assertEquals(29.6, allHighScores.getLast().scoreTime());
+    }
+
+    @Test
+    void getBestHighScoresForCards_shouldAnswerNotModifiedUntilNewScore() throws Exception {
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get("/api/high-score/10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Surrogate-Key", "high-score-10"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/high-score/10").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/high-score/1"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/high-score/10").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getRank_countsScoresOutsideTheBestTen() throws Exception {
+        // GIVEN: eigene Kartenanzahl, da die Rangliste über den ganzen Testkontext im Speicher bleibt
+        for (int i = 1; i <= 12; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/high-score")
+                            .contentType("application/json")
+                            .content("""
+                                    {
+                                        "playerName": "player%d",
+                                        "appUserGithubId": "123456",
+                                        "matchId": 3,
+                                        "numberOfCards": 24,
+                                        "scoreTime": %d.0
+                                    }
+                                    """.formatted(i, i)))
+                    .andExpect(status().isCreated());
+        }
+
+        // WHEN & THEN
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/high-score/24/rank").param("time", "12").param("matchId", "3"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json("""
+                        {
+                            "numberOfCards": 24,
+                            "matchId": 3,
+                            "rank": 12,
+                            "total": 12
+                        }
+                        """));
+        Assertions.assertEquals(10, mongoTemplate.findById(24, HighScoreBoardModel.class).scores().size());
+    }
+
+    @Test
+    void getBestHighScoresForDeck_onlyContainsScoresOfThatDeck() throws Exception {
+        // GIVEN
+        for (int matchId : List.of(7, 8)) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/high-score")
+                            .contentType("application/json")
+                            .content("""
+                                    {
+                                        "playerName": "player%d",
+                                        "appUserGithubId": "123456",
+                                        "matchId": %d,
+                                        "numberOfCards": 16,
+                                        "scoreTime": %d.5
+                                    }
+                                    """.formatted(matchId, matchId, matchId)))
+                    .andExpect(status().isCreated());
+        }
+
+        // WHEN & THEN
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/high-score/16").param("matchId", "8"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json("""
+                        [
+                            {
+                                "playerName": "player8",
+                                "matchId": 8,
+                                "numberOfCards": 16,
+                                "scoreTime": 8.5
+                            }
+                        ]
+                        """));
+    }
+
+    @Test
+    void getBestHighScoresToday_containsOnlyNewScores() throws Exception {
+        // GIVEN: die Scores aus setUp liegen nur in der Allzeit-Liste
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/high-score")
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "playerName": "today",
+                                    "appUserGithubId": "123456",
+                                    "matchId": 1,
+                                    "numberOfCards": 10,
+                                    "scoreTime": 30.5
+                                }
+                                """))
+                .andExpect(status().isCreated());
+
+        // WHEN & THEN
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/high-score/10").param("window", "TODAY"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json("""
+                        [
+                            {
+                                "playerName": "today",
+                                "numberOfCards": 10,
+                                "scoreTime": 30.5
+                            }
+                        ]
+                        """));
     }
 
     @Test
@@ -164,8 +283,9 @@ class HighScoreControllerIntegrationTest {
                 .andExpect(status().isNoContent()); // Erwartung auf 204 No Content setzen
 
         // THEN: Prüfen, dass nur noch ein Eintrag existiert und ID "2" übrig bleibt
-        Assertions.assertEquals(1, highScoreRepository.count());
-        Assertions.assertTrue(highScoreRepository.existsById("2"));
+        List<HighScoreModel> remaining = mongoTemplate.findById(10, HighScoreBoardModel.class).scores();
+        Assertions.assertEquals(1, remaining.size());
+        Assertions.assertEquals("2", remaining.getFirst().id());
     }
 
 
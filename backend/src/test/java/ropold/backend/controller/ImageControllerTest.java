@@ -0,0 +1,122 @@
+package ropold.backend.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import ropold.backend.service.ImageHashIndex;
+import ropold.backend.service.LocalImageStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ImageControllerTest {
+
+    private static final byte[] JPEG_BYTES = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0, 1};
+
+    @TempDir
+    Path directory;
+
+    LocalImageStorage localImageStorage;
+    ImageController imageController;
+    String name;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        localImageStorage = new LocalImageStorage(directory, "/api/images", mock(ImageHashIndex.class));
+        imageController = new ImageController(localImageStorage);
+        String url = localImageStorage.uploadImage(new MockMultipartFile("image", "a.jpg", "image/jpeg", JPEG_BYTES));
+        name = localImageStorage.extractPublicIdFromUrl(url);
+    }
+
+    @Test
+    void getImage_servesWholeFileWithImmutableCaching() throws IOException {
+        MockHttpServletResponse response = get(new MockHttpServletRequest("GET", "/api/images/" + name));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("image/jpeg", response.getContentType());
+        assertEquals("public, max-age=31536000, immutable", response.getHeader("Cache-Control"));
+        assertEquals("\"" + name.substring(0, 64) + "\"", response.getHeader("ETag"));
+        assertArrayEquals(JPEG_BYTES, response.getContentAsByteArray());
+    }
+
+    @Test
+    void getImage_returnsNotModifiedForMatchingEtag() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/" + name);
+        request.addHeader("If-None-Match", "\"" + name.substring(0, 64) + "\"");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void getImage_servesSingleRange() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/" + name);
+        request.addHeader("Range", "bytes=2-5");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/12", response.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(JPEG_BYTES, 2, 6), response.getContentAsByteArray());
+    }
+
+    @Test
+    void getImage_ignoresRangeForStaleIfRange() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/" + name);
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", "\"other\"");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(JPEG_BYTES, response.getContentAsByteArray());
+    }
+
+    @Test
+    void getImage_rejectsUnsatisfiableRange() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/" + name);
+        request.addHeader("Range", "bytes=100-");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */12", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void getImage_handsFileToContainerWhenSendfileIsSupported() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/" + name);
+        request.setAttribute(ImmutableImageResponse.SENDFILE_SUPPORT, Boolean.TRUE);
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(localImageStorage.resolve(name).orElseThrow().toString(), request.getAttribute(ImmutableImageResponse.SENDFILE_FILENAME));
+        assertEquals(0L, request.getAttribute(ImmutableImageResponse.SENDFILE_START));
+        assertEquals(12L, request.getAttribute(ImmutableImageResponse.SENDFILE_END));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void getImage_returnsNotFoundForUnknownName() throws IOException {
+        MockHttpServletResponse response = get(new MockHttpServletRequest("GET", "/api/images/../secret"));
+
+        assertEquals(404, response.getStatus());
+    }
+
+    private MockHttpServletResponse get(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String path = request.getRequestURI();
+        imageController.getImage(path.substring(path.lastIndexOf('/') + 1), request, response);
+        return response;
+    }
+}
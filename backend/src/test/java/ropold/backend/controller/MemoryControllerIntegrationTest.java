@@ -1,8 +1,10 @@
 package ropold.backend.controller;
 
 
+import com.cloudinary.Api;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.Uploader;
+import com.cloudinary.api.ApiResponse;
 import org.junit.jupiter.api.Assertions;  // Importiere JUnit Assertions
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +12,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -21,13 +25,22 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import ropold.backend.model.AppUser;
 import ropold.backend.model.Category;
+import ropold.backend.model.ImageDeletionModel;
+import ropold.backend.model.ImageHashModel;
 import ropold.backend.model.MemoryModel;
 import ropold.backend.repository.AppUserRepository;
 import ropold.backend.repository.MemoryRepository;
+import ropold.backend.service.DeckCache;
+import ropold.backend.service.DeckCountService;
+import ropold.backend.service.ImageDeletionWorker;
+import ropold.backend.service.SerializedResponseCache;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
@@ -39,6 +52,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 class MemoryControllerIntegrationTest {
 
+    private static final byte[] JPEG_BYTES = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0, 1};
+
     @MockBean
     private Cloudinary cloudinary;
 
@@ -51,10 +66,27 @@ class MemoryControllerIntegrationTest {
     @Autowired
     private AppUserRepository appUserRepository;
 
+    @Autowired
+    private DeckCountService deckCountService;
+
+    @Autowired
+    private DeckCache deckCache;
+
+    @Autowired
+    private SerializedResponseCache serializedResponseCache;
+
+    @Autowired
+    private ImageDeletionWorker imageDeletionWorker;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     @BeforeEach
     void setup() {
         memoryRepository.deleteAll();
         appUserRepository.deleteAll();
+        mongoTemplate.remove(new Query(), ImageDeletionModel.class);
+        mongoTemplate.remove(new Query(), ImageHashModel.class);
 
         MemoryModel memoryModel1 = new MemoryModel(
                 "1",
@@ -85,6 +117,10 @@ class MemoryControllerIntegrationTest {
         );
 
         memoryRepository.saveAll(List.of(memoryModel1, memoryModel2));
+        // Direkt ins Repository geschrieben, daher die Deck-Zähler neu aufbauen
+        deckCountService.rebuildDeckCounts();
+        deckCache.evictAll();
+        serializedResponseCache.invalidateAll();
 
         // AppUser mit Favoriten-IDs, die mit MemoryModel-IDs übereinstimmen
         AppUser user = new AppUser(
@@ -203,6 +239,281 @@ class MemoryControllerIntegrationTest {
              """));
     }
 
+    @Test
+    void getAllMemories_withLimit_shouldReturnFirstPageAndNextCursor() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "1"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value("1"));
+    }
+
+    @Test
+    void getAllMemories_withCursor_shouldReturnNextPageWithoutCursor() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub")
+                        .param("limit", "1")
+                        .param("after", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value("2"));
+    }
+
+    @Test
+    void getActiveMemories_withLimit_shouldOnlyPageActiveMemories() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value("1"));
+    }
+
+    @Test
+    void getMemoriesForGithubUser_withLimit_shouldReturnPage() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/users/me/my-memories/user").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "1"))
+                .andExpect(jsonPath("$[0].id").value("1"));
+    }
+
+    @Test
+    void searchMemories_shouldOnlyReturnActiveMatches() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/search").param("q", "Erinnerung"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value("1"));
+    }
+
+    @Test
+    void searchMemories_shouldMatchDescription() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/search").param("q", "verknüpft"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("1"));
+    }
+
+    @Test
+    void searchMemories_shouldApplyCategoryAndMatchIdFilter() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/search")
+                        .param("q", "Erinnerung")
+                        .param("category", "CLOUDINARY_IMAGE"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/search")
+                        .param("q", "Erinnerung")
+                        .param("matchId", "101"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void getDeckCacheStats_shouldCountHitsAndMisses() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/cache/stats")
+                        .with(oidcLogin().idToken(i -> i.claim("sub", "user"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(1))
+                .andExpect(jsonPath("$.hitCount").isNumber())
+                .andExpect(jsonPath("$.missCount").isNumber())
+                .andExpect(jsonPath("$.evictionCount").isNumber());
+    }
+
+    @Test
+    void getStats_shouldRequireLogin() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/cache/stats"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/image-deletions/stats"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void toggleActive_shouldInvalidateCachedDeck() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/memory-hub/1/toggle-active")
+                        .with(oidcLogin().idToken(i -> i.claim("sub", "user"))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+    }
+
+    @Test
+    void toggleActive_shouldRejectOtherUserWithoutChangingMemory() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/memory-hub/1/toggle-active")
+                        .with(oidcLogin().idToken(i -> i.claim("sub", "intruder"))))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.message").value("You are not allowed to update memories for other users"));
+
+        Assertions.assertTrue(memoryRepository.findById("1").orElseThrow().isActive());
+    }
+
+    @Test
+    void toggleActive_shouldAnswerNotFoundForUnknownId() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/memory-hub/unknown/toggle-active")
+                        .with(oidcLogin().idToken(i -> i.claim("sub", "user"))))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("No Memory found with id: unknown"));
+    }
+
+    @Test
+    void deleteMemory_shouldRejectOtherUser() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/memory-hub/1")
+                        .with(oidcLogin().idToken(i -> i.claim("sub", "intruder"))))
+                .andExpect(status().isForbidden());
+
+        Assertions.assertTrue(memoryRepository.existsById("1"));
+    }
+
+    @Test
+    void deal_shouldReturnPairedLayoutWithSeed() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/play/deal")
+                        .param("matchId", "101")
+                        .param("cards", "2")
+                        .param("seed", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matchId").value(101))
+                .andExpect(jsonPath("$.seed").value(7))
+                .andExpect(jsonPath("$.memories.length()").value(1))
+                .andExpect(jsonPath("$.memories[0].id").value("1"))
+                .andExpect(content().json("""
+                { "layout": [0, 0] }
+                """));
+    }
+
+    @Test
+    void bootstrap_shouldReturnDeckAndLeaderboards() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/play/bootstrap").param("matchId", "101"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matchId").value(101))
+                .andExpect(jsonPath("$.deck[0].id").value("1"))
+                .andExpect(jsonPath("$.matchIds[0].matchId").value(101))
+                .andExpect(jsonPath("$.highScores.10").isArray())
+                .andExpect(jsonPath("$.highScores.20").isArray())
+                .andExpect(jsonPath("$.highScores.32").isArray());
+    }
+
+    @Test
+    void deal_shouldReturnBadRequest_whenDeckIsTooSmall() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/play/deal")
+                        .param("matchId", "101")
+                        .param("cards", "10"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getActiveMemoryCards_shouldOnlyContainBoardFields() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}/cards", 101))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                [
+                    { "id": "1", "matchId": 101, "imageUrl": "https://example.com/image1.jpg" }
+                ]
+                """, true));
+    }
+
+    @Test
+    void getActiveMemorySummaries_shouldOmitDescriptionAndUserFields() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/summaries"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                [
+                    {
+                        "id": "1",
+                        "name": "Avatar Erinnerung",
+                        "matchId": 101,
+                        "category": "GITHUB_AVATAR",
+                        "isActive": true,
+                        "imageUrl": "https://example.com/image1.jpg"
+                    }
+                ]
+                """, true));
+    }
+
+    @Test
+    void getAllMemorySummaries_withLimit_shouldReturnPage() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/summaries").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "1"))
+                .andExpect(jsonPath("$[0].id").value("1"))
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+    }
+
+    @Test
+    void getActiveDeck_shouldAnswerNotModifiedForCurrentEtag() throws Exception {
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "public, no-cache"))
+                .andExpect(header().string("Surrogate-Key", "deck-101"))
+                .andReturn().getResponse().getHeader("ETag");
+        Assertions.assertNotNull(etag);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getActiveDeck_shouldChangeEtagAfterToggle() throws Exception {
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/memory-hub/1/toggle-active")
+                        .with(oidcLogin().idToken(i -> i.claim("sub", "user"))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+    }
+
+    @Test
+    void getActiveDeck_shouldServeGzipWhenAccepted() throws Exception {
+        byte[] compressed = mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101)
+                        .header("Accept-Encoding", "gzip, deflate, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        String json;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Assertions.assertTrue(json.contains("\"id\":\"1\""));
+    }
+
+    @Test
+    void getActiveDeck_shouldUseDifferentEtagPerEncoding() throws Exception {
+        String gzipEtag = mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101)
+                        .header("Accept-Encoding", "gzip"))
+                .andReturn().getResponse().getHeader("ETag");
+        String identityEtag = mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101))
+                .andReturn().getResponse().getHeader("ETag");
+
+        Assertions.assertNotEquals(gzipEtag, identityEtag);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101)
+                        .header("If-None-Match", gzipEtag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getActiveDeck_shouldServeIdentityWhenGzipNotAccepted() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-id/{numberOfMatchId}", 101)
+                        .header("Accept-Encoding", "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$[0].id").value("1"));
+    }
+
     @Test
     void getActiveMatchIds_shouldReturnListOfIntWithMatchIds() throws Exception {
         mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-ids")
@@ -212,6 +523,33 @@ class MemoryControllerIntegrationTest {
                 .andExpect(content().json("[101]"));
     }
 
+    @Test
+    void getActiveMatchIdCounts_shouldReturnMatchIdsWithActiveCardCount() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-ids/counts"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                [
+                    { "matchId": 101, "activeCount": 1 }
+                ]
+                """));
+    }
+
+    @Test
+    void toggleActive_shouldUpdateMatchIdCounts() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/memory-hub/2/toggle-active")
+                        .with(oidcLogin().idToken(i -> i.claim("sub", "user"))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/active/match-ids/counts"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                [
+                    { "matchId": 101, "activeCount": 1 },
+                    { "matchId": 102, "activeCount": 1 }
+                ]
+                """));
+    }
+
     @Test
     void getActiveMemoriesFilterByMatchId_shouldReturnFilteredMemories() throws Exception {
         // Beispiel für eine 'matchId' (z.B. 101)
@@ -345,7 +683,7 @@ class MemoryControllerIntegrationTest {
         when(cloudinary.uploader()).thenReturn(mockUploader);
 
         mockMvc.perform(MockMvcRequestBuilders.multipart("/api/memory-hub")
-                        .file(new MockMultipartFile("image", "test.jpg", "image/jpeg", "test image".getBytes()))
+                        .file(new MockMultipartFile("image", "test.jpg", "image/jpeg", JPEG_BYTES))
                         .file(new MockMultipartFile("memoryModelDto", "", "application/json", """
             {
             "name": "Avatar Erinnerung",
@@ -383,6 +721,34 @@ class MemoryControllerIntegrationTest {
                 ));
     }
 
+    @Test
+    void postMemory_shouldRejectNonImageUploadBeforeCallingCloudinary() throws Exception {
+        Uploader mockUploader = mock(Uploader.class);
+        when(cloudinary.uploader()).thenReturn(mockUploader);
+
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/api/memory-hub")
+                        .file(new MockMultipartFile("image", "test.jpg", "image/jpeg", "not an image".getBytes()))
+                        .file(new MockMultipartFile("memoryModelDto", "", "application/json", """
+            {
+             "name": "Avatar Erinnerung",
+             "matchId": 101,
+             "category": "CLOUDINARY_IMAGE",
+             "description": "Eine Erinnerung mit einem kaputten Bild",
+             "isActive": true,
+             "appUserGithubId": "user",
+             "appUserUsername": "user1",
+             "appUserAvatarUrl": "https://avatars.example.com/user1.png",
+             "appUserGithubUrl": "https://github.com/user1",
+             "imageUrl": null
+          }
+        """.getBytes()))
+                        .with(oidcLogin().idToken(i -> i.claim("sub", "user"))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unsupported image format: test.jpg"));
+
+        verify(mockUploader, never()).upload(any(), anyMap());
+    }
+
     @Test
     void postMemory_withAvatar_andReturnMemory() throws Exception {
         OAuth2User mockOAuth2User = mock(OAuth2User.class);
@@ -517,7 +883,7 @@ class MemoryControllerIntegrationTest {
         when(cloudinary.uploader()).thenReturn(mockUploader);
 
         mockMvc.perform(MockMvcRequestBuilders.multipart("/api/memory-hub/1")
-                        .file(new MockMultipartFile("image", "test.jpg", "image/jpeg", "test image".getBytes()))
+                        .file(new MockMultipartFile("image", "test.jpg", "image/jpeg", JPEG_BYTES))
                         .file(new MockMultipartFile("memoryModelDto", "", "application/json", """
             {
                 "name": "Updated Erinnerung",
@@ -560,7 +926,20 @@ class MemoryControllerIntegrationTest {
                 .andExpect(status().isNoContent());
 
         Assertions.assertTrue(memoryRepository.findById("1").isEmpty());
-        verify(mockUploader).destroy(eq("image1"), anyMap());
+        verify(mockUploader, never()).destroy(any(), anyMap());
+        Assertions.assertEquals(1, mongoTemplate.count(new Query(), ImageDeletionModel.class));
+
+        // Cloudinary wird erst vom Worker aufgerufen, gebündelt über die Admin API
+        Api mockApi = mock(Api.class);
+        ApiResponse response = mock(ApiResponse.class);
+        when(response.get("deleted")).thenReturn(Map.of("image1", "deleted"));
+        when(mockApi.deleteResources(List.of("image1"), Map.of())).thenReturn(response);
+        when(cloudinary.api()).thenReturn(mockApi);
+
+        imageDeletionWorker.drain();
+
+        verify(mockApi).deleteResources(List.of("image1"), Map.of());
+        Assertions.assertEquals(0, mongoTemplate.count(new Query(), ImageDeletionModel.class));
     }
 
 }
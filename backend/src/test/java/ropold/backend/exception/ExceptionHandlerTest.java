@@ -128,4 +128,28 @@ class ExceptionHandlerTest {
                 .andExpect(jsonPath("$.message").value("Unexpected error"));  // Überprüft die Fehlermeldung
     }
 
+    @Test
+    void whenInvalidRequestException_thenReturnsBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/search").param("q", " "))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Search term must not be blank"));
+    }
+
+    @Test
+    void whenInternalIllegalArgumentException_thenReturnsInternalServerError() throws Exception {
+        when(memoryService.getMemoryById(any())).thenThrow(new IllegalArgumentException("internal"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/{id}", "any-id"))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void whenPlayBootstrapTimeoutException_thenReturnsGatewayTimeout() throws Exception {
+        when(memoryService.getActiveMemoriesMatchIdCounts())
+                .thenThrow(new PlayBootstrapTimeoutException("Loading the game took too long, please try again later"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/memory-hub/play/bootstrap"))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.message").value("Loading the game took too long, please try again later"));
+    }
 }
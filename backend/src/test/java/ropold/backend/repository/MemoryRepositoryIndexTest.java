@@ -0,0 +1,93 @@
+package ropold.backend.repository;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import ropold.backend.model.Category;
+import ropold.backend.model.MemoryModel;
+
+import java.util.List;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class MemoryRepositoryIndexTest {
+
+    @Autowired
+    MemoryRepository memoryRepository;
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setup() {
+        memoryRepository.deleteAll();
+
+        MemoryModel memoryModel1 = new MemoryModel(
+                "1",
+                "Avatar Erinnerung",
+                101,
+                Category.GITHUB_AVATAR,
+                "Eine Erinnerung, die mit einem GitHub-Avatar verknüpft ist",
+                true,
+                "user",
+                "user1",
+                "https://avatars.example.com/user1.png",
+                "https://github.com/user1",
+                "https://example.com/image1.jpg"
+        );
+
+        MemoryModel memoryModel2 = new MemoryModel(
+                "2",
+                "Cloudinary Erinnerung",
+                102,
+                Category.CLOUDINARY_IMAGE,
+                "Eine Erinnerung, die mit einem Cloudinary-Bild gespeichert ist",
+                false,
+                "other",
+                "user2",
+                "https://avatars.example.com/user2.png",
+                "https://github.com/user2",
+                "https://example.com/image2.jpg"
+        );
+
+        memoryRepository.saveAll(List.of(memoryModel1, memoryModel2));
+    }
+
+    @Test
+    void findAllByIsActiveTrue_usesIndex() {
+        assertIndexScan(eq("isActive", true));
+    }
+
+    @Test
+    void findAllByIsActiveTrueAndMatchId_usesIndex() {
+        assertIndexScan(and(eq("isActive", true), eq("matchId", 101)));
+    }
+
+    @Test
+    void findAllByMatchId_usesIndex() {
+        assertIndexScan(eq("matchId", 101));
+    }
+
+    @Test
+    void findAllByAppUserGithubId_usesIndex() {
+        assertIndexScan(eq("appUserGithubId", "user"));
+    }
+
+    private void assertIndexScan(Bson filter) {
+        Document explain = mongoTemplate.getCollection(mongoTemplate.getCollectionName(MemoryModel.class))
+                .find(filter)
+                .explain();
+        String winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+
+        assertTrue(winningPlan.contains("IXSCAN"), "Expected an index scan but got: " + winningPlan);
+        assertFalse(winningPlan.contains("COLLSCAN"), "Unexpected collection scan: " + winningPlan);
+    }
+}
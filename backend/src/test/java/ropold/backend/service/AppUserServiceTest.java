@@ -1,10 +1,16 @@
 package ropold.backend.service;
 
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import ropold.backend.model.AppUser;
 import ropold.backend.repository.AppUserRepository;
 
@@ -20,6 +26,9 @@ class AppUserServiceTest {
     @Mock
     private AppUserRepository appUserRepository;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     @InjectMocks
     private AppUserService appUserService;
 
@@ -66,43 +75,47 @@ class AppUserServiceTest {
     }
 
     @Test
-    void addMemoryToFavorites_MemoryNotInFavorites_AddsMemory() {
+    void addMemoryToFavorites_AddsMemoryWithAddToSet() {
         String userId = "user";
         String memoryId = "memory";
-        AppUser user = new AppUser(userId, "username", "name", "avatarUrl", "githubUrl", new ArrayList<>());
-        when(appUserRepository.findById(userId)).thenReturn(Optional.of(user));
-
-        appUserService.addMemoryToFavorites(userId, memoryId);
-
-        assertTrue(user.favorites().contains(memoryId));
-        verify(appUserRepository, times(1)).save(user);
+        AppUser updated = new AppUser(userId, "username", "name", "avatarUrl", "githubUrl", List.of(memoryId));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(AppUser.class)))
+                .thenReturn(updated);
+
+        AppUser result = appUserService.addMemoryToFavorites(userId, memoryId);
+
+        assertEquals(updated, result);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(AppUser.class));
+        assertEquals(new Document("favorites", memoryId), update.getValue().getUpdateObject().get("$addToSet", Document.class));
+        verify(appUserRepository, never()).findById(userId);
+        verify(appUserRepository, never()).save(any(AppUser.class));
     }
 
     @Test
-    void addMemoryToFavorites_MemoryInFavorites_DoesNotAddMemory() {
+    void removeMemoryFromFavorites_RemovesMemoryWithPull() {
         String userId = "user";
         String memoryId = "memory";
-        AppUser user = new AppUser(userId, "username", "name", "avatarUrl", "githubUrl", List.of(memoryId));
-        when(appUserRepository.findById(userId)).thenReturn(Optional.of(user));
+        AppUser updated = new AppUser(userId, "username", "name", "avatarUrl", "githubUrl", new ArrayList<>());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(AppUser.class)))
+                .thenReturn(updated);
 
-        appUserService.addMemoryToFavorites(userId, memoryId);
+        AppUser result = appUserService.removeMemoryFromFavorites(userId, memoryId);
 
-        assertTrue(user.favorites().contains(memoryId));
-        verify(appUserRepository, never()).save(user);
+        assertTrue(result.favorites().isEmpty());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(AppUser.class));
+        assertEquals(new Document("favorites", memoryId), update.getValue().getUpdateObject().get("$pull", Document.class));
+        verify(appUserRepository, never()).save(any(AppUser.class));
     }
 
     @Test
-    void removeMemoryFromFavorites_MemoryInFavorites_DoesNothing() {
-        String userId = "user";
-        String memoryId = "memory";
-        List<String> favorites = new ArrayList<>();
-        AppUser user = new AppUser(userId, "username", "name", "avatarUrl", "githubUrl", favorites);
-        when(appUserRepository.findById(userId)).thenReturn(Optional.of(user));
-
-        appUserService.removeMemoryFromFavorites(userId, memoryId);
+    void addMemoryToFavorites_UserDoesNotExist_ThrowsException() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(AppUser.class)))
+                .thenReturn(null);
 
-        assertTrue(user.favorites().isEmpty());
-        verify(appUserRepository, never()).save(user);
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> appUserService.addMemoryToFavorites("user", "memory"));
+        assertEquals("User not found", exception.getMessage());
     }
 
 }
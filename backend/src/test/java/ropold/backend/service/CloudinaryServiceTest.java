@@ -1,7 +1,9 @@
 package ropold.backend.service;
 
+import com.cloudinary.Api;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.Uploader;
+import com.cloudinary.api.ApiResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -10,22 +12,31 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.web.multipart.MultipartFile;
 import ropold.backend.exception.ImageDeletionException;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class CloudinaryServiceTest {
 
+    private static final byte[] PNG_BYTES = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0x0D, 'I', 'H', 'D', 'R'};
+
     @Mock
     private Cloudinary cloudinary;
 
     @Mock
     private Uploader uploader;
 
+    @Mock
+    private ImageHashIndex imageHashIndex;
+
     @InjectMocks
     private CloudinaryService cloudinaryService;
 
@@ -38,55 +49,95 @@ class CloudinaryServiceTest {
     @Test
     void uploadImage_ValidImage_ReturnsSecureUrl() throws IOException {
         MultipartFile mockImage = mock(MultipartFile.class);
-        when(mockImage.getOriginalFilename()).thenReturn("image.jpg");
-        doAnswer(invocation -> {
-            // Simuliere das Speichern der Datei
-            ((File) invocation.getArgument(0)).createNewFile();
-            return null;
-        }).when(mockImage).transferTo(any(File.class));
+        when(mockImage.getOriginalFilename()).thenReturn("image.png");
+        when(mockImage.getInputStream()).thenReturn(new ByteArrayInputStream(PNG_BYTES));
 
         // Simuliere das Ergebnis des Cloudinary-Uploads
         Map<String, String> mockUploadResult = Map.of("secure_url", "https://example.com/image.jpg");
-        when(uploader.upload(any(File.class), eq(Collections.emptyMap()))).thenReturn(mockUploadResult);
+        when(uploader.upload(any(byte[].class), eq(Collections.emptyMap()))).thenReturn(mockUploadResult);
 
-        // Verifiziere, dass der Uploader aufgerufen wurde
+        // Verifiziere, dass die Bytes ohne Umweg über eine Datei hochgeladen werden
         assertEquals("https://example.com/image.jpg", cloudinaryService.uploadImage(mockImage));
-        verify(uploader, times(1)).upload(any(File.class), eq(Collections.emptyMap()));
+        verify(uploader, times(1)).upload(PNG_BYTES, Collections.emptyMap());
+        verify(mockImage, never()).transferTo(any(File.class));
+    }
+
+    @Test
+    void uploadImage_KnownContent_ReusesExistingImage() throws IOException {
+        MultipartFile mockImage = mock(MultipartFile.class);
+        when(mockImage.getInputStream()).thenReturn(new ByteArrayInputStream(PNG_BYTES));
+        when(imageHashIndex.acquire(ImageStorage.sha256(PNG_BYTES))).thenReturn(Optional.of("https://example.com/existing.png"));
+
+        assertEquals("https://example.com/existing.png", cloudinaryService.uploadImage(mockImage));
+        verify(uploader, never()).upload(any(), anyMap());
+    }
+
+    @Test
+    void uploadImage_NewContent_RegistersHash() throws IOException {
+        MultipartFile mockImage = mock(MultipartFile.class);
+        when(mockImage.getInputStream()).thenReturn(new ByteArrayInputStream(PNG_BYTES));
+        when(uploader.upload(any(byte[].class), eq(Collections.emptyMap()))).thenReturn(Map.of("secure_url", "https://example.com/image.png"));
+
+        assertEquals("https://example.com/image.png", cloudinaryService.uploadImage(mockImage));
+        verify(imageHashIndex).register(ImageStorage.sha256(PNG_BYTES), "https://example.com/image.png");
+    }
+
+    @Test
+    void uploadImage_ConcurrentUploadOfSameContent_DropsOwnCopy() throws IOException {
+        MultipartFile mockImage = mock(MultipartFile.class);
+        when(mockImage.getInputStream()).thenReturn(new ByteArrayInputStream(PNG_BYTES));
+        when(uploader.upload(any(byte[].class), eq(Collections.emptyMap()))).thenReturn(Map.of("secure_url", "https://example.com/copy.png"));
+        when(imageHashIndex.register(ImageStorage.sha256(PNG_BYTES), "https://example.com/copy.png"))
+                .thenReturn(Optional.of("https://example.com/first.png"));
+
+        assertEquals("https://example.com/first.png", cloudinaryService.uploadImage(mockImage));
+        verify(uploader).destroy("copy", Collections.emptyMap());
+    }
+
+    @Test
+    void uploadImage_NotAnImage_ThrowsBeforeUpload() throws IOException {
+        MultipartFile mockImage = mock(MultipartFile.class);
+        when(mockImage.getOriginalFilename()).thenReturn("image.jpg");
+        when(mockImage.getInputStream()).thenReturn(new ByteArrayInputStream("<html></html>".getBytes()));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> cloudinaryService.uploadImage(mockImage));
+
+        assertEquals("Unsupported image format: image.jpg", exception.getMessage());
+        verify(uploader, never()).upload(any(), anyMap());
     }
 
     @Test
     void uploadImage_ThrowsIOException_ThrowsException() throws IOException {
         MultipartFile mockImage = mock(MultipartFile.class);
         when(mockImage.getOriginalFilename()).thenReturn("image.jpg");
-        doThrow(IOException.class).when(mockImage).transferTo(any(File.class));
+        when(mockImage.getInputStream()).thenThrow(IOException.class);
 
         // Verifiziere, dass die Methode eine IOException wirft
         assertThrows(IOException.class, () -> cloudinaryService.uploadImage(mockImage));
-        verify(uploader, never()).upload(any(File.class), eq(Collections.emptyMap()));
+        verify(uploader, never()).upload(any(), anyMap());
     }
 
     @Test
-    void deleteImage_ValidImageUrl_DeletesImage() throws IOException {
-        String imageUrl = "https://example.com/image.jpg";
-        String publicId = "image";
-        when(cloudinary.uploader().destroy(publicId, Collections.emptyMap())).thenReturn(Map.of("result", "ok"));
+    void deleteImages_ReturnsDeletedAndMissingPublicIds() throws Exception {
+        Api api = mock(Api.class);
+        when(cloudinary.api()).thenReturn(api);
+        ApiResponse response = mock(ApiResponse.class);
+        when(response.get("deleted")).thenReturn(Map.of("a", "deleted", "b", "not_found", "c", "error"));
+        when(api.deleteResources(List.of("a", "b", "c"), Collections.emptyMap())).thenReturn(response);
 
-        cloudinaryService.deleteImage(imageUrl);
+        Set<String> done = cloudinaryService.deleteImages(List.of("a", "b", "c"));
 
-        verify(cloudinary.uploader(), times(1)).destroy(publicId, Collections.emptyMap());
+        assertEquals(Set.of("a", "b"), done);
     }
 
     @Test
-    void deleteImage_ThrowsIOException_ThrowsException() throws IOException {
-        String imageUrl = "https://example.com/image.jpg";
-        String publicId = "image";
-
-        doThrow(new IOException("Failed to delete image")).when(uploader).destroy(eq(publicId), eq(Collections.emptyMap()));
-
-        ImageDeletionException exception = assertThrows(ImageDeletionException.class, () -> cloudinaryService.deleteImage(imageUrl));
+    void deleteImages_ApiFails_ThrowsException() throws Exception {
+        Api api = mock(Api.class);
+        when(cloudinary.api()).thenReturn(api);
+        when(api.deleteResources(List.of("a"), Collections.emptyMap())).thenThrow(new Exception("rate limited"));
 
-        assertTrue(exception.getMessage().contains("Error deleting image from Cloudinary"));
+        ImageDeletionException exception = assertThrows(ImageDeletionException.class, () -> cloudinaryService.deleteImages(List.of("a")));
 
-        verify(uploader, times(1)).destroy(eq(publicId), eq(Collections.emptyMap()));
+        assertTrue(exception.getMessage().contains("Error deleting images from Cloudinary"));
     }
 }
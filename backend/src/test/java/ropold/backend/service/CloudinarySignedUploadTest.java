@@ -0,0 +1,152 @@
+package ropold.backend.service;
+
+import com.cloudinary.Cloudinary;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ropold.backend.exception.AccessDeniedException;
+import ropold.backend.model.SignedUploadModel;
+import ropold.backend.model.UploadedImageDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Signierter Direkt-Upload gegen einen lokalen Fake-Endpunkt, der Signaturen wie Cloudinary prüft und ausstellt
+class CloudinarySignedUploadTest {
+
+    private static final String API_SECRET = "secret";
+
+    HttpServer fakeStorage;
+    Cloudinary cloudinary;
+    CloudinaryService cloudinaryService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fakeStorage = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        fakeStorage.createContext("/v1_1/demo/image/upload", exchange -> {
+            Map<String, Object> form = parseForm(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String signature = (String) form.remove("signature");
+            form.remove("api_key");
+            form.remove("file");
+
+            boolean fresh = Instant.now().getEpochSecond() - Long.parseLong((String) form.get("timestamp")) < 3600;
+            String body;
+            int status;
+            if (fresh && cloudinary.apiSignRequest(form, API_SECRET).equals(signature)) {
+                String publicId = form.get("folder") + "/abc123";
+                String version = String.valueOf(Instant.now().getEpochSecond());
+                Map<String, Object> signed = new HashMap<>(Map.of("public_id", publicId, "version", version));
+                body = "public_id=" + publicId + "&version=" + version + "&signature=" + cloudinary.apiSignRequest(signed, API_SECRET);
+                status = 200;
+            } else {
+                body = "invalid signature";
+                status = 401;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        fakeStorage.start();
+
+        cloudinary = new Cloudinary("cloudinary://key:" + API_SECRET + "@demo?upload_prefix=http://localhost:" + fakeStorage.getAddress().getPort());
+        cloudinaryService = new CloudinaryService(cloudinary, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fakeStorage.stop(0);
+    }
+
+    @Test
+    void signUpload_browserUploadIsAcceptedAndVerified() throws Exception {
+        SignedUploadModel signedUpload = cloudinaryService.signUpload("user");
+
+        assertEquals("memory-hub/user", signedUpload.folder());
+        assertEquals("key", signedUpload.apiKey());
+        assertEquals(Instant.ofEpochSecond(signedUpload.timestamp()).plusSeconds(3600), signedUpload.expiresAt());
+
+        Map<String, Object> result = upload(signedUpload, signedUpload.folder());
+        UploadedImageDto uploadedImage = new UploadedImageDto(
+                (String) result.get("public_id"), (String) result.get("version"), (String) result.get("signature"), "png");
+
+        String imageUrl = cloudinaryService.verifyUploadedImage("user", uploadedImage);
+
+        assertEquals("https://res.cloudinary.com/demo/image/upload/v" + uploadedImage.version() + "/memory-hub/user/abc123.png", imageUrl);
+        assertEquals("memory-hub/user/abc123", cloudinaryService.extractPublicIdFromUrl(imageUrl));
+    }
+
+    @Test
+    void signUpload_tamperedFolderIsRejectedByStorage() throws Exception {
+        SignedUploadModel signedUpload = cloudinaryService.signUpload("user");
+
+        assertThrows(IllegalStateException.class, () -> upload(signedUpload, "memory-hub/someoneElse"));
+    }
+
+    @Test
+    void verifyUploadedImage_rejectsForgedSignature() {
+        UploadedImageDto forged = new UploadedImageDto("memory-hub/user/abc123", "1700000000", "0000", "png");
+
+        assertThrows(IllegalArgumentException.class, () -> cloudinaryService.verifyUploadedImage("user", forged));
+    }
+
+    @Test
+    void verifyUploadedImage_rejectsImageFromOtherUsersFolder() throws Exception {
+        SignedUploadModel signedUpload = cloudinaryService.signUpload("someoneElse");
+        Map<String, Object> result = upload(signedUpload, signedUpload.folder());
+        UploadedImageDto uploadedImage = new UploadedImageDto(
+                (String) result.get("public_id"), (String) result.get("version"), (String) result.get("signature"), "png");
+
+        assertThrows(AccessDeniedException.class, () -> cloudinaryService.verifyUploadedImage("user", uploadedImage));
+    }
+
+    // Was der Browser mit den signierten Parametern macht
+    private Map<String, Object> upload(SignedUploadModel signedUpload, String folder) throws Exception {
+        Map<String, String> form = Map.of(
+                "file", "data:image/png;base64,iVBORw0KGgo=",
+                "api_key", signedUpload.apiKey(),
+                "timestamp", String.valueOf(signedUpload.timestamp()),
+                "folder", folder,
+                "allowed_formats", signedUpload.allowedFormats(),
+                "signature", signedUpload.signature());
+        String body = form.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(signedUpload.uploadUrl()))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Upload rejected: " + response.body());
+        }
+        return parseForm(response.body());
+    }
+
+    private static Map<String, Object> parseForm(String body) {
+        Map<String, Object> values = new HashMap<>();
+        for (String pair : body.split("&")) {
+            String[] parts = pair.split("=", 2);
+            values.put(parts[0], URLDecoder.decode(parts[1], StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,107 @@
+package ropold.backend.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.Uploader;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.mockito.Mockito.*;
+
+// Vergleich alter Temp-File-Upload vs. direkter byte[]-Upload. Cloudinary selbst ist gemockt, gemessen wird
+// also nur der lokale Anteil (Temp-File schreiben bzw. Bytes lesen), der sich durch die Umstellung geändert hat.
+// Läuft nicht im normalen Build, Aufruf: mvn test -Pbenchmark
+@Tag("benchmark")
+class CloudinaryUploadBenchmarkTest {
+
+    private static final int IMAGE_SIZE = 2 * 1024 * 1024;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+
+    @Test
+    void compareTempFileAndInMemoryUpload() throws IOException {
+        Cloudinary cloudinary = mock(Cloudinary.class);
+        Uploader uploader = mock(Uploader.class);
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(), anyMap())).thenReturn(Map.of("secure_url", "https://example.com/image.jpg"));
+        // Ohne Treffer im Hash-Index, sonst würde nach dem ersten Upload gar nicht mehr hochgeladen
+        ImageHashIndex imageHashIndex = mock(ImageHashIndex.class);
+        when(imageHashIndex.acquire(anyString())).thenReturn(Optional.empty());
+        when(imageHashIndex.register(anyString(), anyString())).thenReturn(Optional.empty());
+        CloudinaryService cloudinaryService = new CloudinaryService(cloudinary, imageHashIndex);
+
+        byte[] content = new byte[IMAGE_SIZE];
+        new Random(42).nextBytes(content);
+        content[0] = (byte) 0xFF;
+        content[1] = (byte) 0xD8;
+        content[2] = (byte) 0xFF;
+        MultipartFile image = new MockMultipartFile("image", "image.jpg", "image/jpeg", content);
+
+        Path tempDir = Files.createTempDirectory("upload-benchmark");
+        try {
+            for (int i = 0; i < WARMUP; i++) {
+                legacyUpload(cloudinary, image, tempDir);
+                cloudinaryService.uploadImage(image);
+            }
+            deleteContents(tempDir);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                legacyUpload(cloudinary, image, tempDir);
+            }
+            long legacyNanos = System.nanoTime() - start;
+            long legacyDiskBytes = diskUsage(tempDir);
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                cloudinaryService.uploadImage(image);
+            }
+            long inMemoryNanos = System.nanoTime() - start;
+
+            report("temp file", legacyNanos, legacyDiskBytes);
+            report("in memory", inMemoryNanos, 0);
+        } finally {
+            deleteContents(tempDir);
+            Files.deleteIfExists(tempDir);
+        }
+    }
+
+    // Bisheriger Weg aus CloudinaryService.uploadImage (Temp-File wurde nie gelöscht)
+    private static String legacyUpload(Cloudinary cloudinary, MultipartFile image, Path tempDir) throws IOException {
+        File fileToUpload = File.createTempFile("practice-hub", "", tempDir.toFile());
+        image.transferTo(fileToUpload);
+        Map<?, ?> uploadResult = cloudinary.uploader().upload(fileToUpload, Collections.emptyMap());
+        return uploadResult.get("secure_url").toString();
+    }
+
+    private static void report(String variant, long nanos, long diskBytes) {
+        double seconds = nanos / 1_000_000_000.0;
+        double megabytes = (double) IMAGE_SIZE * ITERATIONS / (1024 * 1024);
+        System.out.printf("%-10s %8.1f uploads/s %8.1f MB/s  temp files on disk: %d MB%n",
+                variant, ITERATIONS / seconds, megabytes / seconds, diskBytes / (1024 * 1024));
+    }
+
+    private static long diskUsage(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteContents(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
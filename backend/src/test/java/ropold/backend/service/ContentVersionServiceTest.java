@@ -0,0 +1,104 @@
+package ropold.backend.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import ropold.backend.model.ContentVersionModel;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ContentVersionServiceTest {
+
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    ContentVersionService contentVersionService = new ContentVersionService(mongoTemplate, 100, Duration.ofMinutes(1));
+
+    @Test
+    void keys() {
+        assertEquals("deck-101", ContentVersionService.deck(101));
+        assertEquals("high-score-20", ContentVersionService.highScores(20));
+    }
+
+    @Test
+    void getVersion_missingKey_createsVersion() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ContentVersionModel.class)))
+                .thenReturn(new ContentVersionModel("catalog", "abc", null));
+
+        assertEquals("abc", contentVersionService.getVersion(ContentVersionService.CATALOG));
+    }
+
+    @Test
+    void getVersion_existingKey_readsWithoutWrite() {
+        when(mongoTemplate.findById("deck-101", ContentVersionModel.class)).thenReturn(new ContentVersionModel("deck-101", "def", null));
+
+        assertEquals("def", contentVersionService.getVersion("deck-101"));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ContentVersionModel.class));
+    }
+
+    @Test
+    void bump_setsNewVersionEveryTime() {
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+
+        contentVersionService.bump("deck-101");
+        contentVersionService.bump("deck-101");
+
+        verify(mongoTemplate, times(2)).upsert(any(Query.class), updates.capture(), eq(ContentVersionModel.class));
+        assertNotEquals(updates.getAllValues().get(0), updates.getAllValues().get(1));
+    }
+
+    @Test
+    void getVersion_cachedKey_readsMongoOnce() {
+        when(mongoTemplate.findById("deck-101", ContentVersionModel.class)).thenReturn(new ContentVersionModel("deck-101", "def", null));
+
+        contentVersionService.getVersion("deck-101");
+        contentVersionService.getVersion("deck-101");
+
+        verify(mongoTemplate, times(1)).findById("deck-101", ContentVersionModel.class);
+    }
+
+    @Test
+    void bump_dropsCachedVersion() {
+        when(mongoTemplate.findById("deck-101", ContentVersionModel.class))
+                .thenReturn(new ContentVersionModel("deck-101", "def", null))
+                .thenReturn(new ContentVersionModel("deck-101", "ghi", null));
+
+        assertEquals("def", contentVersionService.getVersion("deck-101"));
+        contentVersionService.bump("deck-101");
+
+        assertEquals("ghi", contentVersionService.getVersion("deck-101"));
+    }
+
+    @Test
+    void bump_withExpiry_setsExpiresAt() {
+        Instant end = Instant.parse("2025-03-05T23:00:00Z");
+
+        contentVersionService.bump("high-score-10-today-2025-03-05", end);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq(ContentVersionModel.class));
+        assertEquals(end, update.getValue().getUpdateObject().get("$set", Document.class).get("expiresAt"));
+    }
+
+    @Test
+    void getVersion_withExpiry_createsExpiringKey() {
+        Instant end = Instant.parse("2025-03-05T23:00:00Z");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ContentVersionModel.class)))
+                .thenReturn(new ContentVersionModel("high-score-10-today-2025-03-05", "abc", end));
+
+        assertEquals("abc", contentVersionService.getVersion("high-score-10-today-2025-03-05", end));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(ContentVersionModel.class));
+        assertEquals(end, update.getValue().getUpdateObject().get("$setOnInsert", Document.class).get("expiresAt"));
+    }
+}
@@ -0,0 +1,248 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import ropold.backend.exception.ImageProxyException;
+import ropold.backend.model.Category;
+import ropold.backend.model.DeckAtlasModel;
+import ropold.backend.model.DeckAtlasTile;
+import ropold.backend.model.MemoryModel;
+import ropold.backend.repository.MemoryRepository;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DeckAtlasServiceTest {
+
+    @TempDir
+    Path directory;
+
+    MemoryRepository memoryRepository = mock(MemoryRepository.class);
+    ImageProxyService imageProxyService = mock(ImageProxyService.class);
+    ContentVersionService contentVersionService = mock(ContentVersionService.class);
+    ImageProcessingService imageProcessingService = new ImageProcessingService(1600, 320, 0.9f, 50_000_000, Duration.ofSeconds(30), 1, 4);
+    LocalImageStorage localImageStorage;
+    DeckAtlasService deckAtlasService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(contentVersionService.getVersion(ContentVersionService.deck(101))).thenReturn("v1");
+        localImageStorage = new LocalImageStorage(directory.resolve("images"), "/api/images", mock(ImageHashIndex.class));
+        @SuppressWarnings("unchecked")
+        ObjectProvider<LocalImageStorage> localImageStorageProvider = mock(ObjectProvider.class);
+        when(localImageStorageProvider.getIfAvailable()).thenReturn(localImageStorage);
+        deckAtlasService = new DeckAtlasService(memoryRepository, imageProxyService, imageProcessingService, contentVersionService,
+                localImageStorageProvider, directory.resolve("atlas"), "/api/deck-atlas/images/", 64, Duration.ofSeconds(2), Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        deckAtlasService.shutdown();
+        imageProcessingService.shutdown();
+    }
+
+    @Test
+    void buildNow_placesEveryCardInItsOwnTile() throws IOException {
+        // Given
+        MemoryModel red = memory("b", localImageStorage.uploadImage(png(200, 100, Color.RED)));
+        MemoryModel blue = memory("a", localImageStorage.uploadImage(png(50, 80, Color.BLUE)));
+        MemoryModel green = memory("c", localImageStorage.uploadImage(png(64, 64, Color.GREEN)));
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(red, blue, green));
+
+        // When
+        DeckAtlasModel atlas = deckAtlasService.buildNow(101).model();
+
+        // Then
+        assertEquals(128, atlas.width());
+        assertEquals(128, atlas.height());
+        assertEquals(new DeckAtlasTile(0, 0, 64, 64), atlas.tiles().get("a"));
+        assertEquals(new DeckAtlasTile(64, 0, 64, 64), atlas.tiles().get("b"));
+        assertEquals(new DeckAtlasTile(0, 64, 64, 64), atlas.tiles().get("c"));
+        assertEquals("/api/deck-atlas/images/" + atlas.version() + ".jpg", atlas.imageUrl());
+
+        BufferedImage image = ImageIO.read(deckAtlasService.resolve(atlas.version() + ".jpg").orElseThrow().toFile());
+        assertColor(Color.BLUE, image.getRGB(32, 32));
+        assertColor(Color.RED, image.getRGB(96, 32));
+        assertColor(Color.GREEN, image.getRGB(32, 96));
+    }
+
+    @Test
+    void getAtlas_buildsInBackgroundAndRebuildsAfterDeckChange() throws Exception {
+        // Given
+        MemoryModel red = memory("a", localImageStorage.uploadImage(png(10, 10, Color.RED)));
+        MemoryModel blue = memory("b", localImageStorage.uploadImage(png(10, 10, Color.BLUE)));
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(red));
+
+        // When
+        assertEquals(Optional.empty(), deckAtlasService.getAtlas(101));
+        DeckAtlasModel first = awaitAtlas(101);
+
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(red, blue));
+        deckAtlasService.deckChanged(101);
+        DeckAtlasModel second = awaitAtlas(101);
+
+        // Then: die abgelöste Datei bleibt noch für die Übergangszeit erreichbar
+        assertEquals(1, first.tiles().size());
+        assertEquals(2, second.tiles().size());
+        assertNotEquals(first.version(), second.version());
+        assertTrue(deckAtlasService.resolve(first.version() + ".jpg").isPresent());
+        assertTrue(deckAtlasService.resolve(second.version() + ".jpg").isPresent());
+        awaitDeleted(first.version() + ".jpg");
+        assertTrue(deckAtlasService.resolve(second.version() + ".jpg").isPresent());
+    }
+
+    @Test
+    void getAtlas_rebuildsWhenDeckVersionChangedElsewhere() throws Exception {
+        // Given
+        MemoryModel red = memory("a", localImageStorage.uploadImage(png(10, 10, Color.RED)));
+        MemoryModel blue = memory("b", localImageStorage.uploadImage(png(10, 10, Color.BLUE)));
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(red));
+        deckAtlasService.getAtlas(101);
+        DeckAtlasModel first = awaitAtlas(101);
+
+        // When: eine andere Instanz hat das Deck geändert, hier kommt kein deckChanged an
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(red, blue));
+        when(contentVersionService.getVersion(ContentVersionService.deck(101))).thenReturn("v2");
+
+        // Then
+        assertEquals(Optional.empty(), deckAtlasService.getAtlas(101));
+        DeckAtlasModel second = awaitAtlas(101);
+        assertEquals(1, first.tiles().size());
+        assertEquals(2, second.tiles().size());
+    }
+
+    @Test
+    void getAtlas_staysEmptyWhenAnImageCanNotBeLoaded() throws Exception {
+        // Given
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(memory("a", "https://example.com/image1.jpg")));
+        when(imageProxyService.isProxyable("https://example.com/image1.jpg")).thenReturn(true);
+        when(imageProxyService.getImageByUrl("https://example.com/image1.jpg")).thenThrow(new ImageProxyException("Image host is down"));
+
+        // When
+        deckAtlasService.getAtlas(101);
+
+        // Then
+        verify(imageProxyService, timeout(5000)).getImageByUrl("https://example.com/image1.jpg");
+        Thread.sleep(100);
+        assertEquals(Optional.empty(), deckAtlasService.getAtlas(101));
+    }
+
+    @Test
+    void buildNow_skipsCardsWhoseImageIsNotAllowed() throws IOException {
+        // Given
+        MemoryModel red = memory("a", localImageStorage.uploadImage(png(10, 10, Color.RED)));
+        MemoryModel foreign = memory("b", "https://evil.example.com/image.jpg");
+        MemoryModel withoutImage = memory("c", null);
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(red, foreign, withoutImage));
+
+        // When
+        DeckAtlasModel atlas = deckAtlasService.buildNow(101).model();
+
+        // Then: nur die ladbare Karte hat eine Kachel, die anderen lädt der Client einzeln
+        assertEquals(List.of("a"), List.copyOf(atlas.tiles().keySet()));
+        verify(imageProxyService, never()).getImageByUrl(any());
+    }
+
+    @Test
+    void getAtlas_failedBuildIsNotRetriedOnEveryRequest() throws Exception {
+        // Given
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(memory("a", "https://example.com/image1.jpg")));
+        when(imageProxyService.isProxyable("https://example.com/image1.jpg")).thenReturn(true);
+        when(imageProxyService.getImageByUrl("https://example.com/image1.jpg")).thenThrow(new IllegalStateException("Image host is down"));
+        deckAtlasService.getAtlas(101);
+        verify(imageProxyService, timeout(5000)).getImageByUrl("https://example.com/image1.jpg");
+        Thread.sleep(100);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Optional.empty(), deckAtlasService.getAtlas(101));
+        }
+        Thread.sleep(100);
+
+        // Then
+        verify(imageProxyService, times(1)).getImageByUrl("https://example.com/image1.jpg");
+    }
+
+    @Test
+    void deckChanged_retriesFailedBuildImmediately() throws Exception {
+        // Given
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(memory("a", "https://example.com/image1.jpg")));
+        when(imageProxyService.isProxyable("https://example.com/image1.jpg")).thenReturn(true);
+        when(imageProxyService.getImageByUrl("https://example.com/image1.jpg")).thenThrow(new IllegalStateException("Image host is down"));
+        deckAtlasService.getAtlas(101);
+        verify(imageProxyService, timeout(5000)).getImageByUrl("https://example.com/image1.jpg");
+        Thread.sleep(100);
+
+        // When
+        deckAtlasService.deckChanged(101);
+
+        // Then
+        verify(imageProxyService, timeout(5000).times(2)).getImageByUrl("https://example.com/image1.jpg");
+    }
+
+    @Test
+    void resolve_rejectsPathTraversal() {
+        assertTrue(deckAtlasService.resolve("../images/secret.jpg").isEmpty());
+    }
+
+    private void awaitDeleted(String name) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (deckAtlasService.resolve(name).isPresent()) {
+            if (System.nanoTime() > deadline) {
+                fail(name + " was not deleted");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private DeckAtlasModel awaitAtlas(int matchId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (System.nanoTime() < deadline) {
+            Optional<DeckAtlasModel> atlas = deckAtlasService.getAtlas(matchId);
+            if (atlas.isPresent()) {
+                return atlas.get();
+            }
+            Thread.sleep(20);
+        }
+        return fail("Atlas for " + matchId + " was not built");
+    }
+
+    private static MemoryModel memory(String id, String imageUrl) {
+        return new MemoryModel(id, "Karte " + id, 101, Category.CLOUDINARY_IMAGE, "Beschreibung", true,
+                "user", "username", "avatarUrl", "githubUrl", imageUrl);
+    }
+
+    private static byte[] png(int width, int height, Color color) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, color.getRGB());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static void assertColor(Color expected, int rgb) {
+        Color actual = new Color(rgb);
+        assertTrue(Math.abs(expected.getRed() - actual.getRed()) < 40
+                        && Math.abs(expected.getGreen() - actual.getGreen()) < 40
+                        && Math.abs(expected.getBlue() - actual.getBlue()) < 40,
+                "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,92 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.Test;
+import ropold.backend.model.Category;
+import ropold.backend.model.DeckCacheStats;
+import ropold.backend.model.MemoryModel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DeckCacheTest {
+
+    DeckCache deckCache = new DeckCache(10, Duration.ofMinutes(10));
+
+    MemoryModel memoryModel = new MemoryModel(
+            "1",
+            "Avatar Erinnerung",
+            101,
+            Category.GITHUB_AVATAR,
+            "Eine Erinnerung, die mit einem GitHub-Avatar verknüpft ist",
+            true,
+            "github123",
+            "user1",
+            "https://avatars.example.com/user1.png",
+            "https://github.com/user1",
+            "https://example.com/image1.jpg"
+    );
+
+    @Test
+    void getActiveDeck_loadsOncePerMatchId() {
+        AtomicInteger loads = new AtomicInteger();
+
+        deckCache.getActiveDeck(101, "v1", matchId -> {
+            loads.incrementAndGet();
+            return List.of(memoryModel);
+        });
+        List<MemoryModel> cached = deckCache.getActiveDeck(101, "v1", matchId -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals(List.of(memoryModel), cached);
+    }
+
+    @Test
+    void evict_forcesReload() {
+        deckCache.getActiveDeck(101, "v1", matchId -> List.of(memoryModel));
+
+        deckCache.evict(101);
+        List<MemoryModel> reloaded = deckCache.getActiveDeck(101, "v1", matchId -> List.of());
+
+        assertEquals(List.of(), reloaded);
+    }
+
+    @Test
+    void getActiveDeck_newVersion_reloads() {
+        deckCache.getActiveDeck(101, "v1", matchId -> List.of(memoryModel));
+
+        // Eine andere Instanz hat das Deck geändert und die Version erhöht
+        List<MemoryModel> reloaded = deckCache.getActiveDeck(101, "v2", matchId -> List.of());
+        List<MemoryModel> cached = deckCache.getActiveDeck(101, "v2", matchId -> List.of(memoryModel));
+
+        assertEquals(List.of(), reloaded);
+        assertEquals(List.of(), cached);
+    }
+
+    @Test
+    void getActiveDeck_returnsUnmodifiableList() {
+        List<MemoryModel> deck = deckCache.getActiveDeck(101, "v1", matchId -> new ArrayList<>(List.of(memoryModel)));
+
+        assertThrows(UnsupportedOperationException.class, () -> deck.add(memoryModel));
+    }
+
+    @Test
+    void getStats_countsHitsAndMisses() {
+        deckCache.getActiveDeck(101, "v1", matchId -> List.of(memoryModel));
+        deckCache.getActiveDeck(101, "v1", matchId -> List.of(memoryModel));
+        deckCache.getActiveDeck(102, "v1", matchId -> List.of());
+
+        DeckCacheStats stats = deckCache.getStats();
+
+        assertEquals(2, stats.size());
+        assertEquals(1, stats.hitCount());
+        assertEquals(2, stats.missCount());
+    }
+}
@@ -0,0 +1,124 @@
+package ropold.backend.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import ropold.backend.model.Category;
+import ropold.backend.model.DeckCountModel;
+import ropold.backend.model.MemoryModel;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DeckCountServiceTest {
+
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    DeckCountService deckCountService = new DeckCountService(mongoTemplate);
+
+    MemoryModel activeMemory = new MemoryModel(
+            "1",
+            "Avatar Erinnerung",
+            101,
+            Category.GITHUB_AVATAR,
+            "Eine Erinnerung, die mit einem GitHub-Avatar verknüpft ist",
+            true,
+            "github123",
+            "user1",
+            "https://avatars.example.com/user1.png",
+            "https://github.com/user1",
+            "https://example.com/image1.jpg"
+    );
+
+    MemoryModel inactiveMemory = new MemoryModel(
+            "1",
+            activeMemory.name(),
+            activeMemory.matchId(),
+            activeMemory.category(),
+            activeMemory.description(),
+            false,
+            activeMemory.appUserGithubId(),
+            activeMemory.appUserUsername(),
+            activeMemory.appUserAvatarUrl(),
+            activeMemory.appUserGithubUrl(),
+            activeMemory.imageUrl()
+    );
+
+    @Test
+    void getActiveDeckCounts() {
+        // Given
+        List<DeckCountModel> deckCounts = List.of(new DeckCountModel(101, 3));
+        when(mongoTemplate.find(any(Query.class), eq(DeckCountModel.class))).thenReturn(deckCounts);
+
+        // When
+        List<DeckCountModel> actual = deckCountService.getActiveDeckCounts();
+
+        // Then
+        assertEquals(deckCounts, actual);
+    }
+
+    @Test
+    void memoryChanged_addActiveMemory_incrementsOnce() {
+        deckCountService.memoryChanged(null, activeMemory);
+
+        verify(mongoTemplate, times(1)).upsert(any(Query.class), eq(new Update().inc("activeCount", 1)), eq(DeckCountModel.class));
+        verify(mongoTemplate, never()).upsert(any(Query.class), eq(new Update().inc("activeCount", -1)), eq(DeckCountModel.class));
+    }
+
+    @Test
+    void memoryChanged_addInactiveMemory_doesNothing() {
+        deckCountService.memoryChanged(null, inactiveMemory);
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void memoryChanged_deactivate_decrements() {
+        deckCountService.memoryChanged(activeMemory, inactiveMemory);
+
+        verify(mongoTemplate, times(1)).upsert(any(Query.class), eq(new Update().inc("activeCount", -1)), eq(DeckCountModel.class));
+        verify(mongoTemplate, never()).upsert(any(Query.class), eq(new Update().inc("activeCount", 1)), eq(DeckCountModel.class));
+    }
+
+    @Test
+    void memoryChanged_deleteActiveMemory_decrements() {
+        deckCountService.memoryChanged(activeMemory, null);
+
+        verify(mongoTemplate, times(1)).upsert(any(Query.class), eq(new Update().inc("activeCount", -1)), eq(DeckCountModel.class));
+    }
+
+    @Test
+    void rebuildDeckCounts_setsEachCounterWithoutClearingCollection() {
+        // Given
+        AggregationResults<DeckCountModel> results = new AggregationResults<>(List.of(new DeckCountModel(101, 3)), new Document());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(MemoryModel.class), eq(DeckCountModel.class))).thenReturn(results);
+
+        // When
+        deckCountService.rebuildDeckCounts();
+
+        // Then
+        verify(mongoTemplate, times(1)).upsert(any(Query.class), eq(new Update().set("activeCount", 3L)), eq(DeckCountModel.class));
+        verify(mongoTemplate, times(1)).updateMulti(any(Query.class), eq(new Update().set("activeCount", 0)), eq(DeckCountModel.class));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(DeckCountModel.class));
+    }
+
+    @Test
+    void afterSingletonsInstantiated_rebuildsBeforeServingRequests() {
+        // Given
+        AggregationResults<DeckCountModel> results = new AggregationResults<>(List.of(), new Document());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(MemoryModel.class), eq(DeckCountModel.class))).thenReturn(results);
+
+        // When
+        deckCountService.afterSingletonsInstantiated();
+
+        // Then
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), eq(MemoryModel.class), eq(DeckCountModel.class));
+    }
+}
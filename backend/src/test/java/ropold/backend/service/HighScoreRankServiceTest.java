@@ -0,0 +1,291 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import ropold.backend.model.DeckHighScoreBoardModel;
+import ropold.backend.model.HighScoreBoardModel;
+import ropold.backend.model.HighScoreLogModel;
+import ropold.backend.model.HighScoreModel;
+import ropold.backend.model.HighScorePercentileModel;
+import ropold.backend.model.HighScoreRankModel;
+import ropold.backend.model.HighScoreWindow;
+import ropold.backend.model.HighScoreWindowBoardModel;
+import ropold.backend.model.MigrationMarkerModel;
+import ropold.backend.model.SequenceModel;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+class HighScoreRankServiceTest {
+
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    HighScoreRankService highScoreRankService = new HighScoreRankService(mongoTemplate, Duration.ofMinutes(1));
+    AtomicInteger ids = new AtomicInteger();
+    AtomicLong sequence = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(SequenceModel.class)))
+                .thenAnswer(invocation -> new SequenceModel(HighScoreRankService.LOG_SEQUENCE, sequence.incrementAndGet()));
+        when(mongoTemplate.insert(any(HighScoreLogModel.class))).thenAnswer(invocation -> {
+            HighScoreLogModel entry = invocation.getArgument(0);
+            return new HighScoreLogModel("log-" + ids.incrementAndGet(), entry.sequence(), entry.highScoreId(), entry.matchId(),
+                    entry.numberOfCards(), entry.scoreTime(), entry.removed(), entry.createdAt());
+        });
+        when(mongoTemplate.stream(any(Query.class), eq(HighScoreLogModel.class))).thenReturn(Stream.empty());
+    }
+
+    @Test
+    void getRank_countsAllScoresNotOnlyTheBestTen() {
+        // Given
+        highScoreRankService.load();
+        for (int i = 1; i <= 100; i++) {
+            highScoreRankService.record(score(String.valueOf(i), i % 2 == 0 ? 1 : 2, i));
+        }
+
+        // When
+        HighScoreRankModel overall = highScoreRankService.getRank(10, null, 37);
+        HighScoreRankModel deck = highScoreRankService.getRank(10, 1, 37.5);
+
+        // Then
+        assertEquals(new HighScoreRankModel(10, null, 37, 37, 100, 63.0), overall);
+        assertEquals(19, deck.rank());
+        assertEquals(50, deck.total());
+    }
+
+    @Test
+    void getRank_withoutScores_isFirstOfNone() {
+        assertEquals(new HighScoreRankModel(16, null, 12.5, 1, 0, 100.0), highScoreRankService.getRank(16, null, 12.5));
+    }
+
+    @Test
+    void getRank_rejectsInvalidTime() {
+        assertThrows(IllegalArgumentException.class, () -> highScoreRankService.getRank(10, null, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> highScoreRankService.getRank(10, null, -1));
+    }
+
+    @Test
+    void getPercentile_returnsTimeAtPercentile() {
+        // Given
+        highScoreRankService.load();
+        for (int i = 1; i <= 10; i++) {
+            highScoreRankService.record(score(String.valueOf(i), 1, i * 10));
+        }
+
+        // Then
+        assertEquals(new HighScorePercentileModel(10, null, 50, 50.0, 10), highScoreRankService.getPercentile(10, null, 50));
+        assertEquals(10.0, highScoreRankService.getPercentile(10, null, 0).scoreTime());
+        assertEquals(100.0, highScoreRankService.getPercentile(10, 1, 100).scoreTime());
+        assertNull(highScoreRankService.getPercentile(20, null, 50).scoreTime());
+        assertThrows(IllegalArgumentException.class, () -> highScoreRankService.getPercentile(10, null, 101));
+    }
+
+    @Test
+    void recordRemoval_removesScoreFromRanking() {
+        // Given
+        highScoreRankService.load();
+        HighScoreModel cheater = score("1", 1, 0.1);
+        highScoreRankService.record(cheater);
+        highScoreRankService.record(score("2", 1, 20));
+        when(mongoTemplate.find(query(where("highScoreId").is("1")), HighScoreLogModel.class))
+                .thenReturn(List.of(new HighScoreLogModel("log-1", 1, "1", 1, 10, 0.1, false, Instant.now())));
+
+        // When
+        highScoreRankService.recordRemoval("1");
+
+        // Then
+        assertEquals(1, highScoreRankService.getRank(10, null, 20).rank());
+        assertEquals(1, highScoreRankService.getRank(10, null, 20).total());
+    }
+
+    @Test
+    void recordRemoval_unknownOrAlreadyRemoved_appendsNothing() {
+        // Given
+        highScoreRankService.load();
+        when(mongoTemplate.find(query(where("highScoreId").is("1")), HighScoreLogModel.class)).thenReturn(List.of(
+                new HighScoreLogModel("log-1", 1, "1", 1, 10, 0.1, false, Instant.now()),
+                new HighScoreLogModel("log-2", 2, "1", 1, 10, 0.1, true, Instant.now())));
+
+        // When
+        highScoreRankService.recordRemoval("1");
+        highScoreRankService.recordRemoval("unknown");
+
+        // Then
+        verify(mongoTemplate, never()).insert(any(HighScoreLogModel.class));
+    }
+
+    @Test
+    void poll_appliesEntriesOfOtherInstancesOnce() {
+        // Given
+        highScoreRankService.load();
+        highScoreRankService.record(score("1", 1, 30));
+        HighScoreLogModel own = new HighScoreLogModel("log-1", 1, "1", 1, 10, 30, false, Instant.now());
+        HighScoreLogModel other = new HighScoreLogModel("other-1", 2, "2", 1, 10, 20, false, Instant.now());
+        when(mongoTemplate.find(any(Query.class), eq(HighScoreLogModel.class))).thenReturn(List.of(own, other));
+
+        // When
+        highScoreRankService.poll();
+        highScoreRankService.poll();
+
+        // Then
+        assertEquals(2, highScoreRankService.getRank(10, null, 30).total());
+        assertEquals(2, highScoreRankService.getRank(10, null, 30).rank());
+    }
+
+    @Test
+    void poll_readsFromOldestGapUntilItIsFilled() {
+        // Given: Nummer 1 ist vergeben, aber noch nicht geschrieben, als Nummer 2 schon sichtbar ist
+        highScoreRankService.load();
+        HighScoreLogModel late = new HighScoreLogModel("other-1", 1, "1", 1, 10, 30, false, Instant.now());
+        HighScoreLogModel early = new HighScoreLogModel("other-2", 2, "2", 1, 10, 20, false, Instant.now());
+        when(mongoTemplate.find(any(Query.class), eq(HighScoreLogModel.class))).thenReturn(List.of(early))
+                .thenReturn(List.of(late, early))
+                .thenReturn(List.of());
+
+        // When
+        highScoreRankService.poll();
+        highScoreRankService.poll();
+        highScoreRankService.poll();
+
+        // Then
+        assertEquals(2, highScoreRankService.getRank(10, null, 30).total());
+        verify(mongoTemplate, times(2)).find(eq(query(where("sequence").gt(0L)).with(Sort.by("sequence"))), eq(HighScoreLogModel.class));
+        verify(mongoTemplate).find(eq(query(where("sequence").gt(2L)).with(Sort.by("sequence"))), eq(HighScoreLogModel.class));
+    }
+
+    @Test
+    void poll_givesUpGapsAfterTimeout() {
+        // Given
+        HighScoreRankService withoutGapTimeout = new HighScoreRankService(mongoTemplate, Duration.ZERO);
+        withoutGapTimeout.load();
+        HighScoreLogModel afterGap = new HighScoreLogModel("other-2", 2, "2", 1, 10, 20, false, Instant.now());
+        when(mongoTemplate.find(any(Query.class), eq(HighScoreLogModel.class))).thenReturn(List.of(afterGap))
+                .thenReturn(List.of());
+
+        // When
+        withoutGapTimeout.poll();
+        withoutGapTimeout.poll();
+
+        // Then
+        verify(mongoTemplate).find(eq(query(where("sequence").gt(2L)).with(Sort.by("sequence"))), eq(HighScoreLogModel.class));
+    }
+
+    @Test
+    void poll_doesNothingBeforeLoad() {
+        // When
+        highScoreRankService.poll();
+
+        // Then
+        verify(mongoTemplate, never()).find(any(Query.class), eq(HighScoreLogModel.class));
+    }
+
+    @Test
+    void load_replaysLogAndSeedsFromBoardsOnce() {
+        // Given
+        sequence.set(1);
+        when(mongoTemplate.findAll(HighScoreBoardModel.class)).thenReturn(List.of(new HighScoreBoardModel(10, List.of(score("1", 1, 15)))));
+        HighScoreLogModel old = new HighScoreLogModel("old-1", 1, "0", 2, 10, 5, false, Instant.now().minus(Duration.ofDays(30)));
+        when(mongoTemplate.stream(any(Query.class), eq(HighScoreLogModel.class)))
+                .thenReturn(Stream.of(old, new HighScoreLogModel("log-1", 2, "1", 1, 10, 15, false, Instant.now())));
+
+        // When
+        highScoreRankService.load();
+
+        // Then
+        verify(mongoTemplate).insert(any(MigrationMarkerModel.class));
+        HighScoreRankModel rank = highScoreRankService.getRank(10, null, 15);
+        assertEquals(2, rank.total());
+        assertEquals(2, rank.rank());
+    }
+
+    @Test
+    void load_skipsSeedWhenAnotherInstanceOwnsTheMarker() {
+        // Given
+        when(mongoTemplate.insert(any(MigrationMarkerModel.class))).thenThrow(new DuplicateKeyException("duplicate key"));
+
+        // When
+        highScoreRankService.load();
+
+        // Then
+        verify(mongoTemplate, never()).findAll(HighScoreBoardModel.class);
+        verify(mongoTemplate, never()).insert(any(HighScoreLogModel.class));
+    }
+
+    @Test
+    void load_seedSkipsScoresAlreadyInLog() {
+        // Given
+        when(mongoTemplate.findAll(HighScoreBoardModel.class)).thenReturn(List.of(new HighScoreBoardModel(10, List.of(score("1", 1, 15)))));
+        when(mongoTemplate.exists(query(where("highScoreId").is("1")), HighScoreLogModel.class)).thenReturn(true);
+
+        // When
+        highScoreRankService.load();
+
+        // Then
+        verify(mongoTemplate, never()).insert(any(HighScoreLogModel.class));
+    }
+
+    @Test
+    void load_seedsEveryScoreOfAllBoardsOnce() {
+        // Given: "2" ist nur in der Deck-Liste, "3" nur in der Tagesliste, "4" nur noch in den alten Einzeldokumenten
+        HighScoreModel onAllBoards = score("1", 1, 15);
+        when(mongoTemplate.findAll(HighScoreBoardModel.class)).thenReturn(List.of(new HighScoreBoardModel(10, List.of(onAllBoards))));
+        when(mongoTemplate.findAll(DeckHighScoreBoardModel.class)).thenReturn(List.of(
+                new DeckHighScoreBoardModel("board", 10, 1, List.of(onAllBoards, score("2", 1, 25)))));
+        when(mongoTemplate.findAll(HighScoreWindowBoardModel.class)).thenReturn(List.of(
+                new HighScoreWindowBoardModel("TODAY:2025-03-05:10", HighScoreWindow.TODAY, "2025-03-05", 10,
+                        List.of(onAllBoards, score("3", 2, 35)), null)));
+        when(mongoTemplate.collectionExists(HighScoreService.LEGACY_COLLECTION)).thenReturn(true);
+        when(mongoTemplate.findAll(HighScoreModel.class, HighScoreService.LEGACY_COLLECTION)).thenReturn(List.of(onAllBoards, score("4", 2, 45)));
+
+        // When
+        highScoreRankService.load();
+
+        // Then
+        ArgumentCaptor<HighScoreLogModel> seeded = ArgumentCaptor.forClass(HighScoreLogModel.class);
+        verify(mongoTemplate, times(4)).insert(seeded.capture());
+        assertEquals(List.of("1", "4", "2", "3"), seeded.getAllValues().stream().map(HighScoreLogModel::highScoreId).toList());
+    }
+
+    @Test
+    void record_beforeLoad_isAppliedByLoadWithoutGaps() {
+        // Given: der Log hat schon viele Einträge, ein Score kommt vor load() an
+        sequence.set(5_000_000);
+        when(mongoTemplate.insert(any(MigrationMarkerModel.class))).thenThrow(new DuplicateKeyException("duplicate key"));
+        highScoreRankService.record(score("1", 1, 15));
+        assertEquals(0, highScoreRankService.getRank(10, null, 15).total());
+        when(mongoTemplate.stream(any(Query.class), eq(HighScoreLogModel.class)))
+                .thenReturn(Stream.of(new HighScoreLogModel("log-1", 5_000_000, "0", 1, 10, 5, false, Instant.now()),
+                        new HighScoreLogModel("log-2", 5_000_001, "1", 1, 10, 15, false, Instant.now())));
+
+        // When
+        highScoreRankService.load();
+        highScoreRankService.poll();
+
+        // Then: die Nummern vor dem Log-Anfang gelten nicht als offene Lücken
+        assertEquals(2, highScoreRankService.getRank(10, null, 15).total());
+        verify(mongoTemplate).find(eq(query(where("sequence").gt(5_000_000 - HighScoreRankService.MAX_OPEN_GAPS - 1L)).with(Sort.by("sequence"))),
+                eq(HighScoreLogModel.class));
+    }
+
+    private static HighScoreModel score(String id, int matchId, double scoreTime) {
+        return new HighScoreModel(id, "player" + id, "github", matchId, 10, scoreTime, LocalDateTime.of(2025, 3, 5, 12, 0));
+    }
+}
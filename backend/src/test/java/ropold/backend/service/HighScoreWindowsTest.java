@@ -0,0 +1,64 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.Test;
+import ropold.backend.model.HighScoreWindow;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HighScoreWindowsTest {
+
+    ZoneId berlin = ZoneId.of("Europe/Berlin");
+
+    @Test
+    void periodsAt_dayAndIsoWeekStartingMonday() {
+        // Given: Sonntag, 2026-10-18
+        ZonedDateTime now = ZonedDateTime.of(2026, 10, 18, 23, 30, 0, 0, berlin);
+
+        // When
+        Map<HighScoreWindow, HighScoreWindows.Period> periods = HighScoreWindows.periodsAt(now);
+
+        // Then
+        HighScoreWindows.Period today = periods.get(HighScoreWindow.TODAY);
+        assertEquals("2026-10-18", today.key());
+        assertEquals(Instant.parse("2026-10-17T22:00:00Z"), today.start());
+        assertEquals(Instant.parse("2026-10-18T22:00:00Z"), today.end());
+
+        HighScoreWindows.Period week = periods.get(HighScoreWindow.WEEK);
+        assertEquals("2026-W42", week.key());
+        assertEquals(Instant.parse("2026-10-11T22:00:00Z"), week.start());
+        assertEquals(Instant.parse("2026-10-18T22:00:00Z"), week.end());
+    }
+
+    @Test
+    void periodsAt_weekAcrossYearBoundary_usesWeekBasedYear() {
+        // Given: Freitag, 2027-01-01 gehört zur ISO-Woche 53 von 2026
+        ZonedDateTime now = ZonedDateTime.of(2027, 1, 1, 12, 0, 0, 0, berlin);
+
+        // When
+        HighScoreWindows.Period week = HighScoreWindows.periodsAt(now).get(HighScoreWindow.WEEK);
+
+        // Then
+        assertEquals("2026-W53", week.key());
+    }
+
+    @Test
+    void current_allTime_throwsIllegalArgumentException() {
+        HighScoreWindows highScoreWindows = new HighScoreWindows(berlin);
+
+        assertThrows(IllegalArgumentException.class, () -> highScoreWindows.current(HighScoreWindow.ALL_TIME));
+    }
+
+    @Test
+    void current_containsNow() {
+        HighScoreWindows.Period today = new HighScoreWindows(berlin).current(HighScoreWindow.TODAY);
+
+        Instant now = Instant.now();
+        assertFalse(now.isBefore(today.start()));
+        assertTrue(now.isBefore(today.end()));
+    }
+}
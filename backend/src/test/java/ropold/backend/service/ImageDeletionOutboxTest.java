@@ -0,0 +1,60 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import ropold.backend.model.ImageDeletionModel;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageDeletionOutboxTest {
+
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    CloudinaryService cloudinaryService = new CloudinaryService(null, null);
+    IdService idService = mock(IdService.class);
+    ImageHashIndex imageHashIndex = mock(ImageHashIndex.class);
+    ImageDeletionOutbox imageDeletionOutbox = new ImageDeletionOutbox(mongoTemplate, cloudinaryService, idService, imageHashIndex);
+
+    @Test
+    void enqueue_insertsDueEntryWithPublicId() {
+        // Given
+        when(idService.generateRandomId()).thenReturn("d1");
+
+        // When
+        imageDeletionOutbox.enqueue("https://res.cloudinary.com/demo/image/upload/v1614149342/sample.jpg");
+
+        // Then
+        ArgumentCaptor<ImageDeletionModel> inserted = ArgumentCaptor.forClass(ImageDeletionModel.class);
+        verify(mongoTemplate).insert(inserted.capture());
+        assertEquals("d1", inserted.getValue().id());
+        assertEquals("sample", inserted.getValue().publicId());
+        assertEquals(0, inserted.getValue().attempts());
+        assertNotNull(inserted.getValue().nextAttemptAt());
+    }
+
+    @Test
+    void claim_returnsEmptyWithoutUpdateWhenNothingIsDue() {
+        // Given
+        when(mongoTemplate.find(any(Query.class), eq(ImageDeletionModel.class))).thenReturn(List.of());
+
+        // When
+        List<ImageDeletionModel> claimed = imageDeletionOutbox.claim(100, Duration.ofMinutes(5));
+
+        // Then
+        assertTrue(claimed.isEmpty());
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(UpdateDefinition.class), eq(ImageDeletionModel.class));
+    }
+
+    @Test
+    void complete_removesNothingForEmptyList() {
+        imageDeletionOutbox.complete(List.of());
+
+        verifyNoInteractions(mongoTemplate);
+    }
+}
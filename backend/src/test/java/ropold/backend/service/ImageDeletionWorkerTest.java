@@ -0,0 +1,175 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.Test;
+import ropold.backend.exception.ImageDeletionException;
+import ropold.backend.model.ImageDeletionModel;
+import ropold.backend.model.ImageDeletionStats;
+import ropold.backend.model.Category;
+import ropold.backend.model.ImageRendition;
+import ropold.backend.model.ImageRenditions;
+import ropold.backend.model.MemorySummaryView;
+import ropold.backend.repository.MemoryRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageDeletionWorkerTest {
+
+    ImageDeletionOutbox imageDeletionOutbox = mock(ImageDeletionOutbox.class);
+    ImageStorage imageStorage = mock(ImageStorage.class);
+    MemoryRepository memoryRepository = mock(MemoryRepository.class);
+    ImageHashIndex imageHashIndex = mock(ImageHashIndex.class);
+    ImageDeletionWorker imageDeletionWorker = new ImageDeletionWorker(imageDeletionOutbox, imageStorage, memoryRepository, imageHashIndex,
+            2, 3, Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofMinutes(5));
+
+    ImageDeletionModel deletion1 = new ImageDeletionModel("d1", "https://example.com/image1.jpg", "image1", 0,
+            Instant.now(), "token", null, Instant.now());
+    ImageDeletionModel deletion2 = new ImageDeletionModel("d2", "https://example.com/image2.jpg", "image2", 2,
+            Instant.now(), "token", null, Instant.now());
+
+    @Test
+    void drain_deletesWholeBatchWithOneStorageCall() {
+        // Given
+        when(imageDeletionOutbox.claim(2, Duration.ofMinutes(5))).thenReturn(List.of(deletion1, deletion2), List.of());
+        when(imageStorage.deleteImages(List.of("image1", "image2"))).thenReturn(Set.of("image1", "image2"));
+
+        // When
+        imageDeletionWorker.drain();
+
+        // Then
+        verify(imageStorage, times(1)).deleteImages(List.of("image1", "image2"));
+        verify(imageDeletionOutbox).complete(List.of("d1", "d2"));
+        verify(imageDeletionOutbox, never()).retryAt(any(), any(), any());
+        verify(imageDeletionOutbox, times(2)).claim(2, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void drain_retriesWithBackoffAndParksAfterMaxAttempts() {
+        // Given
+        when(imageDeletionOutbox.claim(2, Duration.ofMinutes(5))).thenReturn(List.of(deletion1, deletion2), List.of());
+        when(imageStorage.deleteImages(anyList())).thenThrow(new ImageDeletionException("Error deleting images from Cloudinary"));
+        Instant before = Instant.now();
+
+        // When
+        imageDeletionWorker.drain();
+
+        // Then
+        verify(imageDeletionOutbox).retryAt(eq(deletion1),
+                argThat(next -> !next.isBefore(before.plusSeconds(10))), eq("Error deleting images from Cloudinary"));
+        verify(imageDeletionOutbox).park(deletion2, "Error deleting images from Cloudinary");
+        verify(imageDeletionOutbox).complete(List.of());
+    }
+
+    @Test
+    void drain_retriesOnlyUnconfirmedImages() {
+        // Given
+        when(imageDeletionOutbox.claim(2, Duration.ofMinutes(5))).thenReturn(List.of(deletion1));
+        when(imageStorage.deleteImages(List.of("image1"))).thenReturn(Set.of());
+
+        // When
+        imageDeletionWorker.drain();
+
+        // Then
+        verify(imageDeletionOutbox).retryAt(eq(deletion1), any(Instant.class), eq("Image storage did not confirm the deletion"));
+        verify(imageDeletionOutbox, times(1)).claim(2, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void drain_keepsImagesThatAreStillReferenced() {
+        // Given
+        when(imageDeletionOutbox.claim(2, Duration.ofMinutes(5))).thenReturn(List.of(deletion1, deletion2), List.of());
+        List<String> imageUrls = List.of("https://example.com/image1.jpg", "https://example.com/image2.jpg");
+        when(memoryRepository.findAllByImageUrlInOrRenditionsThumbnailUrlIn(imageUrls, imageUrls, MemorySummaryView.class))
+                .thenReturn(List.of(new MemorySummaryView("1", "Erinnerung", 1, Category.CLOUDINARY_IMAGE, true, "https://example.com/image1.jpg", null)));
+        when(imageStorage.deleteImages(List.of("image2"))).thenReturn(Set.of("image2"));
+
+        // When
+        imageDeletionWorker.drain();
+
+        // Then
+        verify(imageStorage).deleteImages(List.of("image2"));
+        verify(imageDeletionOutbox).complete(List.of("d1", "d2"));
+    }
+
+    @Test
+    void drain_keepsThumbnailsThatAreStillReferenced() {
+        // Given: image2 ist das gemeinsame Thumbnail einer anderen Memory mit gleichem Upload
+        when(imageDeletionOutbox.claim(2, Duration.ofMinutes(5))).thenReturn(List.of(deletion1, deletion2), List.of());
+        List<String> imageUrls = List.of("https://example.com/image1.jpg", "https://example.com/image2.jpg");
+        when(memoryRepository.findAllByImageUrlInOrRenditionsThumbnailUrlIn(imageUrls, imageUrls, MemorySummaryView.class))
+                .thenReturn(List.of(new MemorySummaryView("2", "Erinnerung", 1, Category.CLOUDINARY_IMAGE, true, "https://example.com/other.jpg",
+                        new ImageRenditions(
+                                new ImageRendition("https://example.com/other.jpg", 1600, 1200),
+                                new ImageRendition("https://example.com/image2.jpg", 320, 240)))));
+        when(imageStorage.deleteImages(List.of("image1"))).thenReturn(Set.of("image1"));
+
+        // When
+        imageDeletionWorker.drain();
+
+        // Then
+        verify(imageStorage).deleteImages(List.of("image1"));
+        verify(imageDeletionOutbox).complete(List.of("d1", "d2"));
+    }
+
+    @Test
+    void drain_keepsImagesThatStillHaveHashReferences() {
+        // Given
+        when(imageDeletionOutbox.claim(2, Duration.ofMinutes(5))).thenReturn(List.of(deletion1, deletion2), List.of());
+        when(imageHashIndex.retainReferenced(List.of("https://example.com/image1.jpg", "https://example.com/image2.jpg")))
+                .thenReturn(Set.of("https://example.com/image2.jpg"));
+        when(imageStorage.deleteImages(List.of("image1"))).thenReturn(Set.of("image1"));
+
+        // When
+        imageDeletionWorker.drain();
+
+        // Then
+        verify(imageStorage).deleteImages(List.of("image1"));
+        verify(imageDeletionOutbox).complete(List.of("d1", "d2"));
+    }
+
+    @Test
+    void getStats_countsRetainedImagesSeparately() {
+        // Given
+        when(imageDeletionOutbox.claim(2, Duration.ofMinutes(5))).thenReturn(List.of(deletion1, deletion2), List.of());
+        when(imageHashIndex.retainReferenced(List.of("https://example.com/image1.jpg", "https://example.com/image2.jpg")))
+                .thenReturn(Set.of("https://example.com/image2.jpg"));
+        when(imageStorage.deleteImages(List.of("image1"))).thenReturn(Set.of("image1"));
+
+        // When
+        imageDeletionWorker.drain();
+        ImageDeletionStats stats = imageDeletionWorker.getStats();
+
+        // Then
+        assertEquals(1, stats.deletedCount());
+        assertEquals(1, stats.retainedCount());
+    }
+
+    @Test
+    void backoff_doublesUpToMaximum() {
+        assertEquals(Duration.ofSeconds(10), imageDeletionWorker.backoff(1));
+        assertEquals(Duration.ofSeconds(20), imageDeletionWorker.backoff(2));
+        assertEquals(Duration.ofSeconds(30), imageDeletionWorker.backoff(3));
+        assertEquals(Duration.ofSeconds(30), imageDeletionWorker.backoff(40));
+    }
+
+    @Test
+    void getStats_countsOutcomes() {
+        // Given
+        when(imageDeletionOutbox.claim(2, Duration.ofMinutes(5))).thenReturn(List.of(deletion1, deletion2), List.of());
+        when(imageStorage.deleteImages(List.of("image1", "image2"))).thenReturn(Set.of("image1"));
+        when(imageDeletionOutbox.countPending()).thenReturn(0L);
+        when(imageDeletionOutbox.countParked()).thenReturn(1L);
+
+        // When
+        imageDeletionWorker.drain();
+        ImageDeletionStats stats = imageDeletionWorker.getStats();
+
+        // Then
+        assertEquals(new ImageDeletionStats(0, 1, 1, 0, 0, 1, 1), stats);
+    }
+}
@@ -0,0 +1,82 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import ropold.backend.model.ImageHashModel;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageHashIndexTest {
+
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    ImageHashIndex imageHashIndex = new ImageHashIndex(mongoTemplate);
+
+    ImageHashModel entry = new ImageHashModel("hash", "https://example.com/image.jpg", 2, Instant.now());
+
+    @Test
+    void acquire_incrementsReferencesOfExistingEntry() {
+        // Given
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ImageHashModel.class)))
+                .thenReturn(entry);
+
+        // When
+        Optional<String> imageUrl = imageHashIndex.acquire("hash");
+
+        // Then
+        assertEquals(Optional.of("https://example.com/image.jpg"), imageUrl);
+        verify(mongoTemplate).findAndModify(
+                argThat(query -> query.getQueryObject().get("_id").equals("hash")),
+                argThat(update -> update.getUpdateObject().toJson().contains("\"$inc\": {\"references\": 1}")),
+                any(FindAndModifyOptions.class),
+                eq(ImageHashModel.class));
+    }
+
+    @Test
+    void register_concurrentInsertReferencesTheWinner() {
+        // Given
+        when(mongoTemplate.insert(any(ImageHashModel.class))).thenThrow(new DuplicateKeyException("duplicate"));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ImageHashModel.class)))
+                .thenReturn(entry);
+
+        // When
+        Optional<String> winner = imageHashIndex.register("hash", "https://example.com/copy.jpg");
+
+        // Then
+        assertEquals(Optional.of("https://example.com/image.jpg"), winner);
+    }
+
+    @Test
+    void register_newContentIsInsertedWithOneReference() {
+        // When
+        Optional<String> winner = imageHashIndex.register("hash", "https://example.com/image.jpg");
+
+        // Then
+        assertTrue(winner.isEmpty());
+        verify(mongoTemplate).insert(argThat((ImageHashModel model) -> model.references() == 1 && model.id().equals("hash")));
+    }
+
+    @Test
+    void retainReferenced_removesUnreferencedEntriesFirst() {
+        // Given
+        when(mongoTemplate.find(any(Query.class), eq(ImageHashModel.class))).thenReturn(List.of(entry));
+
+        // When
+        Set<String> referenced = imageHashIndex.retainReferenced(List.of("https://example.com/image.jpg", "https://example.com/other.jpg"));
+
+        // Then
+        assertEquals(Set.of("https://example.com/image.jpg"), referenced);
+        var order = inOrder(mongoTemplate);
+        order.verify(mongoTemplate).remove(argThat((Query query) -> query.getQueryObject().containsKey("references")), eq(ImageHashModel.class));
+        order.verify(mongoTemplate).find(any(Query.class), eq(ImageHashModel.class));
+    }
+}
@@ -0,0 +1,230 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ropold.backend.model.ImageFormat;
+import ropold.backend.service.ImageProcessingService.ProcessedImage;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageProcessingServiceTest {
+
+    ImageProcessingService imageProcessingService = new ImageProcessingService(
+            400, 100, 0.8f, 10_000_000, Duration.ofSeconds(30), 1, 4);
+
+    @AfterEach
+    void tearDown() {
+        imageProcessingService.shutdown();
+    }
+
+    @Test
+    void process_downscalesAndCreatesThumbnail() throws IOException {
+        byte[] photo = encode(image(1200, 800, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        ProcessedImage processed = imageProcessingService.process(photo).orElseThrow();
+
+        assertEquals(ImageFormat.JPEG, processed.full().format());
+        assertEquals(400, processed.full().width());
+        assertEquals(267, processed.full().height());
+        assertEquals(100, processed.thumbnail().width());
+        assertEquals(67, processed.thumbnail().height());
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(processed.full().bytes()));
+        assertEquals(400, decoded.getWidth());
+        assertTrue(processed.thumbnail().bytes().length < processed.full().bytes().length);
+    }
+
+    @Test
+    void process_rotatesAccordingToExifOrientation() throws IOException {
+        byte[] photo = withOrientation(encode(image(600, 300, BufferedImage.TYPE_INT_RGB), "jpg"), 6);
+
+        ProcessedImage processed = imageProcessingService.process(photo).orElseThrow();
+
+        assertEquals(200, processed.full().width());
+        assertEquals(400, processed.full().height());
+    }
+
+    @Test
+    void process_keepsSmallJpegThatWouldNotShrink() throws IOException {
+        byte[] photo = encode(image(50, 50, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        ProcessedImage processed = imageProcessingService.process(photo).orElseThrow();
+
+        if (processed.full().bytes() != photo) {
+            assertTrue(processed.full().bytes().length < photo.length);
+        }
+        assertEquals(50, processed.full().width());
+        assertEquals(50, processed.thumbnail().width());
+    }
+
+    @Test
+    void process_opaquePngBecomesJpegAndTransparentPngStaysPng() throws IOException {
+        BufferedImage opaque = image(300, 300, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage transparent = new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB);
+
+        assertEquals(ImageFormat.JPEG, imageProcessingService.process(encode(opaque, "png")).orElseThrow().full().format());
+        assertEquals(ImageFormat.PNG, imageProcessingService.process(encode(transparent, "png")).orElseThrow().full().format());
+    }
+
+    @Test
+    void process_leavesGifAndUndecodableImagesUntouched() throws IOException {
+        byte[] gif = encode(image(10, 10, BufferedImage.TYPE_INT_RGB), "gif");
+        byte[] brokenJpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0, 1};
+
+        assertEquals(Optional.empty(), imageProcessingService.process(gif));
+        assertEquals(Optional.empty(), imageProcessingService.process(brokenJpeg));
+    }
+
+    @Test
+    void process_rejectsImagesWithTooManyPixels() throws IOException {
+        ImageProcessingService small = new ImageProcessingService(400, 100, 0.8f, 1000, Duration.ofSeconds(30), 1, 4);
+        try {
+            byte[] photo = encode(image(100, 100, BufferedImage.TYPE_INT_RGB), "jpg");
+
+            assertThrows(IllegalArgumentException.class, () -> small.process(photo));
+        } finally {
+            small.shutdown();
+        }
+    }
+
+    @Test
+    void process_rejectsTooManyPixelsBeforeUsingThePool() throws IOException {
+        ImageProcessingService small = new ImageProcessingService(400, 100, 0.8f, 1000, Duration.ofSeconds(30), 1, 4);
+        // Ohne Pool würde jeder Job abgelehnt; das zu große Bild muss vorher scheitern
+        small.shutdown();
+        byte[] photo = encode(image(100, 100, BufferedImage.TYPE_INT_RGB), "png");
+
+        assertThrows(IllegalArgumentException.class, () -> small.process(photo));
+    }
+
+    @Test
+    void processNow_interruptedJobStopsInsteadOfFinishing() throws IOException {
+        byte[] photo = encode(image(1200, 800, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, () -> imageProcessingService.processNow(photo, ImageFormat.JPEG));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void exifOrientation_readsBigAndLittleEndian() throws IOException {
+        byte[] photo = encode(image(10, 10, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        assertEquals(1, ExifOrientation.read(photo));
+        assertEquals(6, ExifOrientation.read(withOrientation(photo, 6)));
+        assertEquals(8, ExifOrientation.read(withOrientation(photo, 8, true)));
+    }
+
+    @Test
+    void orient_mapsCornersLikeExif() {
+        BufferedImage image = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, Color.RED.getRGB());
+
+        BufferedImage rotated = ImageProcessingService.orient(image, 6, false);
+
+        // 90° im Uhrzeigersinn: links oben landet rechts oben
+        assertEquals(1, rotated.getWidth());
+        assertEquals(2, rotated.getHeight());
+        assertEquals(Color.RED.getRGB(), rotated.getRGB(0, 0));
+    }
+
+    @Test
+    void orient_normalOrientation_keepsImageWithoutCopy() {
+        BufferedImage image = new BufferedImage(4, 3, BufferedImage.TYPE_3BYTE_BGR);
+        BufferedImage indexed = new BufferedImage(4, 3, BufferedImage.TYPE_BYTE_INDEXED);
+
+        assertSame(image, ImageProcessingService.orient(image, ExifOrientation.NORMAL, false));
+        // Palettenbilder werden weiterhin in RGB umkopiert
+        assertEquals(BufferedImage.TYPE_INT_RGB, ImageProcessingService.orient(indexed, ExifOrientation.NORMAL, false).getType());
+    }
+
+    @Test
+    void process_downscalesPaletteImage() throws IOException {
+        byte[] palette = encode(image(800, 400, BufferedImage.TYPE_BYTE_INDEXED), "png");
+
+        ProcessedImage processed = imageProcessingService.process(palette).orElseThrow();
+
+        assertEquals(400, processed.full().width());
+        assertEquals(200, processed.full().height());
+        assertEquals(ImageFormat.JPEG, processed.full().format());
+    }
+
+    private static BufferedImage image(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillOval(width / 4, height / 4, width / 2, height / 2);
+        graphics.dispose();
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        return withOrientation(jpeg, orientation, false);
+    }
+
+    // Fügt direkt nach SOI ein APP1-Segment mit einem einzigen IFD0-Eintrag Orientation ein
+    private static byte[] withOrientation(byte[] jpeg, int orientation, boolean littleEndian) {
+        ByteArrayOutputStream tiff = new ByteArrayOutputStream();
+        tiff.writeBytes(littleEndian ? new byte[]{'I', 'I'} : new byte[]{'M', 'M'});
+        writeShort(tiff, 42, littleEndian);
+        writeInt(tiff, 8, littleEndian);
+        writeShort(tiff, 1, littleEndian);
+        writeShort(tiff, 0x0112, littleEndian);
+        writeShort(tiff, 3, littleEndian);
+        writeInt(tiff, 1, littleEndian);
+        writeShort(tiff, orientation, littleEndian);
+        writeShort(tiff, 0, littleEndian);
+        writeInt(tiff, 0, littleEndian);
+
+        byte[] exif = tiff.toByteArray();
+        int length = 2 + 6 + exif.length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xE1, (byte) (length >> 8), (byte) length});
+        out.writeBytes(new byte[]{'E', 'x', 'i', 'f', 0, 0});
+        out.writeBytes(exif);
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value, boolean littleEndian) {
+        if (littleEndian) {
+            out.write(value);
+            out.write(value >> 8);
+        } else {
+            out.write(value >> 8);
+            out.write(value);
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value, boolean littleEndian) {
+        if (littleEndian) {
+            writeShort(out, value & 0xFFFF, true);
+            writeShort(out, value >>> 16, true);
+        } else {
+            writeShort(out, value >>> 16, false);
+            writeShort(out, value & 0xFFFF, false);
+        }
+    }
+}
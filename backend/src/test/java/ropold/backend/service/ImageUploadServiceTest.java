@@ -0,0 +1,83 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import ropold.backend.model.ImageFormat;
+import ropold.backend.model.ImageRendition;
+import ropold.backend.model.ImageRenditions;
+import ropold.backend.service.ImageProcessingService.ProcessedImage;
+import ropold.backend.service.ImageProcessingService.Rendition;
+import ropold.backend.service.ImageUploadService.StoredImage;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageUploadServiceTest {
+
+    private static final byte[] JPEG_BYTES = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0, 1};
+    private static final byte[] FULL_BYTES = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 1};
+    private static final byte[] THUMBNAIL_BYTES = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 2};
+
+    ImageStorage imageStorage = mock(ImageStorage.class);
+    ImageProcessingService imageProcessingService = mock(ImageProcessingService.class);
+    ImageDeletionOutbox imageDeletionOutbox = mock(ImageDeletionOutbox.class);
+    ImageUploadService imageUploadService = new ImageUploadService(imageStorage, imageProcessingService, imageDeletionOutbox);
+
+    MockMultipartFile image = new MockMultipartFile("image", "photo.jpg", "image/jpeg", JPEG_BYTES);
+    ProcessedImage processed = new ProcessedImage(
+            new Rendition(FULL_BYTES, ImageFormat.JPEG, 1600, 1200),
+            new Rendition(THUMBNAIL_BYTES, ImageFormat.JPEG, 320, 240));
+
+    @Test
+    void upload_storesBothRenditions() throws IOException {
+        // Given
+        when(imageProcessingService.process(JPEG_BYTES)).thenReturn(Optional.of(processed));
+        when(imageStorage.uploadImage(FULL_BYTES)).thenReturn("https://example.com/full.jpg");
+        when(imageStorage.uploadImage(THUMBNAIL_BYTES)).thenReturn("https://example.com/thumbnail.jpg");
+
+        // When
+        StoredImage stored = imageUploadService.upload(image);
+
+        // Then
+        assertEquals(new StoredImage("https://example.com/full.jpg", new ImageRenditions(
+                new ImageRendition("https://example.com/full.jpg", 1600, 1200),
+                new ImageRendition("https://example.com/thumbnail.jpg", 320, 240))), stored);
+        verify(imageStorage, never()).uploadImage(JPEG_BYTES);
+    }
+
+    @Test
+    void upload_storesOriginalWhenNotProcessed() throws IOException {
+        // Given
+        when(imageProcessingService.process(JPEG_BYTES)).thenReturn(Optional.empty());
+        when(imageStorage.uploadImage(JPEG_BYTES)).thenReturn("https://example.com/original.jpg");
+
+        // When
+        StoredImage stored = imageUploadService.upload(image);
+
+        // Then
+        assertEquals(new StoredImage("https://example.com/original.jpg", null), stored);
+    }
+
+    @Test
+    void upload_releasesFullImageWhenThumbnailFails() throws IOException {
+        // Given
+        when(imageProcessingService.process(JPEG_BYTES)).thenReturn(Optional.of(processed));
+        when(imageStorage.uploadImage(FULL_BYTES)).thenReturn("https://example.com/full.jpg");
+        when(imageStorage.uploadImage(THUMBNAIL_BYTES)).thenThrow(new IOException("upload failed"));
+
+        // Then
+        assertThrows(IOException.class, () -> imageUploadService.upload(image));
+        verify(imageDeletionOutbox).enqueue("https://example.com/full.jpg");
+    }
+
+    @Test
+    void upload_rejectsNonImages() {
+        MockMultipartFile text = new MockMultipartFile("image", "notes.txt", "text/plain", "hello".getBytes());
+
+        assertThrows(IllegalArgumentException.class, () -> imageUploadService.upload(text));
+        verifyNoInteractions(imageProcessingService, imageStorage);
+    }
+}
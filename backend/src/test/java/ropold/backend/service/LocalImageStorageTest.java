@@ -0,0 +1,135 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import ropold.backend.exception.DirectUploadNotSupportedException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LocalImageStorageTest {
+
+    private static final byte[] JPEG_BYTES = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0, 1};
+
+    @TempDir
+    Path directory;
+
+    ImageHashIndex imageHashIndex = mock(ImageHashIndex.class);
+    LocalImageStorage localImageStorage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        localImageStorage = new LocalImageStorage(directory, "/api/images/", imageHashIndex);
+    }
+
+    @Test
+    void uploadImage_storesSameContentOnlyOnce() throws IOException {
+        // When
+        String first = localImageStorage.uploadImage(new MockMultipartFile("image", "a.jpg", "image/jpeg", JPEG_BYTES));
+        String second = localImageStorage.uploadImage(new MockMultipartFile("image", "b.jpg", "image/jpeg", JPEG_BYTES));
+
+        // Then
+        assertEquals(first, second);
+        assertTrue(first.matches("/api/images/[0-9a-f]{64}\\.jpg"));
+        Path file = localImageStorage.resolve(localImageStorage.extractPublicIdFromUrl(first)).orElseThrow();
+        assertArrayEquals(JPEG_BYTES, Files.readAllBytes(file));
+        try (var files = Files.walk(directory)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void uploadImage_rejectsNonImages() {
+        MockMultipartFile text = new MockMultipartFile("image", "notes.txt", "text/plain", "hello".getBytes());
+
+        assertThrows(IllegalArgumentException.class, () -> localImageStorage.uploadImage(text));
+    }
+
+    @Test
+    void resolve_rejectsNamesOutsideTheStorage() {
+        assertTrue(localImageStorage.resolve("../../etc/passwd").isEmpty());
+        assertTrue(localImageStorage.resolve("0".repeat(64) + ".jpg").isEmpty());
+    }
+
+    @Test
+    void deleteImages_removesFilesAndConfirmsForeignIds() throws IOException {
+        // Given
+        String url = localImageStorage.uploadImage(new MockMultipartFile("image", "a.jpg", "image/jpeg", JPEG_BYTES));
+        String name = localImageStorage.extractPublicIdFromUrl(url);
+
+        // When
+        Set<String> done = localImageStorage.deleteImages(List.of(name, "memory-hub/cloudinary-image"));
+
+        // Then
+        assertEquals(Set.of(name, "memory-hub/cloudinary-image"), done);
+        assertTrue(localImageStorage.resolve(name).isEmpty());
+    }
+
+    @Test
+    void uploadImage_countsReferencesInHashIndex() throws IOException {
+        // Given
+        String hash = ImageStorage.sha256(JPEG_BYTES);
+        String url = "/api/images/" + hash + ".jpg";
+        when(imageHashIndex.acquire(hash)).thenReturn(Optional.empty(), Optional.of(url));
+
+        // When
+        localImageStorage.uploadImage(JPEG_BYTES);
+        localImageStorage.uploadImage(JPEG_BYTES);
+
+        // Then
+        verify(imageHashIndex, times(2)).acquire(hash);
+        verify(imageHashIndex, times(1)).register(hash, url);
+    }
+
+    @Test
+    void deleteImages_keepsFileReferencedAgainWhileBeingDeleted() throws IOException {
+        // Given: Memory A wurde gelöscht, ihr Bild steht in der Outbox
+        String url = localImageStorage.uploadImage(JPEG_BYTES);
+        String name = localImageStorage.extractPublicIdFromUrl(url);
+        // Memory B lädt denselben Inhalt hoch, während der Worker die Datei schon beiseitegelegt hat
+        when(imageHashIndex.isReferenced(url)).thenAnswer(invocation -> {
+            assertTrue(localImageStorage.resolve(name).isEmpty());
+            assertEquals(url, localImageStorage.uploadImage(JPEG_BYTES));
+            return true;
+        });
+
+        // When
+        Set<String> done = localImageStorage.deleteImages(List.of(name));
+
+        // Then
+        assertEquals(Set.of(name), done);
+        Path file = localImageStorage.resolve(name).orElseThrow();
+        assertArrayEquals(JPEG_BYTES, Files.readAllBytes(file));
+        try (var files = Files.walk(directory)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void deleteImages_restoresFileReferencedBeforeTheCheck() throws IOException {
+        // Given
+        String url = localImageStorage.uploadImage(JPEG_BYTES);
+        String name = localImageStorage.extractPublicIdFromUrl(url);
+        when(imageHashIndex.isReferenced(url)).thenReturn(true);
+
+        // When
+        localImageStorage.deleteImages(List.of(name));
+
+        // Then
+        assertTrue(localImageStorage.resolve(name).isPresent());
+    }
+
+    @Test
+    void signUpload_isNotSupported() {
+        assertThrows(DirectUploadNotSupportedException.class, () -> localImageStorage.signUpload("user"));
+    }
+}
@@ -0,0 +1,39 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import ropold.backend.exception.InvalidRequestException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class MemorySearchServiceTest {
+
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    MemorySearchService memorySearchService = new MemorySearchService(mongoTemplate);
+
+    @Test
+    void searchMemories_blankSearchTerm_throwsException() {
+        InvalidRequestException exception = assertThrows(InvalidRequestException.class,
+                () -> memorySearchService.searchMemories("  ", null, null, 20, null));
+
+        assertEquals("Search term must not be blank", exception.getMessage());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void searchMemories_invalidCursor_throwsException() {
+        InvalidRequestException exception = assertThrows(InvalidRequestException.class,
+                () -> memorySearchService.searchMemories("Erinnerung", null, null, 20, "not-a-cursor"));
+
+        assertEquals("Invalid search cursor: not-a-cursor", exception.getMessage());
+    }
+
+    @Test
+    void searchMemories_cursorWithoutNumericScore_throwsException() {
+        assertThrows(InvalidRequestException.class,
+                () -> memorySearchService.searchMemories("Erinnerung", null, null, 20, "abc:1"));
+    }
+}
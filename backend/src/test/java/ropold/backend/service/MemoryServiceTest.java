@@ -1,12 +1,28 @@
 package ropold.backend.service;
 
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import ropold.backend.exception.AccessDeniedException;
 import ropold.backend.exception.MemoryNotFoundException;
 import ropold.backend.model.Category;
+import ropold.backend.model.DeckCountModel;
+import ropold.backend.model.ImageRendition;
+import ropold.backend.model.ImageRenditions;
+import ropold.backend.model.MemoryCardView;
 import ropold.backend.model.MemoryModel;
+import ropold.backend.model.MemoryPage;
+import ropold.backend.model.MemorySummaryView;
 import ropold.backend.repository.MemoryRepository;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,8 +32,14 @@ import static org.mockito.Mockito.*;
 class MemoryServiceTest {
     IdService idService = mock(IdService.class);
     MemoryRepository memoryRepository = mock(MemoryRepository.class);
-    CloudinaryService cloudinaryService = mock(CloudinaryService.class);
-    MemoryService memoryService = new MemoryService(idService, memoryRepository, cloudinaryService);
+    ImageDeletionOutbox imageDeletionOutbox = mock(ImageDeletionOutbox.class);
+    DeckCountService deckCountService = mock(DeckCountService.class);
+    DeckCache deckCache = new DeckCache(100, Duration.ofMinutes(10));
+    ContentVersionService contentVersionService = mock(ContentVersionService.class);
+    MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    ImageProxyService imageProxyService = mock(ImageProxyService.class);
+    DeckAtlasService deckAtlasService = mock(DeckAtlasService.class);
+    MemoryService memoryService = new MemoryService(idService, memoryRepository, imageDeletionOutbox, deckCountService, deckCache, contentVersionService, mongoTemplate, imageProxyService, deckAtlasService);
 
     MemoryModel memoryModel1 = new MemoryModel(
             "1",
@@ -53,13 +75,14 @@ class MemoryServiceTest {
     void setup() {
         memoryRepository.deleteAll();
         memoryRepository.saveAll(List.of(memoryModel1, memoryModel2));
+        when(imageProxyService.proxyUrl(any())).thenAnswer(invocation -> invocation.getArgument(0));
     }
 
     @Test
     void getActiveMemories() {
         // Given
         List<MemoryModel> activeMemories = List.of(memoryModel1);
-        when(memoryRepository.findAll()).thenReturn(memories);
+        when(memoryRepository.findAllByIsActiveTrue()).thenReturn(activeMemories);
 
         // When
         List<MemoryModel> expected = memoryService.getActiveMemories();
@@ -118,61 +141,6 @@ class MemoryServiceTest {
         assertEquals(memoryModel3, expected);
     }
 
-    @Test
-    void updateMemoryWithPut() {
-        // Given
-        MemoryModel existingMemory = new MemoryModel(
-                "3",
-                "Cloudinary Erinnerung Nr3",
-                103,
-                Category.CLOUDINARY_IMAGE,
-                "Eine Erinnerung, die mit einem Cloudinary-Bild gespeichert ist",
-                false,
-                "github456",
-                "user2",
-                "https://avatars.example.com/user2.png",
-                "https://github.com/user2",
-                "https://example.com/image2.jpg"
-        );
-
-        MemoryModel updatedMemory = new MemoryModel(
-                "3",
-                existingMemory.name(),
-                existingMemory.matchId(),
-                existingMemory.category(),
-                existingMemory.description(),
-                true,
-                existingMemory.appUserGithubId(),
-                existingMemory.appUserUsername(),
-                existingMemory.appUserAvatarUrl(),
-                existingMemory.appUserGithubUrl(),
-                existingMemory.imageUrl()
-        );
-
-        when(memoryRepository.existsById("3")).thenReturn(true);
-        when(memoryRepository.save(any(MemoryModel.class))).thenReturn(updatedMemory);
-
-        // When
-        MemoryModel expected = memoryService.updateMemoryWithPut("3", updatedMemory);
-
-        // Then
-        assertEquals(updatedMemory, expected);
-        verify(memoryRepository, times(1)).existsById("3");
-        verify(memoryRepository, times(1)).save(updatedMemory);
-    }
-
-    @Test
-    void deleteMemory() {
-        // Given
-        when(memoryRepository.findById("1")).thenReturn(Optional.of(memoryModel1));
-
-        // When
-        memoryService.deleteMemory("1");
-
-        // Then
-        verify(memoryRepository, times(1)).deleteById("1");
-    }
-
     @Test
     void getMemoriesByIds() {
         // Given
@@ -187,46 +155,22 @@ class MemoryServiceTest {
     }
 
     @Test
-    void toggleMemoryActive() {
+    void toggleMemoryActiveForOwner_negatesIsActiveInAnUpdatePipeline() {
         // Given
-        MemoryModel existingMemory = new MemoryModel(
-                "3",
-                "Cloudinary Erinnerung Nr3",
-                103,
-                Category.CLOUDINARY_IMAGE,
-                "Eine Erinnerung, die mit einem Cloudinary-Bild gespeichert ist",
-                false,
-                "github456",
-                "user2",
-                "https://avatars.example.com/user2.png",
-                "https://github.com/user2",
-                "https://example.com/image2.jpg"
-        );
-
-        MemoryModel updatedMemory = new MemoryModel(
-                "3",
-                existingMemory.name(),
-                existingMemory.matchId(),
-                existingMemory.category(),
-                existingMemory.description(),
-                true,
-                existingMemory.appUserGithubId(),
-                existingMemory.appUserUsername(),
-                existingMemory.appUserAvatarUrl(),
-                existingMemory.appUserGithubUrl(),
-                existingMemory.imageUrl()
-        );
-
-        when(memoryRepository.findById("3")).thenReturn(Optional.of(existingMemory));
-        when(memoryRepository.save(any(MemoryModel.class))).thenReturn(updatedMemory);
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class)))
+                .thenReturn(memoryModel1);
 
         // When
-        MemoryModel expected = memoryService.toggleMemoryActive("3");
+        memoryService.toggleMemoryActiveForOwner("1", "github123");
 
         // Then
-        assertEquals(updatedMemory, expected);
-        verify(memoryRepository, times(1)).findById("3");
-        verify(memoryRepository, times(1)).save(updatedMemory);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), options.capture(), eq(MemoryModel.class));
+        assertEquals(new Document("_id", "1").append("appUserGithubId", "github123"), query.getValue().getQueryObject());
+        assertInstanceOf(AggregationUpdate.class, update.getValue());
+        assertTrue(options.getValue().isReturnNew());
     }
 
     @Test
@@ -293,7 +237,7 @@ class MemoryServiceTest {
         );
 
         // Simuliere, dass das Memory mit der ID "3" existiert
-        when(memoryRepository.existsById("3")).thenReturn(true);
+        when(memoryRepository.findById("3")).thenReturn(Optional.of(existingMemory));
         // Simuliere das Speichern des aktualisierten Memory
         when(memoryRepository.save(any(MemoryModel.class))).thenReturn(updatedMemory);
 
@@ -302,7 +246,7 @@ class MemoryServiceTest {
 
         // Then
         assertEquals(updatedMemory, result);
-        verify(memoryRepository, times(1)).existsById("3"); // Verifizieren, dass überprüft wurde, ob das Memory existiert
+        verify(memoryRepository, times(1)).findById("3"); // Verifizieren, dass überprüft wurde, ob das Memory existiert
         verify(memoryRepository, times(1)).save(updatedMemory); // Verifizieren, dass das Memory gespeichert wurde
     }
 
@@ -324,7 +268,7 @@ class MemoryServiceTest {
         );
 
         // Simuliere, dass das Memory mit der ID "4" nicht existiert
-        when(memoryRepository.existsById("4")).thenReturn(false);
+        when(memoryRepository.findById("4")).thenReturn(Optional.empty());
 
         // When / Then
         Exception exception = assertThrows(MemoryNotFoundException.class, () -> {
@@ -332,7 +276,7 @@ class MemoryServiceTest {
         });
 
         assertEquals("No Memory found with ID: 4", exception.getMessage());
-        verify(memoryRepository, times(1)).existsById("4"); // Verifizieren, dass überprüft wurde, ob das Memory existiert
+        verify(memoryRepository, times(1)).findById("4"); // Verifizieren, dass überprüft wurde, ob das Memory existiert
         verify(memoryRepository, times(0)).save(any(MemoryModel.class)); // Verifizieren, dass der Speicher-Mechanismus nicht aufgerufen wurde
     }
 
@@ -383,8 +327,8 @@ class MemoryServiceTest {
 
         List<MemoryModel> allMemories = List.of(memoryModel874, memoryModel789, memoryModel3);
 
-        // Simuliere, dass alle Memories aus dem Repository abgerufen werden
-        when(memoryRepository.findAll()).thenReturn(allMemories);
+        // Simuliere, dass das Repository nur die Memories mit matchId 101 liefert
+        when(memoryRepository.findAllByMatchId(101)).thenReturn(List.of(memoryModel874, memoryModel3));
 
         // When
         List<MemoryModel> memoriesByMatchId = memoryService.getMemoriesByMatchId(101);
@@ -392,7 +336,8 @@ class MemoryServiceTest {
         // Then
         List<MemoryModel> expectedMemories = List.of(memoryModel874, memoryModel3);
         assertEquals(expectedMemories, memoriesByMatchId);
-        verify(memoryRepository, times(1)).findAll(); // Verifizieren, dass alle Erinnerungen abgerufen wurden
+        verify(memoryRepository, times(1)).findAllByMatchId(101);
+        verify(memoryRepository, never()).findAll(); // Kein Full-Scan der Collection
     }
 
     @Test
@@ -414,8 +359,8 @@ class MemoryServiceTest {
 
         List<MemoryModel> allMemories = List.of(memoryModel23);
 
-        // Simuliere, dass alle Memories aus dem Repository abgerufen werden
-        when(memoryRepository.findAll()).thenReturn(allMemories);
+        // Simuliere, dass das Repository keine Memories für matchId 999 findet
+        when(memoryRepository.findAllByMatchId(999)).thenReturn(List.of());
 
         // When
         List<MemoryModel> memoriesByMatchId = memoryService.getMemoriesByMatchId(999); // Eine nicht existierende matchId
@@ -423,7 +368,7 @@ class MemoryServiceTest {
         // Then
         List<MemoryModel> expectedMemories = List.of(); // Keine Memories sollten zurückgegeben werden
         assertEquals(expectedMemories, memoriesByMatchId);
-        verify(memoryRepository, times(1)).findAll(); // Verifizieren, dass alle Erinnerungen abgerufen wurden
+        verify(memoryRepository, times(1)).findAllByMatchId(999);
     }
 
     @Test
@@ -461,14 +406,15 @@ class MemoryServiceTest {
         List<MemoryModel> expectedMemories = List.of(memoryModel234, memoryModel3);
 
         // Simulate memory repository returning all memories
-        when(memoryRepository.findAll()).thenReturn(allMemories);
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(allMemories);
 
         // When
         List<MemoryModel> memoriesByMatchId = memoryService.getActiveMemoriesFilterByMatchId(101);
 
         // Then
         assertEquals(expectedMemories, memoriesByMatchId);
-        verify(memoryRepository, times(1)).findAll(); // Verify all memories were fetched
+        verify(memoryRepository, times(1)).findAllByIsActiveTrueAndMatchId(101);
+        verify(memoryRepository, never()).findAll(); // No full collection scan
     }
 
     @Test
@@ -492,14 +438,14 @@ class MemoryServiceTest {
         List<MemoryModel> expectedMemories = List.of();
 
         // Simulate memory repository returning all memories
-        when(memoryRepository.findAll()).thenReturn(allMemories);
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of());
 
         // When
         List<MemoryModel> memoriesByMatchId = memoryService.getActiveMemoriesFilterByMatchId(101);
 
         // Then
         assertEquals(expectedMemories, memoriesByMatchId); // No active memories should be returned
-        verify(memoryRepository, times(1)).findAll(); // Verify all memories were fetched
+        verify(memoryRepository, times(1)).findAllByIsActiveTrueAndMatchId(101);
     }
 
     @Test
@@ -537,14 +483,15 @@ class MemoryServiceTest {
         List<MemoryModel> expectedMemories = List.of(memoryModel1234, memoryModel3);
 
         // Simulate memory repository returning all memories
-        when(memoryRepository.findAll()).thenReturn(allMemories);
+        when(memoryRepository.findAllByAppUserGithubId("github123")).thenReturn(allMemories);
 
         // When
         List<MemoryModel> memoriesByGithubId = memoryService.getMemoriesForGithubUser("github123");
 
         // Then
         assertEquals(expectedMemories, memoriesByGithubId); // Memories related to github123 should be returned
-        verify(memoryRepository, times(1)).findAll(); // Verify all memories were fetched
+        verify(memoryRepository, times(1)).findAllByAppUserGithubId("github123");
+        verify(memoryRepository, never()).findAll(); // No full collection scan
     }
 
     @Test
@@ -569,21 +516,21 @@ class MemoryServiceTest {
         List<MemoryModel> expectedMemories = List.of();
 
         // Simulate memory repository returning all memories
-        when(memoryRepository.findAll()).thenReturn(allMemories);
+        when(memoryRepository.findAllByAppUserGithubId("github123")).thenReturn(List.of());
 
         // When
         List<MemoryModel> memoriesByGithubId = memoryService.getMemoriesForGithubUser("github123");
 
         // Then
         assertEquals(expectedMemories, memoriesByGithubId); // No memories for the given githubId should be returned
-        verify(memoryRepository, times(1)).findAll(); // Verify all memories were fetched
+        verify(memoryRepository, times(1)).findAllByAppUserGithubId("github123");
     }
 
     @Test
     void getActiveMemoriesMatchIds_Success() {
         // Given
         List<Integer> expectedMatchIds = List.of(101); // Erwartete sortierte matchId-Liste
-        when(memoryRepository.findAll()).thenReturn(memories);
+        when(deckCountService.getActiveDeckCounts()).thenReturn(List.of(new DeckCountModel(101, 1)));
 
         // When
         List<Integer> actualMatchIds = memoryService.getActiveMemoriesMatchIds();
@@ -595,58 +542,526 @@ class MemoryServiceTest {
     @Test
     void getActiveMemoriesMatchIds_MultipleMatches() {
         // Given
-        MemoryModel avatarMemory = new MemoryModel(
+        when(deckCountService.getActiveDeckCounts()).thenReturn(List.of(
+                new DeckCountModel(101, 2),
+                new DeckCountModel(103, 1)
+        ));
+
+        // When
+        List<Integer> actualMatchIds = memoryService.getActiveMemoriesMatchIds();
+
+        // Then
+        List<Integer> expectedMatchIds = List.of(101, 103);  // Erwartete Liste mit matchIds der aktiven Erinnerungen
+        assertEquals(expectedMatchIds, actualMatchIds);  // Verifizieren, dass die Liste korrekt ist
+        verify(memoryRepository, never()).findAll(); // Keine Karten laden, nur die Deck-Zähler
+    }
+
+    @Test
+    void getActiveMemoriesMatchIdCounts() {
+        // Given
+        List<DeckCountModel> deckCounts = List.of(new DeckCountModel(101, 16), new DeckCountModel(103, 5));
+        when(deckCountService.getActiveDeckCounts()).thenReturn(deckCounts);
+
+        // When
+        List<DeckCountModel> actual = memoryService.getActiveMemoriesMatchIdCounts();
+
+        // Then
+        assertEquals(deckCounts, actual);
+    }
+
+    @Test
+    void addMemory_updatesDeckCount() {
+        // Given
+        when(idService.generateRandomId()).thenReturn("1");
+        when(memoryRepository.save(memoryModel1)).thenReturn(memoryModel1);
+
+        // When
+        memoryService.addMemory(memoryModel1);
+
+        // Then
+        verify(deckCountService, times(1)).memoryChanged(null, memoryModel1);
+    }
+
+    @Test
+    void getAllMemoriesPage_fullPage_returnsNextCursor() {
+        // Given
+        when(memoryRepository.findAllByIdGreaterThanOrderByIdAsc("", Limit.of(2), MemoryModel.class)).thenReturn(memories);
+
+        // When
+        MemoryPage<MemoryModel> page = memoryService.getAllMemoriesPage(1, null);
+
+        // Then
+        assertEquals(List.of(memoryModel1), page.memories());
+        assertEquals("1", page.nextCursor());
+    }
+
+    @Test
+    void getAllMemoriesPage_lastPage_hasNoNextCursor() {
+        // Given
+        when(memoryRepository.findAllByIdGreaterThanOrderByIdAsc("1", Limit.of(3), MemoryModel.class)).thenReturn(List.of(memoryModel2));
+
+        // When
+        MemoryPage<MemoryModel> page = memoryService.getAllMemoriesPage(2, "1");
+
+        // Then
+        assertEquals(List.of(memoryModel2), page.memories());
+        assertNull(page.nextCursor());
+        verify(memoryRepository, never()).findAll();
+    }
+
+    @Test
+    void getActiveMemoriesPage_limitIsCappedAtMaxPageSize() {
+        // Given
+        when(memoryRepository.findAllByIsActiveTrueAndIdGreaterThanOrderByIdAsc("", Limit.of(MemoryService.MAX_PAGE_SIZE + 1), MemoryModel.class))
+                .thenReturn(List.of(memoryModel1));
+
+        // When
+        MemoryPage<MemoryModel> page = memoryService.getActiveMemoriesPage(10_000, null);
+
+        // Then
+        assertEquals(List.of(memoryModel1), page.memories());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void getMemoriesForGithubUserPage() {
+        // Given
+        when(memoryRepository.findAllByAppUserGithubIdAndIdGreaterThanOrderByIdAsc("github123", "", Limit.of(11), MemoryModel.class))
+                .thenReturn(List.of(memoryModel1));
+
+        // When
+        MemoryPage<MemoryModel> page = memoryService.getMemoriesForGithubUserPage("github123", 10, null);
+
+        // Then
+        assertEquals(List.of(memoryModel1), page.memories());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void getActiveMemoriesFilterByMatchId_secondCallIsServedFromCache() {
+        // Given
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(memoryModel1));
+
+        // When
+        memoryService.getActiveMemoriesFilterByMatchId(101);
+        List<MemoryModel> cached = memoryService.getActiveMemoriesFilterByMatchId(101);
+
+        // Then
+        assertEquals(List.of(memoryModel1), cached);
+        verify(memoryRepository, times(1)).findAllByIsActiveTrueAndMatchId(101);
+        assertEquals(1, memoryService.getDeckCacheStats().hitCount());
+        assertEquals(1, memoryService.getDeckCacheStats().missCount());
+    }
+
+    @Test
+    void getActiveMemoriesFilterByMatchId_reloadsWhenDeckVersionChanged() {
+        // Given: die Version wurde von einer anderen Instanz erhöht, ohne dass dieser Cache geleert wurde
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(memoryModel1), List.of());
+        when(contentVersionService.getVersion("deck-101")).thenReturn("v1", "v2");
+
+        // When
+        memoryService.getActiveMemoriesFilterByMatchId(101);
+        List<MemoryModel> reloaded = memoryService.getActiveMemoriesFilterByMatchId(101);
+
+        // Then
+        assertEquals(List.of(), reloaded);
+        verify(memoryRepository, times(2)).findAllByIsActiveTrueAndMatchId(101);
+    }
+
+    @Test
+    void toggleMemoryActiveForOwner_evictsCachedDeck() {
+        // Given
+        MemoryModel deactivated = new MemoryModel(
                 "1",
-                "Avatar Erinnerung",
-                101,
-                Category.GITHUB_AVATAR,
-                "Eine Erinnerung, die mit einem GitHub-Avatar verknüpft ist",
+                memoryModel1.name(),
+                memoryModel1.matchId(),
+                memoryModel1.category(),
+                memoryModel1.description(),
+                false,
+                memoryModel1.appUserGithubId(),
+                memoryModel1.appUserUsername(),
+                memoryModel1.appUserAvatarUrl(),
+                memoryModel1.appUserGithubUrl(),
+                memoryModel1.imageUrl()
+        );
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(memoryModel1), List.of());
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class)))
+                .thenReturn(deactivated);
+        memoryService.getActiveMemoriesFilterByMatchId(101);
+
+        // When
+        memoryService.toggleMemoryActiveForOwner("1", "github123");
+        List<MemoryModel> reloaded = memoryService.getActiveMemoriesFilterByMatchId(101);
+
+        // Then
+        assertEquals(List.of(), reloaded);
+        verify(memoryRepository, times(2)).findAllByIsActiveTrueAndMatchId(101);
+    }
+
+    @Test
+    void updateMemoryForOwner_evictsOldAndNewDeck() {
+        // Given
+        MemoryModel movedToOtherDeck = new MemoryModel(
+                "1",
+                memoryModel1.name(),
+                202,
+                memoryModel1.category(),
+                memoryModel1.description(),
                 true,
-                "github123",
-                "user1",
-                "https://avatars.example.com/user1.png",
-                "https://github.com/user1",
-                "https://example.com/image1.jpg"
+                memoryModel1.appUserGithubId(),
+                memoryModel1.appUserUsername(),
+                memoryModel1.appUserAvatarUrl(),
+                memoryModel1.appUserGithubUrl(),
+                memoryModel1.imageUrl()
         );
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(memoryModel1));
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(202)).thenReturn(List.of());
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class)))
+                .thenReturn(memoryModel1);
+        memoryService.getActiveMemoriesFilterByMatchId(101);
+        memoryService.getActiveMemoriesFilterByMatchId(202);
+
+        // When
+        memoryService.updateMemoryForOwner("1", "github123", movedToOtherDeck);
+        memoryService.getActiveMemoriesFilterByMatchId(101);
+        memoryService.getActiveMemoriesFilterByMatchId(202);
+
+        // Then
+        verify(memoryRepository, times(2)).findAllByIsActiveTrueAndMatchId(101);
+        verify(memoryRepository, times(2)).findAllByIsActiveTrueAndMatchId(202);
+    }
+
+    @Test
+    void getActiveMemoryCardsFilterByMatchId_mapsCachedDeckToCardView() {
+        // Given
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(memoryModel1));
+
+        // When
+        List<MemoryCardView> cards = memoryService.getActiveMemoryCardsFilterByMatchId(101);
+
+        // Then
+        assertEquals(List.of(new MemoryCardView("1", 101, "https://example.com/image1.jpg")), cards);
+    }
+
+    @Test
+    void getActiveMemoriesFilterByMatchId_proxiesAndPrefetchesImagesOncePerDeckLoad() {
+        // Given
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(memoryModel1));
+        when(imageProxyService.proxyUrl("https://example.com/image1.jpg")).thenReturn("/api/image-proxy/abc");
+
+        // When
+        memoryService.getActiveMemoriesFilterByMatchId(101);
+        List<MemoryModel> deck = memoryService.getActiveMemoriesFilterByMatchId(101);
+
+        // Then
+        assertEquals("/api/image-proxy/abc", deck.getFirst().imageUrl());
+        assertEquals(memoryModel1.id(), deck.getFirst().id());
+        verify(imageProxyService, times(1)).prefetch(List.of("https://example.com/image1.jpg"));
+    }
+
+    @Test
+    void getActiveMemoryCardsFilterByMatchId_proxiesCloudinarySrcsetVariants() {
+        // Given
+        String imageUrl = "https://res.cloudinary.com/demo/image/upload/v1700000000/memory/card.jpg";
+        MemoryModel cloudinaryMemory = new MemoryModel("3", "Cloudinary Karte", 101, Category.CLOUDINARY_IMAGE, "Beschreibung", true,
+                "user", "username", "avatarUrl", "githubUrl", imageUrl);
+        when(memoryRepository.findAllByIsActiveTrueAndMatchId(101)).thenReturn(List.of(cloudinaryMemory));
+        when(imageProxyService.proxyUrl(any())).thenAnswer(invocation -> "/proxy?" + invocation.getArgument(0));
+
+        // When
+        List<MemoryCardView> cards = memoryService.getActiveMemoryCardsFilterByMatchId(101);
+
+        // Then
+        assertEquals("/proxy?https://res.cloudinary.com/demo/image/upload/c_limit,w_200,q_auto,f_auto/v1700000000/memory/card.jpg 200w, "
+                        + "/proxy?https://res.cloudinary.com/demo/image/upload/c_limit,w_400,q_auto,f_auto/v1700000000/memory/card.jpg 400w",
+                cards.getFirst().srcset().get("board"));
+        assertEquals(List.of("board", "grid", "detail"), List.copyOf(cards.getFirst().srcset().keySet()));
+    }
+
+    @Test
+    void getActiveMemorySummaries_usesProjection() {
+        // Given
+        MemorySummaryView summary = new MemorySummaryView("1", "Avatar Erinnerung", 101, Category.GITHUB_AVATAR, true, "https://example.com/image1.jpg", null);
+        when(memoryRepository.findAllByIsActiveTrue(MemorySummaryView.class)).thenReturn(List.of(summary));
+
+        // When
+        List<MemorySummaryView> actual = memoryService.getActiveMemorySummaries();
+
+        // Then
+        assertEquals(List.of(summary), actual);
+        verify(memoryRepository, never()).findAllByIsActiveTrue();
+    }
+
+    @Test
+    void getAllMemorySummariesPage_returnsNextCursor() {
+        // Given
+        MemorySummaryView summary1 = new MemorySummaryView("1", "Avatar Erinnerung", 101, Category.GITHUB_AVATAR, true, "https://example.com/image1.jpg", null);
+        MemorySummaryView summary2 = new MemorySummaryView("2", "Cloudinary Erinnerung", 102, Category.CLOUDINARY_IMAGE, false, "https://example.com/image2.jpg", null);
+        when(memoryRepository.findAllByIdGreaterThanOrderByIdAsc("", Limit.of(2), MemorySummaryView.class)).thenReturn(List.of(summary1, summary2));
+
+        // When
+        MemoryPage<MemorySummaryView> page = memoryService.getAllMemorySummariesPage(1, null);
 
-        MemoryModel cloudinaryMemory = new MemoryModel(
+        // Then
+        assertEquals(List.of(summary1), page.memories());
+        assertEquals("1", page.nextCursor());
+    }
+
+    @Test
+    void toggleMemoryActiveForOwner_bumpsCatalogAndDeckVersion() {
+        // Given
+        MemoryModel activated = new MemoryModel(
                 "2",
-                "Cloudinary Erinnerung",
-                102,
-                Category.CLOUDINARY_IMAGE,
-                "Eine Erinnerung, die mit einem Cloudinary-Bild gespeichert ist",
-                false,
-                "github456",
-                "user2",
-                "https://avatars.example.com/user2.png",
-                "https://github.com/user2",
-                "https://example.com/image2.jpg"
+                memoryModel2.name(),
+                memoryModel2.matchId(),
+                memoryModel2.category(),
+                memoryModel2.description(),
+                true,
+                memoryModel2.appUserGithubId(),
+                memoryModel2.appUserUsername(),
+                memoryModel2.appUserAvatarUrl(),
+                memoryModel2.appUserGithubUrl(),
+                memoryModel2.imageUrl()
         );
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class)))
+                .thenReturn(activated);
 
-        MemoryModel additionalMemory = new MemoryModel(
-                "3",
-                "Neue Erinnerung",
-                103,
-                Category.GITHUB_AVATAR,
-                "Eine weitere Erinnerung",
+        // When
+        memoryService.toggleMemoryActiveForOwner("2", "github456");
+
+        // Then
+        verify(contentVersionService, times(1)).bump(ContentVersionService.CATALOG);
+        verify(contentVersionService, times(1)).bump("deck-102");
+        verify(deckAtlasService, times(1)).deckChanged(102);
+    }
+
+    @Test
+    void addInactiveMemory_onlyBumpsCatalogVersion() {
+        // Given
+        when(idService.generateRandomId()).thenReturn("2");
+        when(memoryRepository.save(memoryModel2)).thenReturn(memoryModel2);
+
+        // When
+        memoryService.addMemory(memoryModel2);
+
+        // Then
+        verify(contentVersionService, times(1)).bump(ContentVersionService.CATALOG);
+        verify(contentVersionService, never()).bump("deck-102");
+        verify(deckAtlasService, never()).deckChanged(anyInt());
+    }
+
+    @Test
+    void toggleMemoryActiveForOwner_singleRoundTripOnSuccess() {
+        // Given
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class)))
+                .thenReturn(memoryModel1);
+
+        // When
+        MemoryModel result = memoryService.toggleMemoryActiveForOwner("1", "github123");
+
+        // Then
+        assertEquals(memoryModel1, result);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(query.capture(), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class));
+        assertEquals(new Document("_id", "1").append("appUserGithubId", "github123"), query.getValue().getQueryObject());
+        verify(memoryRepository, never()).existsById(anyString());
+        verify(memoryRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void toggleMemoryActiveForOwner_throwsAccessDeniedForOtherOwner() {
+        // Given
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class)))
+                .thenReturn(null);
+        when(memoryRepository.existsById("1")).thenReturn(true);
+
+        // Then
+        AccessDeniedException exception = assertThrows(AccessDeniedException.class,
+                () -> memoryService.toggleMemoryActiveForOwner("1", "someoneElse"));
+        assertEquals("You are not allowed to update memories for other users", exception.getMessage());
+        verifyNoInteractions(deckCountService);
+    }
+
+    @Test
+    void toggleMemoryActiveForOwner_throwsNotFoundForUnknownId() {
+        // Given
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class)))
+                .thenReturn(null);
+        when(memoryRepository.existsById("unknown")).thenReturn(false);
+
+        // Then
+        MemoryNotFoundException exception = assertThrows(MemoryNotFoundException.class,
+                () -> memoryService.toggleMemoryActiveForOwner("unknown", "github123"));
+        assertEquals("No Memory found with id: unknown", exception.getMessage());
+    }
+
+    @Test
+    void updateMemoryForOwner_keepsExistingImageWithoutNewUpload() {
+        // Given
+        MemoryModel changes = new MemoryModel(
+                "1",
+                "Neuer Name",
+                101,
+                memoryModel1.category(),
+                memoryModel1.description(),
                 true,
-                "github789",
-                "user3",
-                "https://avatars.example.com/user3.png",
-                "https://github.com/user3",
-                "https://example.com/image3.jpg"
+                memoryModel1.appUserGithubId(),
+                memoryModel1.appUserUsername(),
+                memoryModel1.appUserAvatarUrl(),
+                memoryModel1.appUserGithubUrl(),
+                null
         );
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class)))
+                .thenReturn(memoryModel1);
+
+        // When
+        MemoryModel result = memoryService.updateMemoryForOwner("1", "github123", changes);
 
-        // Speichern der Erinnerungen
-        when(memoryRepository.findAll()).thenReturn(List.of(avatarMemory, cloudinaryMemory, additionalMemory));
+        // Then
+        assertEquals("Neuer Name", result.name());
+        assertEquals(memoryModel1.imageUrl(), result.imageUrl());
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(MemoryModel.class));
+        assertFalse(update.getValue().getUpdateObject().get("$set", Document.class).containsKey("imageUrl"));
+        verify(imageDeletionOutbox, never()).enqueue(anyString());
+        verify(deckCountService).memoryChanged(memoryModel1, result);
+        verify(memoryRepository, never()).save(any(MemoryModel.class));
+    }
+
+    @Test
+    void updateMemoryForOwner_deletesReplacedImageAfterUpdate() {
+        // Given
+        MemoryModel changes = new MemoryModel(
+                "1",
+                memoryModel1.name(),
+                101,
+                memoryModel1.category(),
+                memoryModel1.description(),
+                true,
+                memoryModel1.appUserGithubId(),
+                memoryModel1.appUserUsername(),
+                memoryModel1.appUserAvatarUrl(),
+                memoryModel1.appUserGithubUrl(),
+                "https://example.com/new.jpg"
+        );
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class)))
+                .thenReturn(memoryModel1);
 
         // When
-        List<Integer> actualMatchIds = memoryService.getActiveMemoriesMatchIds();
+        MemoryModel result = memoryService.updateMemoryForOwner("1", "github123", changes);
 
         // Then
-        List<Integer> expectedMatchIds = List.of(101, 103);  // Erwartete Liste mit matchIds der aktiven Erinnerungen
-        assertEquals(expectedMatchIds, actualMatchIds);  // Verifizieren, dass die Liste korrekt ist
+        assertEquals("https://example.com/new.jpg", result.imageUrl());
+        verify(imageDeletionOutbox).enqueue("https://example.com/image1.jpg");
     }
 
-}
+    @Test
+    void updateMemoryForOwner_releasesSameImageAfterDeduplicatedUpload() {
+        // Given: der Upload wurde auf das bisherige Bild dedupliziert und hat dafür eine Referenz genommen
+        MemoryModel changes = new MemoryModel(
+                "1",
+                memoryModel1.name(),
+                101,
+                memoryModel1.category(),
+                memoryModel1.description(),
+                true,
+                memoryModel1.appUserGithubId(),
+                memoryModel1.appUserUsername(),
+                memoryModel1.appUserAvatarUrl(),
+                memoryModel1.appUserGithubUrl(),
+                memoryModel1.imageUrl()
+        );
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class)))
+                .thenReturn(memoryModel1);
+
+        // When
+        memoryService.updateMemoryForOwner("1", "github123", changes);
+
+        // Then
+        verify(imageDeletionOutbox).enqueue(memoryModel1.imageUrl());
+    }
+
+    @Test
+    void updateMemoryForOwner_deletesUploadedImageWhenNotOwner() {
+        // Given
+        MemoryModel changes = new MemoryModel(
+                "1",
+                memoryModel1.name(),
+                101,
+                memoryModel1.category(),
+                memoryModel1.description(),
+                true,
+                "someoneElse",
+                memoryModel1.appUserUsername(),
+                memoryModel1.appUserAvatarUrl(),
+                memoryModel1.appUserGithubUrl(),
+                "https://example.com/new.jpg"
+        );
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(MemoryModel.class)))
+                .thenReturn(null);
+        when(memoryRepository.existsById("1")).thenReturn(true);
+
+        // Then
+        assertThrows(AccessDeniedException.class, () -> memoryService.updateMemoryForOwner("1", "someoneElse", changes));
+        verify(imageDeletionOutbox).enqueue("https://example.com/new.jpg");
+        verify(imageDeletionOutbox, never()).enqueue("https://example.com/image1.jpg");
+        verifyNoInteractions(deckCountService);
+    }
+
+    @Test
+    void deleteMemoryForOwner_removesDocumentAndImage() {
+        // Given
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(MemoryModel.class))).thenReturn(memoryModel1);
+
+        // When
+        memoryService.deleteMemoryForOwner("1", "github123");
 
+        // Then
+        verify(imageDeletionOutbox).enqueue("https://example.com/image1.jpg");
+        verify(deckCountService).memoryChanged(memoryModel1, null);
+        verify(memoryRepository, never()).findById(anyString());
+        verify(memoryRepository, never()).deleteById(anyString());
+    }
+
+    @Test
+    void deleteMemoryForOwner_releasesThumbnailToo() {
+        // Given
+        MemoryModel withRenditions = new MemoryModel(
+                "1",
+                memoryModel1.name(),
+                101,
+                memoryModel1.category(),
+                memoryModel1.description(),
+                true,
+                memoryModel1.appUserGithubId(),
+                memoryModel1.appUserUsername(),
+                memoryModel1.appUserAvatarUrl(),
+                memoryModel1.appUserGithubUrl(),
+                "https://example.com/full.jpg",
+                new ImageRenditions(
+                        new ImageRendition("https://example.com/full.jpg", 1600, 1200),
+                        new ImageRendition("https://example.com/thumbnail.jpg", 320, 240))
+        );
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(MemoryModel.class))).thenReturn(withRenditions);
+
+        // When
+        memoryService.deleteMemoryForOwner("1", "github123");
+
+        // Then
+        verify(imageDeletionOutbox).enqueue("https://example.com/full.jpg");
+        verify(imageDeletionOutbox).enqueue("https://example.com/thumbnail.jpg");
+    }
+
+    @Test
+    void deleteMemoryForOwner_throwsAccessDeniedForOtherOwner() {
+        // Given
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(MemoryModel.class))).thenReturn(null);
+        when(memoryRepository.existsById("1")).thenReturn(true);
+
+        // Then
+        AccessDeniedException exception = assertThrows(AccessDeniedException.class,
+                () -> memoryService.deleteMemoryForOwner("1", "someoneElse"));
+        assertEquals("You are not allowed to delete memories for other users", exception.getMessage());
+        verify(imageDeletionOutbox, never()).enqueue(anyString());
+    }
+}
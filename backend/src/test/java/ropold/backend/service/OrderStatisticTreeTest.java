@@ -0,0 +1,52 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderStatisticTreeTest {
+
+    @Test
+    void matchesSortedListForRandomOperations() {
+        // Given
+        OrderStatisticTree tree = new OrderStatisticTree();
+        List<Double> expected = new ArrayList<>();
+        Random random = new Random(42);
+
+        // When
+        for (int i = 0; i < 5_000; i++) {
+            double value = random.nextInt(500) / 10.0;
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(value), tree.remove(value));
+            } else {
+                expected.add(value);
+                tree.add(value);
+            }
+        }
+        Collections.sort(expected);
+
+        // Then
+        assertEquals(expected.size(), tree.size());
+        for (int i = 0; i < expected.size(); i += 37) {
+            assertEquals(expected.get(i), tree.select(i));
+        }
+        for (double probe = -1; probe <= 51; probe += 0.7) {
+            double value = probe;
+            assertEquals(expected.stream().filter(time -> time < value).count(), tree.countLess(value));
+            assertEquals(expected.stream().filter(time -> time <= value).count(), tree.countLessOrEqual(value));
+        }
+    }
+
+    @Test
+    void select_outOfBounds_throws() {
+        OrderStatisticTree tree = new OrderStatisticTree();
+        tree.add(1.0);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.select(1));
+    }
+}
@@ -0,0 +1,144 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ropold.backend.exception.PlayBootstrapTimeoutException;
+import ropold.backend.model.Category;
+import ropold.backend.model.DeckCountModel;
+import ropold.backend.model.HighScoreModel;
+import ropold.backend.model.MemoryModel;
+import ropold.backend.model.PlayBootstrapModel;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PlayBootstrapServiceTest {
+
+    MemoryService memoryService = mock(MemoryService.class);
+    HighScoreService highScoreService = mock(HighScoreService.class);
+    PlayBootstrapService playBootstrapService = new PlayBootstrapService(memoryService, highScoreService, Duration.ofSeconds(2));
+
+    MemoryModel memory = new MemoryModel(
+            "1",
+            "Erinnerung",
+            101,
+            Category.GITHUB_AVATAR,
+            "Beschreibung",
+            true,
+            "github123",
+            "user1",
+            "https://avatars.example.com/user1.png",
+            "https://github.com/user1",
+            "https://example.com/image1.jpg");
+
+    HighScoreModel highScore = new HighScoreModel("h1", "Player1", "github1", 101, 10, 10.5,
+            LocalDateTime.of(2025, 3, 5, 12, 0, 0));
+
+    @AfterEach
+    void tearDown() {
+        playBootstrapService.shutdown();
+    }
+
+    @Test
+    void bootstrap_withoutMatchId_selectsFirstDeck() {
+        // Given
+        when(memoryService.getActiveMemoriesMatchIdCounts()).thenReturn(List.of(new DeckCountModel(101, 1), new DeckCountModel(102, 5)));
+        when(memoryService.getActiveMemoriesFilterByMatchId(101)).thenReturn(List.of(memory));
+        when(highScoreService.getBestHighScoresForCards(10)).thenReturn(List.of(highScore));
+        when(highScoreService.getBestHighScoresForCards(20)).thenReturn(List.of());
+        when(highScoreService.getBestHighScoresForCards(32)).thenReturn(List.of());
+
+        // When
+        PlayBootstrapModel result = playBootstrapService.bootstrap(null);
+
+        // Then
+        assertEquals(101, result.matchId());
+        assertEquals(List.of(memory), result.deck());
+        assertEquals(2, result.matchIds().size());
+        assertEquals(List.of(10, 20, 32), List.copyOf(result.highScores().keySet()));
+        assertEquals(List.of(highScore), result.highScores().get(10));
+    }
+
+    @Test
+    void bootstrap_withoutDecks_returnsEmptyDeck() {
+        // Given
+        when(memoryService.getActiveMemoriesMatchIdCounts()).thenReturn(List.of());
+
+        // When
+        PlayBootstrapModel result = playBootstrapService.bootstrap(null);
+
+        // Then
+        assertNull(result.matchId());
+        assertEquals(List.of(), result.deck());
+        verify(memoryService, never()).getActiveMemoriesFilterByMatchId(anyInt());
+    }
+
+    @Test
+    void bootstrap_runsCallsConcurrently() {
+        // Given: jede Abfrage wartet, bis alle fünf gestartet sind; nacheinander liefe das in den Timeout
+        CountDownLatch started = new CountDownLatch(5);
+        when(memoryService.getActiveMemoriesMatchIdCounts()).thenAnswer(invocation -> awaitOthers(started, List.of()));
+        when(memoryService.getActiveMemoriesFilterByMatchId(102)).thenAnswer(invocation -> awaitOthers(started, List.of(memory)));
+        when(highScoreService.getBestHighScoresForCards(anyInt())).thenAnswer(invocation -> awaitOthers(started, List.of()));
+
+        // When
+        PlayBootstrapModel result = playBootstrapService.bootstrap(102);
+
+        // Then
+        assertEquals(102, result.matchId());
+        assertEquals(List.of(memory), result.deck());
+    }
+
+    @Test
+    void bootstrap_slowCall_throwsTimeoutAndLetsTheCallFinish() throws InterruptedException {
+        // Given: die Abfrage könnte ein gemeinsames Laden sein, auf das andere Requests warten
+        PlayBootstrapService shortTimeout = new PlayBootstrapService(memoryService, highScoreService, Duration.ofMillis(50));
+        CountDownLatch finished = new CountDownLatch(3);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        when(memoryService.getActiveMemoriesMatchIdCounts()).thenReturn(List.of());
+        when(highScoreService.getBestHighScoresForCards(anyInt())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            finished.countDown();
+            return List.of();
+        });
+
+        // When & Then
+        try {
+            assertThrows(PlayBootstrapTimeoutException.class, () -> shortTimeout.bootstrap(101));
+            assertTrue(finished.await(2, TimeUnit.SECONDS));
+            assertFalse(interrupted.get());
+        } finally {
+            shortTimeout.shutdown();
+        }
+    }
+
+    @Test
+    void bootstrap_failingCall_propagatesException() {
+        // Given
+        when(memoryService.getActiveMemoriesMatchIdCounts()).thenReturn(List.of());
+        when(memoryService.getActiveMemoriesFilterByMatchId(101)).thenThrow(new IllegalArgumentException("broken"));
+
+        // When & Then
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> playBootstrapService.bootstrap(101));
+        assertEquals("broken", e.getMessage());
+    }
+
+    private static <T> T awaitOthers(CountDownLatch started, T result) throws InterruptedException {
+        started.countDown();
+        if (!started.await(1, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Calls did not run concurrently");
+        }
+        return result;
+    }
+}
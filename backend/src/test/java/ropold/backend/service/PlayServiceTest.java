@@ -0,0 +1,121 @@
+package ropold.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ropold.backend.model.Category;
+import ropold.backend.model.DealModel;
+import ropold.backend.model.MemoryModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PlayServiceTest {
+
+    MemoryService memoryService = mock(MemoryService.class);
+    PlayService playService = new PlayService(memoryService);
+
+    List<MemoryModel> deck = IntStream.rangeClosed(1, 20)
+            .mapToObj(i -> new MemoryModel(
+                    String.valueOf(i),
+                    "Erinnerung " + i,
+                    101,
+                    Category.GITHUB_AVATAR,
+                    "Beschreibung " + i,
+                    true,
+                    "github123",
+                    "user1",
+                    "https://avatars.example.com/user1.png",
+                    "https://github.com/user1",
+                    "https://example.com/image" + i + ".jpg"))
+            .toList();
+
+    @Test
+    void deal_returnsHalfAsManyMemoriesAndEveryIndexTwice() {
+        // Given
+        when(memoryService.getActiveMemoriesFilterByMatchId(101)).thenReturn(deck);
+
+        // When
+        DealModel deal = playService.deal(101, 10, 42L);
+
+        // Then
+        assertEquals(5, deal.memories().size());
+        assertEquals(5, new HashSet<>(deal.memories()).size());
+        assertEquals(10, deal.layout().size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(2, Collections.frequency(deal.layout(), i));
+        }
+        assertEquals(42L, deal.seed());
+        assertEquals(101, deal.matchId());
+        assertEquals(10, deal.numberOfCards());
+    }
+
+    @Test
+    void deal_sameSeedIsReproducibleIndependentOfDeckOrder() {
+        // Given
+        List<MemoryModel> reversedDeck = new ArrayList<>(deck);
+        Collections.reverse(reversedDeck);
+        when(memoryService.getActiveMemoriesFilterByMatchId(101)).thenReturn(deck, reversedDeck);
+
+        // When
+        DealModel first = playService.deal(101, 20, 1234L);
+        DealModel second = playService.deal(101, 20, 1234L);
+
+        // Then
+        assertEquals(first, second);
+    }
+
+    @Test
+    void deal_withoutSeed_generatesSeedThatReproducesDeal() {
+        // Given
+        when(memoryService.getActiveMemoriesFilterByMatchId(101)).thenReturn(deck);
+
+        // When
+        DealModel deal = playService.deal(101, 20, null);
+        DealModel replay = playService.deal(101, 20, deal.seed());
+
+        // Then
+        assertEquals(deal, replay);
+    }
+
+    @Test
+    void deal_generatedSeedSurvivesJsonRoundTripAsJavaScriptNumber() throws Exception {
+        // Given
+        when(memoryService.getActiveMemoriesFilterByMatchId(101)).thenReturn(deck);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        for (int i = 0; i < 1000; i++) {
+            // When
+            DealModel deal = playService.deal(101, 4, null);
+            // Ein Browser liest jede JSON-Zahl als double
+            double seenByBrowser = objectMapper.readTree(objectMapper.writeValueAsString(deal)).get("seed").asDouble();
+            DealModel replay = playService.deal(101, 4, (long) seenByBrowser);
+
+            // Then
+            assertTrue(Math.abs(deal.seed()) <= PlayService.MAX_GENERATED_SEED);
+            assertEquals(deal, replay);
+        }
+    }
+
+    @Test
+    void deal_notEnoughActiveCards_throwsException() {
+        // Given
+        when(memoryService.getActiveMemoriesFilterByMatchId(101)).thenReturn(deck.subList(0, 3));
+
+        // When / Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> playService.deal(101, 10, null));
+        assertEquals("Deck 101 has only 3 active Memory-Cards, 5 are needed to play with 10 cards", exception.getMessage());
+    }
+
+    @Test
+    void deal_oddNumberOfCards_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> playService.deal(101, 9, null));
+    }
+}
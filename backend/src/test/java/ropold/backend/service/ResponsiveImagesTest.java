@@ -0,0 +1,49 @@
+package ropold.backend.service;
+
+import org.junit.jupiter.api.Test;
+import ropold.backend.model.ResponsiveImages;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponsiveImagesTest {
+
+    @Test
+    void srcset_addsCloudinaryTransformationPerPreset() {
+        // When
+        Map<String, String> srcset = ResponsiveImages.srcset("https://res.cloudinary.com/demo/image/upload/v1700000000/memory/card.jpg");
+
+        // Then
+        assertEquals("https://res.cloudinary.com/demo/image/upload/c_limit,w_800,q_auto,f_auto/v1700000000/memory/card.jpg 800w, "
+                + "https://res.cloudinary.com/demo/image/upload/c_limit,w_1600,q_auto,f_auto/v1700000000/memory/card.jpg 1600w", srcset.get("detail"));
+    }
+
+    @Test
+    void srcset_skipsAlreadyTransformedCloudinaryUrls() {
+        // When
+        Map<String, String> srcset = ResponsiveImages.srcset("https://res.cloudinary.com/demo/image/upload/w_100/v1700000000/memory/card.jpg");
+
+        // Then
+        assertTrue(srcset.isEmpty());
+    }
+
+    @Test
+    void srcset_usesGithubSizeParameterCappedAtMaximum() {
+        // When
+        Map<String, String> srcset = ResponsiveImages.srcset("https://avatars.githubusercontent.com/u/123?v=4&s=40");
+
+        // Then
+        assertEquals("https://avatars.githubusercontent.com/u/123?v=4&s=200 200w, "
+                + "https://avatars.githubusercontent.com/u/123?v=4&s=400 400w", srcset.get("board"));
+        assertEquals("https://avatars.githubusercontent.com/u/123?v=4&s=460 460w", srcset.get("detail"));
+    }
+
+    @Test
+    void srcset_isEmptyForOtherHosts() {
+        // Then
+        assertTrue(ResponsiveImages.srcset("https://example.com/image1.jpg").isEmpty());
+        assertTrue(ResponsiveImages.srcset(null).isEmpty());
+    }
+}
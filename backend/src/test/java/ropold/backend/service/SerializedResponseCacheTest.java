@@ -0,0 +1,70 @@
+package ropold.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ropold.backend.service.SerializedResponseCache.SerializedResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SerializedResponseCacheTest {
+
+    SerializedResponseCache serializedResponseCache = new SerializedResponseCache(new ObjectMapper(), 10);
+
+    @Test
+    void get_serializesOncePerVersion() {
+        AtomicInteger serializations = new AtomicInteger();
+
+        SerializedResponse first = serializedResponseCache.get("match-ids", "v1", () -> {
+            serializations.incrementAndGet();
+            return List.of(101, 102);
+        });
+        SerializedResponse second = serializedResponseCache.get("match-ids", "v1", () -> {
+            serializations.incrementAndGet();
+            return List.of(101, 102);
+        });
+
+        assertSame(first, second);
+        assertEquals(1, serializations.get());
+        assertEquals("[101,102]", new String(first.json(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void get_rebuildsWhenVersionChanges() {
+        SerializedResponse first = serializedResponseCache.get("match-ids", "v1", () -> List.of(101));
+        SerializedResponse second = serializedResponseCache.get("match-ids", "v2", () -> List.of(101, 102));
+
+        assertNotSame(first, second);
+        assertEquals("v2", second.version());
+        assertEquals("[101,102]", new String(second.json(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void get_gzipVariantDecompressesToJson() throws IOException {
+        SerializedResponse serialized = serializedResponseCache.get("deck-101", "v1", () -> List.of("a", "b", "c"));
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(serialized.gzip()))) {
+            assertArrayEquals(serialized.json(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void invalidateAll_forcesRebuild() {
+        AtomicInteger serializations = new AtomicInteger();
+
+        serializedResponseCache.get("deck-101", "v1", () -> serializations.incrementAndGet());
+        serializedResponseCache.invalidateAll();
+        serializedResponseCache.get("deck-101", "v1", () -> serializations.incrementAndGet());
+
+        assertEquals(2, serializations.get());
+    }
+}
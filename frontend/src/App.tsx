@@ -18,6 +18,7 @@ import Favorites from "./components/Favorites.tsx";
 import Welcome from "./components/Welcome.tsx";
 import HighScore from "./components/HighScore.tsx";
 import {HighScoreModel} from "./components/model/HighScoreModel.ts";
+import {PlayBootstrapModel} from "./components/model/PlayBootstrapModel.ts";
 
 export default function App() {
 
@@ -102,36 +103,34 @@ export default function App() {
             });
     }
 
-    const getHighScoresFor10Cards = () => {
-        axios
-            .get("/api/high-score/10")
-            .then((response) => {
-                setHighScores10(response.data);
-            })
-            .catch((error) => {
-                console.error(error);
-            });
-    }
-
-    const getHighScoresFor20Cards = () => {
-        axios
-            .get("/api/high-score/20")
-            .then((response) => {
-                setHighScores20(response.data);
-            })
-            .catch((error) => {
-                console.error(error);
-            });
+    // Nur die Bestenlisten, für Seiten ohne Spiel; die Spielseite holt sie mit getPlayBootstrap
+    const getHighScores = () => {
+        const setters = {10: setHighScores10, 20: setHighScores20, 32: setHighScores32};
+        Object.entries(setters).forEach(([numberOfCards, setHighScores]) => {
+            axios
+                .get<HighScoreModel[]>(`/api/high-score/${numberOfCards}`)
+                .then((response) => {
+                    setHighScores(response.data);
+                })
+                .catch((error) => {
+                    console.error(error);
+                });
+        });
     }
 
-    const getHighScoresFor32Cards = () => {
-        axios
-            .get("/api/high-score/32")
+    // Ein Request statt drei: die Bestenlisten kommen zusammen mit den Decks für die Spielseite
+    const getPlayBootstrap = () => {
+        return axios
+            .get<PlayBootstrapModel>("/api/memory-hub/play/bootstrap")
             .then((response) => {
-                setHighScores32(response.data);
+                setHighScores10(response.data.highScores[10] ?? []);
+                setHighScores20(response.data.highScores[20] ?? []);
+                setHighScores32(response.data.highScores[32] ?? []);
+                return response.data;
             })
             .catch((error) => {
                 console.error(error);
+                return null;
             });
     }
 
@@ -176,20 +175,20 @@ export default function App() {
 
   return (
     <>
-      <Navbar userDetails={userDetails} getUserDetails={getUserDetails} user={user} getUser={getUser} getActiveMemories={getActiveMemories} toggleSearchBar={toggleSearchBar} showSearch={showSearch} resetCurrentPage={resetCurrentPage} resetEditingState={resetEditingState} getHighScoresFor10Cards={getHighScoresFor10Cards} getHighScoresFor20Cards={getHighScoresFor20Cards} getHighScoresFor32Cards={getHighScoresFor32Cards}/>
+      <Navbar userDetails={userDetails} getUserDetails={getUserDetails} user={user} getUser={getUser} getActiveMemories={getActiveMemories} toggleSearchBar={toggleSearchBar} showSearch={showSearch} resetCurrentPage={resetCurrentPage} resetEditingState={resetEditingState} getHighScores={getHighScores}/>
       <Routes>
         <Route path="*" element={<NotFound />} />
         <Route path="/" element={<Welcome userDetails={userDetails}/>} />
         <Route path="/list-of-all-cards" element={<ListOfAllCards activeMemories={activeMemories} toggleFavorite={toggleFavorite} favorites={favorites} user={user} showSearch={showSearch} currentPage={currentPage} paginate={setCurrentPage}/>} />
-        <Route path="/play" element={<Play highScores10={highScores10} highScores20={highScores20} highScores32={highScores32} user={user} getHighScoresFor10Cards={getHighScoresFor10Cards} getHighScoresFor20Cards={getHighScoresFor20Cards} getHighScoresFor32Cards={getHighScoresFor32Cards}/>} />
+        <Route path="/play" element={<Play highScores10={highScores10} highScores20={highScores20} highScores32={highScores32} user={user} getPlayBootstrap={getPlayBootstrap}/>} />
         <Route path="/memory/:id" element={<Details allMemories={allMemories} favorites={favorites} user={user} toggleFavorite={toggleFavorite}/>} />
-        <Route path="/high-score" element={<HighScore highScores10={highScores10} highScores20={highScores20} highScores32={highScores32} getHighScoresFor10Cards={getHighScoresFor10Cards} getHighScoresFor20Cards={getHighScoresFor20Cards} getHighScoresFor32Cards={getHighScoresFor32Cards}/>} />
+        <Route path="/high-score" element={<HighScore highScores10={highScores10} highScores20={highScores20} highScores32={highScores32} getHighScores={getHighScores}/>} />
 
         <Route element={<ProtectedRoute user={user} />}>
             <Route path="/favorites" element={<Favorites favorites={favorites} user={user} toggleFavorite={toggleFavorite}/>} />
             <Route path="/my-memories" element={<MyMemories userDetails={userDetails} user={user} favorites={favorites} toggleFavorite={toggleFavorite} allMemories={allMemories} setAllMemories={setAllMemories} isEditing={isEditing} setIsEditing={setIsEditing} getAllMemories={getAllMemories}/>} />
             <Route path="/add" element={<AddMemoryCard userDetails={userDetails} handleSubmit={handleNewMemorySubmit} />} />
-            <Route path="/profile" element={<Profile user={user} userDetails={userDetails} highScores10={highScores10} highScores20={highScores20} highScores32={highScores32} getHighScoresFor10Cards={getHighScoresFor10Cards} getHighScoresFor20Cards={getHighScoresFor20Cards} getHighScoresFor32Cards={getHighScoresFor32Cards}/>} />
+            <Route path="/profile" element={<Profile user={user} userDetails={userDetails} highScores10={highScores10} highScores20={highScores20} highScores32={highScores32} getHighScores={getHighScores}/>} />
         </Route>
       </Routes>
       <Footer />
@@ -7,9 +7,7 @@ type HighScoreProps = {
     highScores10: HighScoreModel[];
     highScores20: HighScoreModel[];
     highScores32: HighScoreModel[];
-    getHighScoresFor10Cards: () => void;
-    getHighScoresFor20Cards: () => void;
-    getHighScoresFor32Cards: () => void;
+    getHighScores: () => void;
 };
 
 const formatDate = (date: string) => {
@@ -55,9 +53,7 @@ export default function HighScore(props: Readonly<HighScoreProps>) {
     }, [props.highScores10, props.highScores20, props.highScores32]);
 
     useEffect(() => {
-        props.getHighScoresFor10Cards();
-        props.getHighScoresFor20Cards();
-        props.getHighScoresFor32Cards();
+        props.getHighScores();
     }, []);
 
     // Function to select the table
@@ -14,9 +14,7 @@ type NavbarProps = {
     showSearch: boolean
     resetCurrentPage: () => void
     resetEditingState: () => void
-    getHighScoresFor10Cards: () => void;
-    getHighScoresFor20Cards: () => void;
-    getHighScoresFor32Cards: () => void;
+    getHighScores: () => void;
 }
 
 export default function Navbar(props: Readonly<NavbarProps>) {
@@ -77,9 +75,7 @@ export default function Navbar(props: Readonly<NavbarProps>) {
             <button
                 id="button-high-score"
                 onClick={() => {
-                    props.getHighScoresFor10Cards();
-                    props.getHighScoresFor20Cards();
-                    props.getHighScoresFor32Cards();
+                    props.getHighScores();
                     navigate("/high-score");
                 }}
             >
@@ -3,6 +3,7 @@ import { MemoryModel } from "./model/MemoryModel.ts";
 import PlayMemoryCard from "./PlayMemoryCard.tsx";
 import { HighScoreModel } from "./model/HighScoreModel.ts";
 import axios from "axios";
+import { PlayBootstrapModel } from "./model/PlayBootstrapModel.ts";
 
 
 type PlayProps = {
@@ -10,9 +11,7 @@ type PlayProps = {
     highScores20: HighScoreModel[];
     highScores32: HighScoreModel[];
     user: string;
-    getHighScoresFor10Cards: () => void;
-    getHighScoresFor20Cards: () => void;
-    getHighScoresFor32Cards: () => void;
+    getPlayBootstrap: () => Promise<PlayBootstrapModel | null>;
 };
 
 // Fisher-Yates-Shuffle-Funktion für wirklich zufälliges Mischen
@@ -46,11 +45,19 @@ export default function Play(props: Readonly<PlayProps>) {
     const [activeMatchIds, setActiveMatchIds] = useState<number[]>([]);
     const [activeMemories, setActiveMemories] = useState<MemoryModel[]>([]);
     const [isLoadingMemories, setIsLoadingMemories] = useState(false);
+    const [bootstrapDeck, setBootstrapDeck] = useState<{ matchId: number; deck: MemoryModel[] } | null>(null);
 
+    // Decks, Bestenlisten und das erste Deck kommen in einem Request
     useEffect(() => {
-        props.getHighScoresFor10Cards();
-        props.getHighScoresFor20Cards();
-        props.getHighScoresFor32Cards();
+        props.getPlayBootstrap().then((bootstrap) => {
+            if (bootstrap === null) {
+                return;
+            }
+            setActiveMatchIds(bootstrap.matchIds.map((deck) => deck.matchId));
+            if (bootstrap.matchId !== null) {
+                setBootstrapDeck({ matchId: bootstrap.matchId, deck: bootstrap.deck });
+            }
+        });
     }, []);
 
     const getMissingCardsMessage = (): string | null => {
@@ -77,23 +84,12 @@ export default function Play(props: Readonly<PlayProps>) {
         postHighScore();
     };
 
-    const getActiveMemoriesMatchIds = () => {
-        axios
-            .get("api/memory-hub/active/match-ids")
-            .then((response) => {
-                const matchIds = response.data;
-                setActiveMatchIds(matchIds);
-            })
-            .catch((error) => {
-                console.error(error);
-            });
-    }
-
-    useEffect(() => {
-        getActiveMemoriesMatchIds();
-    }, []);
-
     const getActiveMemoriesByMatchId = (matchId: number) => {
+        // Das erste Deck ist schon mit dem Bootstrap gekommen
+        if (bootstrapDeck !== null && bootstrapDeck.matchId === matchId) {
+            setActiveMemories(bootstrapDeck.deck);
+            return;
+        }
         setIsLoadingMemories(true);
         axios
             .get(`api/memory-hub/active/match-id/${matchId}`)
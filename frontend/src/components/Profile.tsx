@@ -9,9 +9,7 @@ type ProfileProps = {
     highScores10: HighScoreModel[];
     highScores20: HighScoreModel[];
     highScores32: HighScoreModel[];
-    getHighScoresFor10Cards: () => void;
-    getHighScoresFor20Cards: () => void;
-    getHighScoresFor32Cards: () => void;
+    getHighScores: () => void;
 };
 
 const formatDate = (date: string) => {
@@ -38,9 +36,7 @@ export default function Profile(props: Readonly<ProfileProps>) {
     const [userRanks, setUserRanks] = useState<{ [key: string]: number }>({});
 
     useEffect(() => {
-        props.getHighScoresFor10Cards();
-        props.getHighScoresFor20Cards();
-        props.getHighScoresFor32Cards();
+        props.getHighScores();
     }, []);
 
     useEffect(() => {
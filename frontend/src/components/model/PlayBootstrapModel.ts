@@ -0,0 +1,15 @@
+import { MemoryModel } from "./MemoryModel.ts";
+import { HighScoreModel } from "./HighScoreModel.ts";
+
+export type DeckCountModel = {
+    matchId: number;
+    activeCount: number;
+}
+
+// Antwort von /api/memory-hub/play/bootstrap: Decks, das erste Deck und die Bestenlisten für 10, 20 und 32 Karten
+export type PlayBootstrapModel = {
+    matchIds: DeckCountModel[];
+    matchId: number | null;
+    deck: MemoryModel[];
+    highScores: Record<number, HighScoreModel[]>;
+}